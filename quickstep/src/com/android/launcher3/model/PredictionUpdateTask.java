@@ -18,6 +18,7 @@ package com.android.launcher3.model;
 import static com.android.launcher3.LauncherPrefs.nonRestorableItem;
 import static com.android.launcher3.EncryptionType.ENCRYPTED;
 import static com.android.launcher3.LauncherSettings.Favorites.ITEM_TYPE_DEEP_SHORTCUT;
+import static com.android.launcher3.model.ModelTaskScheduler.PRIORITY_BACKGROUND;
 import static com.android.quickstep.InstantAppResolverImpl.COMPONENT_CLASS_MARKER;
 
 import android.app.prediction.AppTarget;
@@ -60,6 +61,11 @@ public class PredictionUpdateTask extends BaseModelUpdateTask {
         mTargets = targets;
     }
 
+    @Override
+    public int getPriority() {
+        return PRIORITY_BACKGROUND;
+    }
+
     @Override
     public void execute(@NonNull final LauncherAppState app, @NonNull final BgDataModel dataModel,
             @NonNull final AllAppsList apps) {
@@ -119,6 +125,7 @@ public class PredictionUpdateTask extends BaseModelUpdateTask {
 
         FixedContainerItems fci = new FixedContainerItems(mPredictorState.containerId, items);
         dataModel.extraItems.put(fci.containerId, fci);
+        dataModel.markChanged();
         bindExtraContainerItems(fci);
         usersForChangedShortcuts.forEach(
                 u -> dataModel.updateShortcutPinnedState(app.getContext(), u));
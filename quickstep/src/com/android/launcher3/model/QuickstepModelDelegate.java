@@ -157,6 +157,7 @@ public class QuickstepModelDelegate extends ModelDelegate {
             bindPredictionItems(callbacks, fci);
         }
         mDataModel.extraItems.put(state.containerId, fci);
+        mDataModel.markChanged();
     }
 
     @CallSuper
@@ -167,6 +168,7 @@ public class QuickstepModelDelegate extends ModelDelegate {
 
         // Widgets prediction isn't used frequently. And thus, it is not persisted on disk.
         mDataModel.extraItems.put(mWidgetsRecommendationState.containerId, widgetPredictionFCI);
+        mDataModel.markChanged();
 
         bindPredictionItems(callbacks, widgetPredictionFCI);
         loadStringCache(mDataModel.stringCache);
@@ -451,7 +453,7 @@ public class QuickstepModelDelegate extends ModelDelegate {
     private Bundle getBundleForWidgetsOnWorkspace(Context context, BgDataModel dataModel) {
         Bundle bundle = new Bundle();
         ArrayList<AppTargetEvent> widgetEvents =
-                dataModel.getAllWorkspaceItems().stream()
+                dataModel.getSnapshot().getAllWorkspaceItems().stream()
                         .filter(PredictionHelper::isTrackedForWidgetPrediction)
                         .map(item -> {
                             AppTarget target = getAppTargetFromItemInfo(context, item);
@@ -17,6 +17,7 @@ package com.android.launcher3.model;
 
 import static com.android.launcher3.Flags.enableCategorizedWidgetSuggestions;
 import static com.android.launcher3.LauncherSettings.Favorites.CONTAINER_WIDGETS_PREDICTION;
+import static com.android.launcher3.model.ModelTaskScheduler.PRIORITY_BACKGROUND;
 
 import android.app.prediction.AppTarget;
 import android.content.Context;
@@ -28,7 +29,7 @@ import com.android.launcher3.LauncherAppState;
 import com.android.launcher3.model.BgDataModel.FixedContainerItems;
 import com.android.launcher3.model.QuickstepModelDelegate.PredictorState;
 import com.android.launcher3.model.data.ItemInfo;
-import com.android.launcher3.util.ComponentKey;
+import com.android.launcher3.model.data.LauncherAppWidgetInfo;
 import com.android.launcher3.util.PackageUserKey;
 import com.android.launcher3.widget.PendingAddWidgetInfo;
 import com.android.launcher3.widget.picker.WidgetRecommendationCategoryProvider;
@@ -36,7 +37,6 @@ import com.android.launcher3.widget.picker.WidgetRecommendationCategoryProvider;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
@@ -50,6 +50,11 @@ public final class WidgetsPredictionUpdateTask extends BaseModelUpdateTask {
         mTargets = targets;
     }
 
+    @Override
+    public int getPriority() {
+        return PRIORITY_BACKGROUND;
+    }
+
     /**
      * Uses the app predication result to infer widgets that the user may want to use.
      *
@@ -60,10 +65,12 @@ public final class WidgetsPredictionUpdateTask extends BaseModelUpdateTask {
     @Override
     public void execute(@NonNull final LauncherAppState appState,
             @NonNull final BgDataModel dataModel, @NonNull final AllAppsList apps) {
-        Set<ComponentKey> widgetsInWorkspace = dataModel.appWidgets.stream().map(
-                widget -> new ComponentKey(widget.providerName, widget.user)).collect(
-                Collectors.toSet());
-        Predicate<WidgetItem> notOnWorkspace = w -> !widgetsInWorkspace.contains(w);
+        Predicate<WidgetItem> notOnWorkspace = w -> {
+            synchronized (dataModel) {
+                return dataModel.getItemsForComponent(w).stream()
+                        .noneMatch(LauncherAppWidgetInfo.class::isInstance);
+            }
+        };
         Map<PackageUserKey, List<WidgetItem>> allWidgets =
                 dataModel.widgetsModel.getAllWidgetsWithoutShortcuts();
 
@@ -115,6 +122,7 @@ public final class WidgetsPredictionUpdateTask extends BaseModelUpdateTask {
                 new FixedContainerItems(mPredictorState.containerId, items);
 
         dataModel.extraItems.put(mPredictorState.containerId, fixedContainerItems);
+        dataModel.markChanged();
         bindExtraContainerItems(fixedContainerItems);
 
         // Don't store widgets prediction to disk because it is not used frequently.
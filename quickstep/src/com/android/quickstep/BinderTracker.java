@@ -23,6 +23,7 @@ import android.os.Binder.ProxyTransactListener;
 import android.os.IBinder;
 import android.os.Looper;
 import android.os.RemoteException;
+import android.os.SystemClock;
 import android.os.Trace;
 import android.util.Log;
 
@@ -31,25 +32,50 @@ import androidx.annotation.Nullable;
 import com.android.launcher3.util.SafeCloseable;
 import com.android.launcher3.util.TraceHelper;
 
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.LinkedList;
 import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 import kotlin.random.Random;
 
 /**
  * A binder proxy transaction listener for tracking binder calls on main thread.
+ *
+ * In addition to reporting unexpected calls, it keeps counters and cumulative binder time for
+ * all the blocking main thread calls, aggregated by the innermost {@link TraceHelper} section and
+ * the binder descriptor/transaction code. Sections can be given a budget for the total binder
+ * time spent during a single run, violations are logged and counted.
+ *
+ * The counters are only written on the main thread and are preallocated per section and call
+ * site, so a tracked transaction does not allocate or take a lock. Dumps from other threads read
+ * them without synchronization and may observe a transaction that is partially accounted for.
  */
 public class BinderTracker {
 
     private static final String TAG = "BinderTracker";
 
+    // Section name used for calls made outside of any trace section
+    private static final String NO_SECTION = "<none>";
+    private static final int MAX_DUMPED_SECTIONS = 10;
+    private static final int MAX_DUMPED_CALL_SITES = 5;
+
     // Common IPCs that are ok to block the main thread.
     private static final Set<String> sAllowedFrameworkClasses = Set.of(
             "android.view.IWindowSession",
             "android.os.IPowerManager",
             "android.os.IServiceManager");
 
+    // All the stats are only updated on the main thread, but can be dumped from any thread.
+    private static final ConcurrentHashMap<String, SectionStats> sSectionStats =
+            new ConcurrentHashMap<>();
+
     /**
      * Starts tracking binder class and returns a {@link SafeCloseable} to end tracking
      */
@@ -66,12 +92,39 @@ public class BinderTracker {
         };
     }
 
-    private static final LinkedList<String> mMainThreadTraceStack = new LinkedList<>();
+    /**
+     * Sets the maximum binder time the main thread can spend during a single run of the provided
+     * section, including all its nested sections.
+     */
+    public static void setSectionBudget(String sectionName, long budgetMs) {
+        getSectionStats(sectionName).budgetNanos = TimeUnit.MILLISECONDS.toNanos(budgetMs);
+    }
+
+    private static SectionStats getSectionStats(String sectionName) {
+        SectionStats stats = sSectionStats.get(sectionName);
+        if (stats == null) {
+            SectionStats newStats = new SectionStats(sectionName);
+            stats = sSectionStats.putIfAbsent(sectionName, newStats);
+            if (stats == null) {
+                stats = newStats;
+            }
+        }
+        return stats;
+    }
+
+    // Indexed so that the active sections can be walked without allocating an iterator
+    private static final ArrayList<String> mMainThreadTraceStack = new ArrayList<>();
     private static final LinkedList<String> mMainThreadIgnoreIpcStack = new LinkedList<>();
 
     private static class TraceHelperExtension extends TraceHelper implements ProxyTransactListener {
 
         private final Consumer<BinderCallSite> mUnexpectedTransactionCallback;
+        // Interface descriptors are cached to avoid querying the binder on every call
+        private final WeakHashMap<IBinder, String> mDescriptorCache = new WeakHashMap<>();
+        // Blocking calls on the main thread do not overlap, so a single session is reused
+        private final Transaction mTransaction = new Transaction();
+        // Id of the last finished transaction, used to charge each section once per transaction
+        private long mTransactionId;
 
         TraceHelperExtension(Consumer<BinderCallSite> unexpectedTransactionCallback) {
             mUnexpectedTransactionCallback = unexpectedTransactionCallback;
@@ -80,7 +133,7 @@ public class BinderTracker {
         @Override
         public void beginSection(String sectionName) {
             if (isMainThread()) {
-                mMainThreadTraceStack.add(sectionName);
+                pushSection(sectionName);
             }
             super.beginSection(sectionName);
         }
@@ -91,12 +144,14 @@ public class BinderTracker {
                 return super.beginAsyncSection(sectionName);
             }
 
-            mMainThreadTraceStack.add(sectionName);
+            pushSection(sectionName);
             int cookie = Random.Default.nextInt();
             Trace.beginAsyncSection(sectionName, cookie);
             return () -> {
                 Trace.endAsyncSection(sectionName, cookie);
-                mMainThreadTraceStack.remove(sectionName);
+                if (mMainThreadTraceStack.remove(sectionName)) {
+                    onSectionEnded(sectionName);
+                }
             };
         }
 
@@ -104,7 +159,11 @@ public class BinderTracker {
         public void endSection() {
             super.endSection();
             if (isMainThread()) {
-                mMainThreadTraceStack.pollLast();
+                String sectionName = mMainThreadTraceStack.isEmpty() ? null
+                        : mMainThreadTraceStack.remove(mMainThreadTraceStack.size() - 1);
+                if (sectionName != null) {
+                    onSectionEnded(sectionName);
+                }
             }
         }
 
@@ -114,42 +173,79 @@ public class BinderTracker {
                 return super.allowIpcs(rpcName);
             }
 
-            mMainThreadTraceStack.add(rpcName);
+            pushSection(rpcName);
             mMainThreadIgnoreIpcStack.add(rpcName);
             int cookie = Random.Default.nextInt();
             Trace.beginAsyncSection(rpcName, cookie);
             return () -> {
                 Trace.endAsyncSection(rpcName, cookie);
-                mMainThreadTraceStack.remove(rpcName);
+                if (mMainThreadTraceStack.remove(rpcName)) {
+                    onSectionEnded(rpcName);
+                }
                 mMainThreadIgnoreIpcStack.remove(rpcName);
             };
         }
 
+        private void pushSection(String sectionName) {
+            mMainThreadTraceStack.add(sectionName);
+            SectionStats stats = getSectionStats(sectionName);
+            if (stats.activeDepth++ == 0) {
+                stats.runBinderNanos = 0;
+            }
+        }
+
+        private void onSectionEnded(String sectionName) {
+            SectionStats stats = getSectionStats(sectionName);
+            if (stats.activeDepth == 0 || --stats.activeDepth > 0) {
+                return;
+            }
+            stats.runCount++;
+            long budgetNanos = stats.budgetNanos;
+            if (budgetNanos > 0 && stats.runBinderNanos > budgetNanos) {
+                stats.overBudgetCount++;
+                Log.w(TAG, "MainThread-IPC budget exceeded for " + sectionName + ": "
+                        + TimeUnit.NANOSECONDS.toMicros(stats.runBinderNanos) + "us > "
+                        + TimeUnit.NANOSECONDS.toMicros(budgetNanos) + "us");
+            }
+        }
+
         @Override
         public Object onTransactStarted(IBinder binder, int transactionCode, int flags) {
             if (!isMainThread() || (flags & FLAG_ONEWAY) == FLAG_ONEWAY) {
                 return null;
             }
 
-            String ipcBypass = mMainThreadIgnoreIpcStack.peekLast();
-            String descriptor;
-            try {
-                descriptor = binder.getInterfaceDescriptor();
-                if (sAllowedFrameworkClasses.contains(descriptor)) {
-                    return null;
+            String descriptor = mDescriptorCache.get(binder);
+            if (descriptor == null) {
+                try {
+                    descriptor = binder.getInterfaceDescriptor();
+                } catch (RemoteException e) {
+                    Log.e(TAG, "Error getting IPC descriptor", e);
                 }
-            } catch (RemoteException e) {
-                Log.e(TAG, "Error getting IPC descriptor", e);
-                descriptor = binder.getClass().getSimpleName();
+                if (descriptor == null) {
+                    descriptor = binder.getClass().getSimpleName();
+                }
+                mDescriptorCache.put(binder, descriptor);
+            }
+            if (mTransaction.active) {
+                // Only the outer call is tracked if a callback made another call
+                return null;
+            }
+            String section = mMainThreadTraceStack.isEmpty() ? null
+                    : mMainThreadTraceStack.get(mMainThreadTraceStack.size() - 1);
+            mTransaction.start(section, descriptor, transactionCode);
+            if (sAllowedFrameworkClasses.contains(descriptor)) {
+                return mTransaction;
             }
 
+            String ipcBypass = mMainThreadIgnoreIpcStack.peekLast();
             if (ipcBypass == null) {
-                mUnexpectedTransactionCallback.accept(new BinderCallSite(
-                        mMainThreadTraceStack.peekLast(), descriptor, transactionCode));
+                mUnexpectedTransactionCallback.accept(
+                        new BinderCallSite(section, descriptor, transactionCode));
             } else {
                 Log.d(TAG, "MainThread-IPC " + descriptor + " ignored due to " + ipcBypass);
             }
-            return null;
+            return mTransaction;
         }
 
         @Override
@@ -160,7 +256,29 @@ public class BinderTracker {
 
         @Override
         public void onTransactEnded(Object session) {
-            // Do nothing
+            if (session != mTransaction || !mTransaction.active) {
+                return;
+            }
+            Transaction transaction = mTransaction;
+            transaction.active = false;
+            long durationNanos = SystemClock.elapsedRealtimeNanos() - transaction.startTimeNanos;
+            SectionStats stats = getSectionStats(
+                    transaction.section == null ? NO_SECTION : transaction.section);
+            stats.binderCount++;
+            stats.binderNanos += durationNanos;
+            stats.getCallSiteStats(transaction.descriptor, transaction.transactionCode)
+                    .add(durationNanos);
+
+            // Binder time is counted towards the budget of all the active sections, once per
+            // section even if the same section is nested.
+            long transactionId = ++mTransactionId;
+            for (int i = mMainThreadTraceStack.size() - 1; i >= 0; i--) {
+                SectionStats active = getSectionStats(mMainThreadTraceStack.get(i));
+                if (active.lastTransactionId != transactionId) {
+                    active.lastTransactionId = transactionId;
+                    active.runBinderNanos += durationNanos;
+                }
+            }
         }
     }
 
@@ -168,6 +286,156 @@ public class BinderTracker {
         return Thread.currentThread() == Looper.getMainLooper().getThread();
     }
 
+    /**
+     * Dumps the sections and call sites with the highest main thread binder time
+     */
+    public static void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + "BinderTracker: main thread binder calls");
+        // Values are copied before sorting as they can change on the main thread while dumping
+        ArrayList<DumpEntry<SectionStats>> sections = new ArrayList<>();
+        for (SectionStats section : sSectionStats.values()) {
+            sections.add(new DumpEntry<>(section, section.binderNanos));
+        }
+        sections.sort(Comparator.comparingLong((DumpEntry<SectionStats> e) -> e.nanos).reversed());
+        for (int i = 0; i < Math.min(sections.size(), MAX_DUMPED_SECTIONS); i++) {
+            SectionStats section = sections.get(i).stats;
+            long budgetNanos = section.budgetNanos;
+            if (section.binderCount == 0 && section.overBudgetCount == 0) {
+                break;
+            }
+            writer.println(prefix + "\t" + section.name
+                    + ": calls=" + section.binderCount
+                    + " time=" + TimeUnit.NANOSECONDS.toMillis(sections.get(i).nanos) + "ms"
+                    + " runs=" + section.runCount
+                    + (budgetNanos > 0
+                            ? " budget=" + TimeUnit.NANOSECONDS.toMillis(budgetNanos)
+                                    + "ms overBudget=" + section.overBudgetCount
+                            : ""));
+
+            ArrayList<DumpEntry<CallSiteStats>> callSites = new ArrayList<>();
+            for (CopyOnWriteArrayList<CallSiteStats> codes : section.callSites.values()) {
+                for (CallSiteStats callSite : codes) {
+                    callSites.add(new DumpEntry<>(callSite, callSite.nanos));
+                }
+            }
+            callSites.sort(
+                    Comparator.comparingLong((DumpEntry<CallSiteStats> e) -> e.nanos).reversed());
+            for (int j = 0; j < Math.min(callSites.size(), MAX_DUMPED_CALL_SITES); j++) {
+                CallSiteStats callSite = callSites.get(j).stats;
+                writer.println(prefix + "\t\t" + callSite.descriptor
+                        + "#" + callSite.transactionCode
+                        + ": calls=" + callSite.count
+                        + " time=" + TimeUnit.NANOSECONDS.toMicros(callSites.get(j).nanos) + "us"
+                        + " max=" + TimeUnit.NANOSECONDS.toMicros(callSite.maxNanos) + "us");
+            }
+        }
+    }
+
+    /**
+     * Stats captured with their binder time at the start of a dump
+     */
+    private static class DumpEntry<T> {
+
+        final T stats;
+        final long nanos;
+
+        DumpEntry(T stats, long nanos) {
+            this.stats = stats;
+            this.nanos = nanos;
+        }
+    }
+
+    /**
+     * A blocking binder call in progress on the main thread
+     */
+    private static class Transaction {
+
+        @Nullable
+        String section;
+        String descriptor;
+        int transactionCode;
+        long startTimeNanos;
+        boolean active;
+
+        void start(@Nullable String section, String descriptor, int transactionCode) {
+            this.section = section;
+            this.descriptor = descriptor;
+            this.transactionCode = transactionCode;
+            this.startTimeNanos = SystemClock.elapsedRealtimeNanos();
+            this.active = true;
+        }
+    }
+
+    /**
+     * Main thread binder stats for a single trace section
+     */
+    private static class SectionStats {
+
+        final String name;
+        // Call sites by descriptor, each descriptor only has a handful of transaction codes
+        final ConcurrentHashMap<String, CopyOnWriteArrayList<CallSiteStats>> callSites =
+                new ConcurrentHashMap<>();
+
+        // Only written on the main thread, volatile so that dumps see recent values
+        volatile int binderCount;
+        volatile long binderNanos;
+
+        volatile long budgetNanos;
+        volatile int runCount;
+        volatile int overBudgetCount;
+
+        // State of the current run, only accessed on the main thread
+        int activeDepth;
+        long runBinderNanos;
+        long lastTransactionId;
+
+        SectionStats(String name) {
+            this.name = name;
+        }
+
+        CallSiteStats getCallSiteStats(String descriptor, int transactionCode) {
+            CopyOnWriteArrayList<CallSiteStats> codes = callSites.get(descriptor);
+            if (codes == null) {
+                codes = new CopyOnWriteArrayList<>();
+                callSites.put(descriptor, codes);
+            }
+            for (int i = 0; i < codes.size(); i++) {
+                CallSiteStats stats = codes.get(i);
+                if (stats.transactionCode == transactionCode) {
+                    return stats;
+                }
+            }
+            CallSiteStats stats = new CallSiteStats(descriptor, transactionCode);
+            codes.add(stats);
+            return stats;
+        }
+    }
+
+    /**
+     * Main thread binder stats for a single descriptor and transaction code
+     */
+    private static class CallSiteStats {
+
+        final String descriptor;
+        final int transactionCode;
+
+        // Only written on the main thread
+        volatile int count;
+        volatile long nanos;
+        volatile long maxNanos;
+
+        CallSiteStats(String descriptor, int transactionCode) {
+            this.descriptor = descriptor;
+            this.transactionCode = transactionCode;
+        }
+
+        void add(long durationNanos) {
+            count++;
+            nanos += durationNanos;
+            maxNanos = Math.max(maxNanos, durationNanos);
+        }
+    }
+
     /**
      * Information about a binder call
      */
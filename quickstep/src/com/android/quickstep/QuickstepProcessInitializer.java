@@ -15,9 +15,16 @@
  */
 package com.android.quickstep;
 
+import static com.android.launcher3.LauncherConstants.TraceEvents.ON_NEW_INTENT_EVT;
+import static com.android.launcher3.LauncherConstants.TraceEvents.ON_RESUME_EVT;
+import static com.android.launcher3.LauncherConstants.TraceEvents.ON_START_EVT;
+import static com.android.quickstep.inputconsumers.OtherActivityInputConsumer.DOWN_EVT;
+import static com.android.quickstep.inputconsumers.OtherActivityInputConsumer.UP_EVT;
+
 import android.content.Context;
 import android.content.pm.PackageManager;
 import android.os.Looper;
+import android.os.SystemProperties;
 import android.os.Trace;
 import android.os.UserManager;
 import android.util.Log;
@@ -25,6 +32,8 @@ import android.view.ThreadedRenderer;
 
 import com.android.launcher3.BuildConfig;
 import com.android.launcher3.MainProcessInitializer;
+import com.android.launcher3.Utilities;
+import com.android.launcher3.util.LogConfig;
 import com.android.systemui.shared.system.InteractionJankMonitorWrapper;
 
 @SuppressWarnings("unused")
@@ -33,6 +42,13 @@ public class QuickstepProcessInitializer extends MainProcessInitializer {
     private static final String TAG = "QuickstepProcessInitializer";
     private static final int SETUP_DELAY_MILLIS = 5000;
 
+    // Maximum main thread binder time for a single touch event of the swipe up gesture
+    private static final long SWIPE_BINDER_BUDGET_MS = SystemProperties.getLong(
+            "persist.debug.launcher.swipe_binder_budget_ms", 2);
+    // Maximum main thread binder time for launcher lifecycle callbacks when opening home
+    private static final long LAUNCHER_BINDER_BUDGET_MS = SystemProperties.getLong(
+            "persist.debug.launcher.home_binder_budget_ms", 8);
+
     public QuickstepProcessInitializer(Context context) {
         // Fake call to create an instance of InteractionJankMonitor to avoid binder calls during
         // its initialization during transitions.
@@ -64,9 +80,19 @@ public class QuickstepProcessInitializer extends MainProcessInitializer {
         // This allows us to see Handler callbacks on traces.
         Looper.getMainLooper().setTraceTag(Trace.TRACE_TAG_APP);
 
-        if (BuildConfig.IS_STUDIO_BUILD) {
-            BinderTracker.startTracking(call ->  Log.e("BinderCall",
-                    call.descriptor + " called on mainthread under " + call.activeTrace));
+        if (BuildConfig.IS_STUDIO_BUILD || Utilities.isPropertyEnabled(LogConfig.BINDER_TRACKER)) {
+            // Unexpected calls are only reported during development
+            BinderTracker.startTracking(call -> {
+                if (BuildConfig.IS_STUDIO_BUILD) {
+                    Log.e("BinderCall",
+                            call.descriptor + " called on mainthread under " + call.activeTrace);
+                }
+            });
+            BinderTracker.setSectionBudget(DOWN_EVT, SWIPE_BINDER_BUDGET_MS);
+            BinderTracker.setSectionBudget(UP_EVT, SWIPE_BINDER_BUDGET_MS);
+            BinderTracker.setSectionBudget(ON_START_EVT, LAUNCHER_BINDER_BUDGET_MS);
+            BinderTracker.setSectionBudget(ON_RESUME_EVT, LAUNCHER_BINDER_BUDGET_MS);
+            BinderTracker.setSectionBudget(ON_NEW_INTENT_EVT, LAUNCHER_BINDER_BUDGET_MS);
         }
     }
 }
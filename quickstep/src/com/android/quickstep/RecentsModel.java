@@ -33,10 +33,13 @@ import android.os.Build;
 import android.os.Process;
 import android.os.UserHandle;
 
+import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
 
 import com.android.launcher3.icons.IconProvider;
 import com.android.launcher3.icons.IconProvider.IconChangeListener;
+import com.android.launcher3.logging.PerfTraceRecorder;
+import com.android.launcher3.tracing.ThumbnailCacheStatsProto;
 import com.android.launcher3.util.Executors.SimpleThreadFactory;
 import com.android.launcher3.util.MainThreadInitializedObject;
 import com.android.launcher3.util.SafeCloseable;
@@ -80,6 +83,9 @@ public class RecentsModel implements IconChangeListener, TaskStackChangeListener
 
     private final TaskStackChangeListeners mTaskStackChangeListeners;
 
+    @Nullable
+    private SafeCloseable mPerfSnapshotProvider;
+
     private RecentsModel(Context context) {
         this(context, new IconProvider(context));
     }
@@ -93,6 +99,13 @@ public class RecentsModel implements IconChangeListener, TaskStackChangeListener
                 new TaskThumbnailCache(context, RECENTS_MODEL_EXECUTOR),
                 iconProvider,
                 TaskStackChangeListeners.getInstance());
+        mPerfSnapshotProvider = PerfTraceRecorder.INSTANCE.get(context)
+                .addSnapshotProvider(snapshot -> snapshot.setThumbnailCache(
+                        ThumbnailCacheStatsProto.newBuilder()
+                                .setSize(mThumbnailCache.getCacheOccupancy())
+                                .setMaxSize(mThumbnailCache.getCacheSize())
+                                .setHitCount(mThumbnailCache.getHitCount())
+                                .setMissCount(mThumbnailCache.getMissCount())));
     }
 
     @VisibleForTesting
@@ -364,6 +377,10 @@ public class RecentsModel implements IconChangeListener, TaskStackChangeListener
         }
         mIconCache.removeTaskVisualsChangeListener();
         mTaskStackChangeListeners.unregisterTaskStackListener(this);
+        if (mPerfSnapshotProvider != null) {
+            mPerfSnapshotProvider.close();
+            mPerfSnapshotProvider = null;
+        }
     }
 
     /**
@@ -46,6 +46,10 @@ public class TaskThumbnailCache {
     private final boolean mEnableTaskSnapshotPreloading;
     private final Context mContext;
 
+    // Only updated on the UI thread, read from the background for diagnostics
+    private volatile long mHitCount = 0;
+    private volatile long mMissCount = 0;
+
     public static class HighResLoadingState {
         private boolean mForceHighResThumbnails;
         private boolean mVisible;
@@ -192,9 +196,11 @@ public class TaskThumbnailCache {
         if (cachedThumbnail != null &&  cachedThumbnail.thumbnail != null
                 && (!cachedThumbnail.reducedResolution || lowResolution)) {
             // Already cached, lets use that thumbnail
+            mHitCount++;
             callback.accept(cachedThumbnail);
             return null;
         }
+        mMissCount++;
 
         CancellableTask<ThumbnailData> request = new CancellableTask<>(
                 () -> {
@@ -244,6 +250,27 @@ public class TaskThumbnailCache {
         return mCache.getMaxSize();
     }
 
+    /**
+     * @return The number of thumbnails currently in the cache.
+     */
+    public int getCacheOccupancy() {
+        return mCache.getSize();
+    }
+
+    /**
+     * @return The number of thumbnail requests served from the cache since process start.
+     */
+    public long getHitCount() {
+        return mHitCount;
+    }
+
+    /**
+     * @return The number of thumbnail requests which needed a load since process start.
+     */
+    public long getMissCount() {
+        return mMissCount;
+    }
+
     /**
      * @return The mutable high-res loading state.
      */
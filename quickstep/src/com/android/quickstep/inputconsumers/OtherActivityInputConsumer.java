@@ -75,7 +75,7 @@ import java.util.function.Consumer;
 public class OtherActivityInputConsumer extends ContextWrapper implements InputConsumer {
 
     public static final String DOWN_EVT = "OtherActivityInputConsumer.DOWN";
-    private static final String UP_EVT = "OtherActivityInputConsumer.UP";
+    public static final String UP_EVT = "OtherActivityInputConsumer.UP";
 
     // Minimum angle of a gesture's coordinate where a release goes to overview.
     public static final int OVERVIEW_MIN_DEGREES = 15;
@@ -15,8 +15,11 @@
  */
 package com.android.quickstep.util;
 
+import android.view.MotionEvent;
+
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 
 import com.android.launcher3.util.Preconditions;
 
@@ -30,10 +33,42 @@ import java.util.Objects;
 
 /**
  * A log to keep track of the active gesture.
+ *
+ * Events are recorded into a preallocated ring of primitive slots so that logging on the touch
+ * path does not allocate. Messages are only rendered when the log is dumped.
  */
 public class ActiveGestureLog {
 
     private static final int MAX_GESTURES_TRACKED = 15;
+    /** Total number of events retained across all the tracked gestures */
+    @VisibleForTesting
+    static final int MAX_EVENTS_TRACKED = 2048;
+
+    private static final int ARG_TYPE_NONE = 0;
+    private static final int ARG_TYPE_INT = 1;
+    private static final int ARG_TYPE_BOOLEAN = 2;
+    private static final int ARG_TYPE_COMPOUND = 3;
+    private static final int ARG_TYPE_NO_OP = 4;
+    private static final int ARG_TYPE_EVENT_ID = 5;
+
+    /**
+     * Motion event logged with its raw position, action and classification. Logged through
+     * {@link #addLog(int, int, int, float, float, ActiveGestureErrorDetector.GestureEvent)}.
+     */
+    public static final int EVENT_MOTION_POSITION = 1;
+    /**
+     * Motion event logged with its action, classification and pointer count. Logged through
+     * {@link #addLog(int, int, int, int, ActiveGestureErrorDetector.GestureEvent)}.
+     */
+    public static final int EVENT_MOTION_POINTERS = 2;
+    /**
+     * Motion event logged with its action and classification. Logged through
+     * {@link #addLog(int, int, int, int, ActiveGestureErrorDetector.GestureEvent)}.
+     */
+    public static final int EVENT_MOTION = 3;
+
+    private static final int INT_PAYLOAD_SIZE = 3;
+    private static final int FLOAT_PAYLOAD_SIZE = 2;
 
     public static final ActiveGestureLog INSTANCE = new ActiveGestureLog();
 
@@ -45,14 +80,27 @@ public class ActiveGestureLog {
      */
     public static final String INTENT_EXTRA_LOG_TRACE_ID = "INTENT_EXTRA_LOG_TRACE_ID";
 
-    private final EventLog[] logs;
-    private int nextIndex;
+    // Ring of recorded events, each event uses the same index in all the arrays
+    private final long[] mTimes = new long[MAX_EVENTS_TRACKED];
+    private final int[] mLogIds = new int[MAX_EVENTS_TRACKED];
+    private final boolean[] mFullyGestural = new boolean[MAX_EVENTS_TRACKED];
+    private final int[] mArgTypes = new int[MAX_EVENTS_TRACKED];
+    private final int[] mIntArgs = new int[MAX_EVENTS_TRACKED];
+    // Payloads of the events logged by id, INT_PAYLOAD_SIZE and FLOAT_PAYLOAD_SIZE per event
+    private final int[] mIntPayloads = new int[MAX_EVENTS_TRACKED * INT_PAYLOAD_SIZE];
+    private final float[] mFloatPayloads = new float[MAX_EVENTS_TRACKED * FLOAT_PAYLOAD_SIZE];
+    private final String[] mEvents = new String[MAX_EVENTS_TRACKED];
+    private final CompoundString[] mCompoundStrings = new CompoundString[MAX_EVENTS_TRACKED];
+    private final ActiveGestureErrorDetector.GestureEvent[] mGestureEvents =
+            new ActiveGestureErrorDetector.GestureEvent[MAX_EVENTS_TRACKED];
+    private final int[] mDuplicateCounts = new int[MAX_EVENTS_TRACKED];
+
+    private int mNextIndex = 0;
+    private int mEventCount = 0;
     private int mCurrentLogId = 100;
 
-    private ActiveGestureLog() {
-        this.logs = new EventLog[MAX_GESTURES_TRACKED];
-        this.nextIndex = 0;
-    }
+    @VisibleForTesting
+    ActiveGestureLog() { }
 
     /**
      * Track the given event for error detection.
@@ -61,7 +109,27 @@ public class ActiveGestureLog {
      *                   execution.
      */
     public void trackEvent(@Nullable ActiveGestureErrorDetector.GestureEvent gestureEvent) {
-        addLog(CompoundString.NO_OP, gestureEvent);
+        record(ARG_TYPE_NO_OP, null, 0, null, gestureEvent);
+    }
+
+    /**
+     * Adds a log for the provided event id with an int payload. The payload is written to the
+     * ring as is and the message is only built at log-dump-time, so this doesn't allocate.
+     *
+     * @param eventId one of the EVENT_* ids, which defines how the payload is rendered
+     */
+    public void addLog(int eventId, int arg0, int arg1, int arg2,
+            @Nullable ActiveGestureErrorDetector.GestureEvent gestureEvent) {
+        recordEvent(eventId, arg0, arg1, arg2, 0, 0, gestureEvent);
+    }
+
+    /**
+     * Same as {@link #addLog(int, int, int, int, ActiveGestureErrorDetector.GestureEvent)}, with
+     * two int and two float payloads.
+     */
+    public void addLog(int eventId, int arg0, int arg1, float arg2, float arg3,
+            @Nullable ActiveGestureErrorDetector.GestureEvent gestureEvent) {
+        recordEvent(eventId, arg0, arg1, 0, arg2, arg3, gestureEvent);
     }
 
     /**
@@ -86,21 +154,21 @@ public class ActiveGestureLog {
      */
     public void addLog(
             @NonNull String event, @Nullable ActiveGestureErrorDetector.GestureEvent gestureEvent) {
-        addLog(new CompoundString(event), gestureEvent);
+        record(ARG_TYPE_NONE, event, 0, null, gestureEvent);
     }
 
     public void addLog(
             @NonNull String event,
             int extras,
             @Nullable ActiveGestureErrorDetector.GestureEvent gestureEvent) {
-        addLog(new CompoundString(event).append(": ").append(extras), gestureEvent);
+        record(ARG_TYPE_INT, event, extras, null, gestureEvent);
     }
 
     public void addLog(
             @NonNull String event,
             boolean extras,
             @Nullable ActiveGestureErrorDetector.GestureEvent gestureEvent) {
-        addLog(new CompoundString(event).append(": ").append(extras), gestureEvent);
+        record(ARG_TYPE_BOOLEAN, event, extras ? 1 : 0, null, gestureEvent);
     }
 
     public void addLog(@NonNull CompoundString compoundString) {
@@ -110,63 +178,179 @@ public class ActiveGestureLog {
     public void addLog(
             @NonNull CompoundString compoundString,
             @Nullable ActiveGestureErrorDetector.GestureEvent gestureEvent) {
-        EventLog lastEventLog = logs[(nextIndex + logs.length - 1) % logs.length];
-        if (lastEventLog == null || mCurrentLogId != lastEventLog.logId) {
-            EventLog eventLog = new EventLog(mCurrentLogId, mIsFullyGesturalNavMode);
-            EventEntry eventEntry = new EventEntry();
-
-            eventEntry.update(compoundString, gestureEvent);
-            eventLog.eventEntries.add(eventEntry);
-            logs[nextIndex] = eventLog;
-            nextIndex = (nextIndex + 1) % logs.length;
-            return;
+        if (compoundString.mIsNoOp) {
+            record(ARG_TYPE_NO_OP, null, 0, null, gestureEvent);
+        } else {
+            record(ARG_TYPE_COMPOUND, null, 0, compoundString, gestureEvent);
+        }
+    }
+
+    private void recordEvent(int eventId, int arg0, int arg1, int arg2, float arg3, float arg4,
+            @Nullable ActiveGestureErrorDetector.GestureEvent gestureEvent) {
+        if (mEventCount > 0) {
+            int last = (mNextIndex + MAX_EVENTS_TRACKED - 1) % MAX_EVENTS_TRACKED;
+            int ints = last * INT_PAYLOAD_SIZE;
+            int floats = last * FLOAT_PAYLOAD_SIZE;
+            // Update the last entry if it's a duplicate
+            if (mLogIds[last] == mCurrentLogId
+                    && mArgTypes[last] == ARG_TYPE_EVENT_ID
+                    && mIntArgs[last] == eventId
+                    && mGestureEvents[last] == gestureEvent
+                    && mIntPayloads[ints] == arg0
+                    && mIntPayloads[ints + 1] == arg1
+                    && mIntPayloads[ints + 2] == arg2
+                    && mFloatPayloads[floats] == arg3
+                    && mFloatPayloads[floats + 1] == arg4) {
+                mDuplicateCounts[last]++;
+                return;
+            }
+        }
+        int index = mNextIndex;
+        int ints = index * INT_PAYLOAD_SIZE;
+        int floats = index * FLOAT_PAYLOAD_SIZE;
+        mIntPayloads[ints] = arg0;
+        mIntPayloads[ints + 1] = arg1;
+        mIntPayloads[ints + 2] = arg2;
+        mFloatPayloads[floats] = arg3;
+        mFloatPayloads[floats + 1] = arg4;
+        write(ARG_TYPE_EVENT_ID, null, eventId, null, gestureEvent);
+    }
+
+    private void record(int argType, @Nullable String event, int intArg,
+            @Nullable CompoundString compoundString,
+            @Nullable ActiveGestureErrorDetector.GestureEvent gestureEvent) {
+        if (mEventCount > 0) {
+            int last = (mNextIndex + MAX_EVENTS_TRACKED - 1) % MAX_EVENTS_TRACKED;
+            // Update the last entry if it's a duplicate
+            if (mLogIds[last] == mCurrentLogId
+                    && mArgTypes[last] == argType
+                    && mIntArgs[last] == intArg
+                    && mGestureEvents[last] == gestureEvent
+                    && Objects.equals(mEvents[last], event)
+                    && Objects.equals(mCompoundStrings[last], compoundString)) {
+                mDuplicateCounts[last]++;
+                return;
+            }
         }
+        write(argType, event, intArg, compoundString, gestureEvent);
+    }
 
-        // Update the last EventLog
-        List<EventEntry> lastEventEntries = lastEventLog.eventEntries;
-        EventEntry lastEntry = !lastEventEntries.isEmpty()
-                ? lastEventEntries.get(lastEventEntries.size() - 1) : null;
+    private void write(int argType, @Nullable String event, int intArg,
+            @Nullable CompoundString compoundString,
+            @Nullable ActiveGestureErrorDetector.GestureEvent gestureEvent) {
+        int index = mNextIndex;
+        mTimes[index] = System.currentTimeMillis();
+        mLogIds[index] = mCurrentLogId;
+        mFullyGestural[index] = mIsFullyGesturalNavMode;
+        mArgTypes[index] = argType;
+        mIntArgs[index] = intArg;
+        mEvents[index] = event;
+        mCompoundStrings[index] = compoundString;
+        mGestureEvents[index] = gestureEvent;
+        mDuplicateCounts[index] = 0;
+
+        mNextIndex = (mNextIndex + 1) % MAX_EVENTS_TRACKED;
+        mEventCount = Math.min(mEventCount + 1, MAX_EVENTS_TRACKED);
+    }
 
-        // Update the last EventEntry if it's a duplicate
-        if (isEntrySame(lastEntry, compoundString, gestureEvent)) {
-            lastEntry.duplicateCount++;
-            return;
+    /**
+     * Returns the message for the event at the provided index, or null if the event is only
+     * tracked for error detection.
+     */
+    @Nullable
+    private String renderMessage(int index) {
+        switch (mArgTypes[index]) {
+            case ARG_TYPE_NONE:
+                return mEvents[index];
+            case ARG_TYPE_INT:
+                return mEvents[index] + ": " + mIntArgs[index];
+            case ARG_TYPE_BOOLEAN:
+                return mEvents[index] + ": " + (mIntArgs[index] != 0);
+            case ARG_TYPE_COMPOUND:
+                return mCompoundStrings[index].toString();
+            case ARG_TYPE_EVENT_ID:
+                return renderEvent(index);
+            default:
+                return null;
         }
-        EventEntry eventEntry = new EventEntry();
+    }
 
-        eventEntry.update(compoundString, gestureEvent);
-        lastEventEntries.add(eventEntry);
+    private String renderEvent(int index) {
+        int ints = index * INT_PAYLOAD_SIZE;
+        int floats = index * FLOAT_PAYLOAD_SIZE;
+        switch (mIntArgs[index]) {
+            case EVENT_MOTION_POSITION:
+                return "onMotionEvent(" + (int) mFloatPayloads[floats]
+                        + ", " + (int) mFloatPayloads[floats + 1] + "): "
+                        + MotionEvent.actionToString(mIntPayloads[ints])
+                        + ", " + MotionEvent.classificationToString(mIntPayloads[ints + 1]);
+            case EVENT_MOTION_POINTERS:
+                return "onMotionEvent: " + MotionEvent.actionToString(mIntPayloads[ints])
+                        + "," + MotionEvent.classificationToString(mIntPayloads[ints + 1])
+                        + ", pointerCount: " + mIntPayloads[ints + 2];
+            case EVENT_MOTION:
+                return "onMotionEvent: " + MotionEvent.actionToString(mIntPayloads[ints])
+                        + "," + MotionEvent.classificationToString(mIntPayloads[ints + 1]);
+            default:
+                return "Unknown event id: " + mIntArgs[index];
+        }
+    }
+
+    /**
+     * Groups the recorded events by log ID, keeping the most recent
+     * {@link #MAX_GESTURES_TRACKED} gestures in chronological order.
+     */
+    @VisibleForTesting
+    List<EventLog> buildEventLogs() {
+        ArrayList<EventLog> eventLogs = new ArrayList<>();
+        int firstIndex = (mNextIndex + MAX_EVENTS_TRACKED - mEventCount) % MAX_EVENTS_TRACKED;
+        int start = 0;
+        if (mEventCount == MAX_EVENTS_TRACKED) {
+            // The ring wrapped, so the oldest gesture lost its first events. Skip it, otherwise
+            // the error detector reports the missing events as errors.
+            int firstLogId = mLogIds[firstIndex];
+            while (start < mEventCount
+                    && mLogIds[(firstIndex + start) % MAX_EVENTS_TRACKED] == firstLogId) {
+                start++;
+            }
+        }
+        EventLog eventLog = null;
+        for (int i = start; i < mEventCount; i++) {
+            int index = (firstIndex + i) % MAX_EVENTS_TRACKED;
+            if (eventLog == null || eventLog.logId != mLogIds[index]) {
+                eventLog = new EventLog(mLogIds[index], mFullyGestural[index]);
+                eventLogs.add(eventLog);
+            }
+            eventLog.eventEntries.add(new EventEntry(renderMessage(index), mGestureEvents[index],
+                    mTimes[index], mDuplicateCounts[index]));
+        }
+        int extraCount = eventLogs.size() - MAX_GESTURES_TRACKED;
+        return extraCount > 0
+                ? eventLogs.subList(extraCount, eventLogs.size())
+                : eventLogs;
     }
 
     public void dump(String prefix, PrintWriter writer) {
+        List<EventLog> eventLogs = buildEventLogs();
         writer.println(prefix + "ActiveGestureErrorDetector:");
-        for (int i = 0; i < logs.length; i++) {
-            EventLog eventLog = logs[(nextIndex + i) % logs.length];
-            if (eventLog == null) {
-                continue;
-            }
+        for (EventLog eventLog : eventLogs) {
             ActiveGestureErrorDetector.analyseAndDump(prefix + '\t', writer, eventLog);
         }
 
         writer.println(prefix + "ActiveGestureLog history:");
         SimpleDateFormat sdf = new SimpleDateFormat("HH:mm:ss.SSSZ  ", Locale.US);
         Date date = new Date();
-        for (int i = 0; i < logs.length; i++) {
-            EventLog eventLog = logs[(nextIndex + i) % logs.length];
-            if (eventLog == null) {
-                continue;
-            }
-
+        for (EventLog eventLog : eventLogs) {
             writer.println(prefix + "\tLogs for logId: " + eventLog.logId);
             for (EventEntry eventEntry : eventLog.eventEntries) {
-                if (eventEntry.mCompoundString.mIsNoOp) {
+                if (eventEntry.mMessage == null) {
                     continue;
                 }
                 date.setTime(eventEntry.time);
 
                 StringBuilder msg = new StringBuilder(prefix + "\t\t")
                         .append(sdf.format(date))
-                        .append(eventEntry.mCompoundString);
+                        .append(eventEntry.mMessage);
                 if (eventEntry.duplicateCount > 0) {
                     msg.append(" & ").append(eventEntry.duplicateCount).append(" similar events");
                 }
@@ -192,39 +376,29 @@ public class ActiveGestureLog {
         return mCurrentLogId;
     }
 
-    private boolean isEntrySame(
-            EventEntry entry,
-            CompoundString compoundString,
-            ActiveGestureErrorDetector.GestureEvent gestureEvent) {
-        return entry != null
-                && entry.mCompoundString.equals(compoundString)
-                && entry.gestureEvent == gestureEvent;
-    }
-
-    /** A single event entry. */
+    /** A single event entry, rendered from the recorded event at dump time. */
     protected static class EventEntry {
 
-        @NonNull private CompoundString mCompoundString;
-        private ActiveGestureErrorDetector.GestureEvent gestureEvent;
-        private long time;
-        private int duplicateCount;
+        @Nullable private final String mMessage;
+        private final ActiveGestureErrorDetector.GestureEvent gestureEvent;
+        private final long time;
+        private final int duplicateCount;
 
-        private EventEntry() {}
+        private EventEntry(@Nullable String message,
+                ActiveGestureErrorDetector.GestureEvent gestureEvent,
+                long time,
+                int duplicateCount) {
+            mMessage = message;
+            this.gestureEvent = gestureEvent;
+            this.time = time;
+            this.duplicateCount = duplicateCount;
+        }
 
         @Nullable
         protected ActiveGestureErrorDetector.GestureEvent getGestureEvent() {
             return gestureEvent;
         }
 
-        private void update(
-                @NonNull CompoundString compoundString,
-                ActiveGestureErrorDetector.GestureEvent gestureEvent) {
-            this.mCompoundString = compoundString;
-            this.gestureEvent = gestureEvent;
-            time = System.currentTimeMillis();
-            duplicateCount = 0;
-        }
-
         public long getTime() {
             return time;
         }
@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.quickstep.util;
+
+import static android.view.MotionEvent.ACTION_DOWN;
+import static android.view.MotionEvent.ACTION_MOVE;
+import static android.view.MotionEvent.CLASSIFICATION_NONE;
+
+import static com.android.quickstep.util.ActiveGestureErrorDetector.GestureEvent.MOTION_DOWN;
+import static com.android.quickstep.util.ActiveGestureErrorDetector.GestureEvent.MOTION_MOVE;
+import static com.android.quickstep.util.ActiveGestureLog.EVENT_MOTION_POINTERS;
+import static com.android.quickstep.util.ActiveGestureLog.EVENT_MOTION_POSITION;
+import static com.android.quickstep.util.ActiveGestureLog.MAX_EVENTS_TRACKED;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import androidx.test.filters.SmallTest;
+
+import com.android.quickstep.util.ActiveGestureLog.EventLog;
+
+import org.junit.Test;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@SmallTest
+public class ActiveGestureLogTest {
+
+    private final ActiveGestureLog mLog = new ActiveGestureLog();
+
+    @Test
+    public void ringNotFull_allGesturesKept() {
+        int firstLogId = mLog.getLogId();
+        addEvents(10);
+        mLog.incrementLogId();
+        addEvents(20);
+
+        List<EventLog> eventLogs = mLog.buildEventLogs();
+        assertThat(getLogIds(eventLogs)).containsExactly(firstLogId, firstLogId + 1).inOrder();
+        assertThat(eventLogs.get(0).eventEntries).hasSize(10);
+        assertThat(eventLogs.get(1).eventEntries).hasSize(20);
+    }
+
+    @Test
+    public void ringWrapped_partialOldestGestureDropped() {
+        int firstLogId = mLog.getLogId();
+        addEvents(MAX_EVENTS_TRACKED / 2);
+        mLog.incrementLogId();
+        addEvents(MAX_EVENTS_TRACKED / 2);
+        mLog.incrementLogId();
+        // Overwrites the first events of the oldest gesture
+        addEvents(10);
+
+        List<EventLog> eventLogs = mLog.buildEventLogs();
+        assertThat(getLogIds(eventLogs))
+                .containsExactly(firstLogId + 1, firstLogId + 2).inOrder();
+        assertThat(eventLogs.get(0).eventEntries).hasSize(MAX_EVENTS_TRACKED / 2);
+        assertThat(eventLogs.get(1).eventEntries).hasSize(10);
+    }
+
+    @Test
+    public void eventIdLogs_renderedAtDumpTimeAndMerged() {
+        mLog.addLog(EVENT_MOTION_POSITION, ACTION_DOWN, CLASSIFICATION_NONE, 10.6f, 20f,
+                MOTION_DOWN);
+        for (int i = 0; i < 3; i++) {
+            mLog.addLog(EVENT_MOTION_POINTERS, ACTION_MOVE, CLASSIFICATION_NONE, 1, MOTION_MOVE);
+        }
+
+        StringWriter out = new StringWriter();
+        mLog.dump("", new PrintWriter(out));
+        assertThat(out.toString()).contains("onMotionEvent(10, 20): ACTION_DOWN, NONE");
+        assertThat(out.toString())
+                .contains("onMotionEvent: ACTION_MOVE,NONE, pointerCount: 1 & 2 similar events");
+    }
+
+    private void addEvents(int count) {
+        for (int i = 0; i < count; i++) {
+            // Distinct arguments, so that the events aren't merged as duplicates
+            mLog.addLog("event", i);
+        }
+    }
+
+    private static List<Integer> getLogIds(List<EventLog> eventLogs) {
+        return eventLogs.stream().map(eventLog -> eventLog.logId).collect(Collectors.toList());
+    }
+}
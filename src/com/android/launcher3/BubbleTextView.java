@@ -44,6 +44,7 @@ import android.graphics.Rect;
 import android.graphics.drawable.ColorDrawable;
 import android.graphics.drawable.Drawable;
 import android.icu.text.MessageFormat;
+import android.text.PrecomputedText;
 import android.text.StaticLayout;
 import android.text.TextPaint;
 import android.text.TextUtils;
@@ -81,6 +82,7 @@ import com.android.launcher3.popup.PopupContainerWithArrow;
 import com.android.launcher3.search.StringMatcherUtility;
 import com.android.launcher3.util.CancellableTask;
 import com.android.launcher3.util.IntArray;
+import com.android.launcher3.util.LabelLayoutCache;
 import com.android.launcher3.util.MultiTranslateDelegate;
 import com.android.launcher3.util.SafeCloseable;
 import com.android.launcher3.util.ShortcutUtil;
@@ -110,7 +112,6 @@ public class BubbleTextView extends TextView implements ItemInfoUpdateReceiver,
     public static final int DISPLAY_SEARCH_RESULT_APP_ROW = 9;
 
     private static final float MIN_LETTER_SPACING = -0.05f;
-    private static final int MAX_SEARCH_LOOP_COUNT = 20;
     private static final Character NEW_LINE = '\n';
     private static final String EMPTY = "";
     private static final StringMatcherUtility.StringMatcher MATCHER =
@@ -158,6 +159,9 @@ public class BubbleTextView extends TextView implements ItemInfoUpdateReceiver,
     private boolean mCenterVertically;
 
     protected int mDisplay;
+    // Text metrics of the labels precomputed in LabelLayoutCache, or null
+    @Nullable
+    private PrecomputedText.Params mPrecomputedLabelParams;
 
     private final CheckLongPressHelper mLongPressHelper;
 
@@ -462,7 +466,18 @@ public class BubbleTextView extends TextView implements ItemInfoUpdateReceiver,
                 mLastOriginalText = label;
                 mLastModifiedText = mLastOriginalText;
                 mBreakPointsIntArray = StringMatcherUtility.getListOfBreakpoints(label, MATCHER);
-                setText(label);
+                PrecomputedText precomputedLabel = mPrecomputedLabelParams != null
+                        ? LabelLayoutCache.INSTANCE.getPrecomputedText(
+                                label, mPrecomputedLabelParams)
+                        : null;
+                if (precomputedLabel != null) {
+                    // The precomputed text can only be set with the same text metrics, the
+                    // spacing is updated again for the new label after the text is set.
+                    setLetterSpacing(0);
+                    setText(precomputedLabel);
+                } else {
+                    setText(label);
+                }
             }
         }
         if (info.contentDescription != null) {
@@ -472,6 +487,30 @@ public class BubbleTextView extends TextView implements ItemInfoUpdateReceiver,
         }
     }
 
+    /**
+     * Sets the text metrics that the labels bound to this view were precomputed with, so that
+     * they are not computed again on every bind. They must match {@link
+     * #getLabelTextMetricsParams()}, or be null to layout the labels when they are set.
+     */
+    public void setPrecomputedLabelParams(@Nullable PrecomputedText.Params params) {
+        mPrecomputedLabelParams = params;
+    }
+
+    /**
+     * Returns the text metrics used to layout the label, ignoring the letter spacing applied to
+     * fit the current label in the available width. This allocates, and shouldn't be called on
+     * every bind.
+     */
+    public PrecomputedText.Params getLabelTextMetricsParams() {
+        TextPaint paint = new TextPaint(getPaint());
+        paint.setLetterSpacing(0);
+        return new PrecomputedText.Params.Builder(paint)
+                .setBreakStrategy(getBreakStrategy())
+                .setHyphenationFrequency(getHyphenationFrequency())
+                .setTextDirection(getTextDirectionHeuristic())
+                .build();
+    }
+
     /** This is used for testing to forcefully set the display. */
     @VisibleForTesting
     public void setDisplay(int display) {
@@ -584,53 +623,9 @@ public class BubbleTextView extends TextView implements ItemInfoUpdateReceiver,
         if (width <= 0) {
             return;
         }
-        setLetterSpacing(0);
-
-        String text = getText().toString();
-        TextPaint paint = getPaint();
-        if (paint.measureText(text) < width) {
-            return;
-        }
-
-        float spacing = findBestSpacingValue(paint, text, width, MIN_LETTER_SPACING);
-        // Reset the paint value so that the call to TextView does appropriate diff.
-        paint.setLetterSpacing(0);
-        setLetterSpacing(spacing);
-    }
-
-    /**
-     * Find the appropriate text spacing to display the provided text
-     *
-     * @param paint          the paint used by the text view
-     * @param text           the text to display
-     * @param allowedWidthPx available space to render the text
-     * @param minSpacingEm   minimum spacing allowed between characters
-     * @return the final textSpacing value
-     * @see #setLetterSpacing(float)
-     */
-    private float findBestSpacingValue(TextPaint paint, String text, float allowedWidthPx,
-            float minSpacingEm) {
-        paint.setLetterSpacing(minSpacingEm);
-        if (paint.measureText(text) > allowedWidthPx) {
-            // If there is no result at high limit, we can do anything more
-            return minSpacingEm;
-        }
-
-        float lowLimit = 0;
-        float highLimit = minSpacingEm;
-
-        for (int i = 0; i < MAX_SEARCH_LOOP_COUNT; i++) {
-            float value = (lowLimit + highLimit) / 2;
-            paint.setLetterSpacing(value);
-            if (paint.measureText(text) < allowedWidthPx) {
-                highLimit = value;
-            } else {
-                lowLimit = value;
-            }
-        }
-
-        // At the end error on the higher side
-        return highLimit;
+        // The paint spacing is left unchanged so that the call to TextView does appropriate diff.
+        setLetterSpacing(LabelLayoutCache.INSTANCE.getLetterSpacing(
+                getPaint(), getText(), width, MIN_LETTER_SPACING));
     }
 
     @SuppressWarnings("wrongcall")
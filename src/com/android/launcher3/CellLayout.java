@@ -210,6 +210,10 @@ public class CellLayout extends ViewGroup {
 
     private static final Paint sPaint = new Paint();
 
+    // Draws of the content allowed while it has a hardware layer, including the first one
+    private static final int MAX_HARDWARE_LAYER_DRAWS = 3;
+    private boolean mHasUpdatingContent;
+
     // Related to accessible drag and drop
     DragAndDropAccessibilityDelegate mTouchHelper;
 
@@ -367,7 +371,20 @@ public class CellLayout extends ViewGroup {
                 || (mInterceptTouchListener != null && mInterceptTouchListener.onTouch(this, ev));
     }
 
+    /**
+     * Enables the hardware layer used while scrolling or scaling the page, unless the content kept
+     * changing since it was enabled, like widgets which are updating. Rendering the whole layer
+     * again on each change costs more than drawing the views directly, so the layer is skipped
+     * until the caller disables it.
+     */
     public void enableHardwareLayer(boolean hasLayer) {
+        if (!hasLayer) {
+            mHasUpdatingContent = false;
+        } else if (mHasUpdatingContent || (isHardwareLayerEnabled()
+                && mShortcutsAndWidgets.getLayerDrawCount() > MAX_HARDWARE_LAYER_DRAWS)) {
+            mHasUpdatingContent = true;
+            hasLayer = false;
+        }
         mShortcutsAndWidgets.setLayerType(hasLayer ? LAYER_TYPE_HARDWARE : LAYER_TYPE_NONE, sPaint);
     }
 
@@ -375,6 +392,29 @@ public class CellLayout extends ViewGroup {
         return mShortcutsAndWidgets.getLayerType() == LAYER_TYPE_HARDWARE;
     }
 
+    /**
+     * Returns whether the hardware layer was skipped as the content kept changing
+     */
+    public boolean hasUpdatingContent() {
+        return mHasUpdatingContent;
+    }
+
+    /**
+     * Returns whether the hardware layer is enabled but has not been rendered yet
+     */
+    public boolean isHardwareLayerPending() {
+        return isHardwareLayerEnabled() && mShortcutsAndWidgets.getLayerDrawCount() == 0;
+    }
+
+    /**
+     * Returns the approximate memory used by the hardware layer of the page, if it was rendered
+     */
+    public long getHardwareLayerBytes() {
+        return isHardwareLayerEnabled() && !isHardwareLayerPending()
+                ? (long) mShortcutsAndWidgets.getWidth() * mShortcutsAndWidgets.getHeight() * 4
+                : 0;
+    }
+
     /**
      * Change sizes of cells
      *
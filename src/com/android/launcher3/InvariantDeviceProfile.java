@@ -29,16 +29,19 @@ import android.annotation.TargetApi;
 import android.content.Context;
 import android.content.SharedPreferences;
 import android.content.SharedPreferences.OnSharedPreferenceChangeListener;
+import android.content.res.Configuration;
 import android.content.res.Resources;
 import android.content.res.TypedArray;
 import android.content.res.XmlResourceParser;
 import android.graphics.Point;
 import android.graphics.PointF;
 import android.graphics.Rect;
+import android.os.Trace;
 import android.text.TextUtils;
 import android.util.AttributeSet;
 import android.util.DisplayMetrics;
 import android.util.Log;
+import android.util.LruCache;
 import android.util.SparseArray;
 import android.util.Xml;
 import android.view.Display;
@@ -58,8 +61,10 @@ import com.android.launcher3.provider.RestoreDbTask;
 import com.android.launcher3.testing.shared.ResourceUtils;
 import com.android.launcher3.util.DisplayController;
 import com.android.launcher3.util.DisplayController.Info;
+import com.android.launcher3.util.LabelLayoutCache;
 import com.android.launcher3.util.LockedUserState;
 import com.android.launcher3.util.MainThreadInitializedObject;
+import com.android.launcher3.util.NavigationMode;
 import com.android.launcher3.util.Partner;
 import com.android.launcher3.util.WindowBounds;
 import com.android.launcher3.util.window.WindowManagerProxy;
@@ -74,6 +79,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 public class InvariantDeviceProfile implements OnSharedPreferenceChangeListener {
@@ -93,6 +99,13 @@ public class InvariantDeviceProfile implements OnSharedPreferenceChangeListener
 
     private static final float ICON_SIZE_DEFINED_IN_APP_DP = 48;
 
+    // Number of display configurations for which the supported profiles are kept
+    private static final int MAX_CACHED_PROFILE_CONFIGS = 4;
+
+    // Options of device_profiles.xml, keyed by the configuration they were read with
+    private static final LruCache<Configuration, DeviceProfilesXml> sDeviceProfilesXmlCache =
+            new LruCache<>(MAX_CACHED_PROFILE_CONFIGS);
+
     public static final String KEY_ALLAPPS_THEMED_ICONS = "pref_allapps_themed_icons";
     public static final String KEY_SHOW_DESKTOP_LABELS = "pref_desktop_show_labels";
     public static final String KEY_SHOW_DRAWER_LABELS = "pref_drawer_show_labels";
@@ -228,6 +241,14 @@ public class InvariantDeviceProfile implements OnSharedPreferenceChangeListener
 
     private final ArrayList<OnIDPChangeListener> mChangeListeners = new ArrayList<>();
 
+    // Supported profiles of recent display configurations, so that switching back to one of them
+    // (navigation mode, taskbar pinning, fold state) doesn't compute all the profiles again.
+    // Evicted when any other input of the profiles changes, like the grid or a preference.
+    private final LruCache<ProfilesKey, List<DeviceProfile>> mProfilesCache =
+            new LruCache<>(MAX_CACHED_PROFILE_CONFIGS);
+    // Display configuration of the current supportedProfiles
+    private ProfilesKey mCurrentProfilesKey;
+
     @VisibleForTesting
     public InvariantDeviceProfile() { }
 
@@ -360,6 +381,8 @@ public class InvariantDeviceProfile implements OnSharedPreferenceChangeListener
             case KEY_ALLAPPS_THEMED_ICONS:
             case KEY_SHOW_DESKTOP_LABELS:
             case KEY_SHOW_DRAWER_LABELS:
+                // The cached profiles of other display configurations use the old preferences
+                mProfilesCache.evictAll();
                 onConfigChanged(mContext);
                 break;
         }
@@ -469,15 +492,31 @@ public class InvariantDeviceProfile implements OnSharedPreferenceChangeListener
         // Supported overrides: numRows, numColumns, iconSize
         applyPartnerDeviceProfileOverrides(context, metrics);
 
+        ProfilesKey profilesKey =
+                new ProfilesKey(context, closestProfile.name, deviceType, displayInfo);
+        // Only reuse profiles when the display configuration changed. Re-initializing with the
+        // same configuration (eg. after a label or icon preference change) must return new
+        // instances, as Launcher only re-applies its UI when its DeviceProfile changes.
+        List<DeviceProfile> cachedProfiles = profilesKey.equals(mCurrentProfilesKey)
+                ? null : mProfilesCache.get(profilesKey);
+        mCurrentProfilesKey = profilesKey;
         final List<DeviceProfile> localSupportedProfiles = new ArrayList<>();
         defaultWallpaperSize = new Point(displayInfo.currentSize);
         SparseArray<DotRenderer> dotRendererCache = new SparseArray<>();
+        int boundsIndex = 0;
         for (WindowBounds bounds : displayInfo.supportedBounds) {
-            localSupportedProfiles.add(new DeviceProfile.Builder(context, this, displayInfo)
-                    .setIsMultiDisplay(deviceType == TYPE_MULTI_DISPLAY)
-                    .setWindowBounds(bounds)
-                    .setDotRendererCache(dotRendererCache)
-                    .build());
+            if (cachedProfiles != null) {
+                // The insets of the profile may have been updated by the activity using it
+                DeviceProfile profile = cachedProfiles.get(boundsIndex++);
+                profile.updateInsets(bounds.insets);
+                localSupportedProfiles.add(profile);
+            } else {
+                localSupportedProfiles.add(new DeviceProfile.Builder(context, this, displayInfo)
+                        .setIsMultiDisplay(deviceType == TYPE_MULTI_DISPLAY)
+                        .setWindowBounds(bounds)
+                        .setDotRendererCache(dotRendererCache)
+                        .build());
+            }
 
             // Wallpaper size should be the maximum of the all possible sizes Launcher expects
             int displayWidth = bounds.bounds.width();
@@ -495,6 +534,11 @@ public class InvariantDeviceProfile implements OnSharedPreferenceChangeListener
                     Math.max(defaultWallpaperSize.x, Math.round(parallaxFactor * displayWidth));
         }
         supportedProfiles = Collections.unmodifiableList(localSupportedProfiles);
+        if (cachedProfiles != null) {
+            // The hotseat of the cached profiles was already adjusted below
+            return;
+        }
+        mProfilesCache.put(profilesKey, supportedProfiles);
 
         int numMinShownHotseatIconsForTablet = supportedProfiles
                 .stream()
@@ -523,7 +567,10 @@ public class InvariantDeviceProfile implements OnSharedPreferenceChangeListener
 
     public void setCurrentGrid(Context context, String gridName) {
         LauncherPrefs.get(context).put(GRID_NAME, gridName);
-        MAIN_EXECUTOR.execute(() -> onConfigChanged(context.getApplicationContext()));
+        MAIN_EXECUTOR.execute(() -> {
+            mProfilesCache.evictAll();
+            onConfigChanged(context.getApplicationContext());
+        });
     }
 
     private Object[] toModelState() {
@@ -542,6 +589,7 @@ public class InvariantDeviceProfile implements OnSharedPreferenceChangeListener
         initGrid(context, gridName);
 
         boolean modelPropsChanged = !Arrays.equals(oldState, toModelState());
+        LabelLayoutCache.INSTANCE.clear();
         for (OnIDPChangeListener listener : mChangeListeners) {
             listener.onIdpChanged(modelPropsChanged);
         }
@@ -550,28 +598,10 @@ public class InvariantDeviceProfile implements OnSharedPreferenceChangeListener
     private static ArrayList<DisplayOption> getPredefinedDeviceProfiles(Context context,
             String gridName, @DeviceType int deviceType, boolean allowDisabledGrid) {
         ArrayList<DisplayOption> profiles = new ArrayList<>();
-
-        try (XmlResourceParser parser = context.getResources().getXml(R.xml.device_profiles)) {
-            final int depth = parser.getDepth();
-            int type;
-            while (((type = parser.next()) != XmlPullParser.END_TAG ||
-                    parser.getDepth() > depth) && type != XmlPullParser.END_DOCUMENT) {
-                if ((type == XmlPullParser.START_TAG)
-                        && GridOption.TAG_NAME.equals(parser.getName())) {
-
-                    GridOption gridOption = new GridOption(context, Xml.asAttributeSet(parser));
-                    if (gridOption.isEnabled(deviceType) || allowDisabledGrid) {
-                        final int displayDepth = parser.getDepth();
-                        while (((type = parser.next()) != XmlPullParser.END_TAG
-                                || parser.getDepth() > displayDepth)
-                                && type != XmlPullParser.END_DOCUMENT) {
-                            if ((type == XmlPullParser.START_TAG) && "display-option".equals(
-                                    parser.getName())) {
-                                profiles.add(new DisplayOption(gridOption, context,
-                                        Xml.asAttributeSet(parser)));
-                            }
-                        }
-                    }
+        try {
+            for (DisplayOption option : getDeviceProfilesXml(context).displayOptions) {
+                if (option.grid.isEnabled(deviceType) || allowDisabledGrid) {
+                    profiles.add(option);
                 }
             }
         } catch (IOException | XmlPullParserException e) {
@@ -615,23 +645,73 @@ public class InvariantDeviceProfile implements OnSharedPreferenceChangeListener
      * @return all the grid options that can be shown on the device
      */
     public static List<GridOption> parseAllDefinedGridOptions(Context context) {
-        List<GridOption> result = new ArrayList<>();
+        try {
+            return getDeviceProfilesXml(context).gridOptions;
+        } catch (IOException | XmlPullParserException e) {
+            Log.e(TAG, "Error parsing device profile", e);
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Returns the options defined in device_profiles.xml. The options are never modified, so they
+     * are only parsed once for each configuration instead of on every grid change.
+     */
+    private static DeviceProfilesXml getDeviceProfilesXml(Context context)
+            throws IOException, XmlPullParserException {
+        Configuration config = new Configuration(context.getResources().getConfiguration());
+        DeviceProfilesXml result = sDeviceProfilesXmlCache.get(config);
+        if (result == null) {
+            // Only cache misses show up in traces, to compare the parsing cost across startups
+            Trace.beginSection("ParseDeviceProfiles");
+            try {
+                result = parseDeviceProfilesXml(context);
+            } finally {
+                Trace.endSection();
+            }
+            sDeviceProfilesXmlCache.put(config, result);
+        }
+        return result;
+    }
+
+    /**
+     * Removes all the parsed options of device_profiles.xml, to measure the cost of parsing them
+     * again.
+     */
+    @VisibleForTesting
+    public static void clearDeviceProfilesXmlCache() {
+        sDeviceProfilesXmlCache.evictAll();
+    }
+
+    private static DeviceProfilesXml parseDeviceProfilesXml(Context context)
+            throws IOException, XmlPullParserException {
+        List<GridOption> gridOptions = new ArrayList<>();
+        List<DisplayOption> displayOptions = new ArrayList<>();
 
         try (XmlResourceParser parser = context.getResources().getXml(R.xml.device_profiles)) {
             final int depth = parser.getDepth();
             int type;
-            while (((type = parser.next()) != XmlPullParser.END_TAG
-                    || parser.getDepth() > depth) && type != XmlPullParser.END_DOCUMENT) {
+            while (((type = parser.next()) != XmlPullParser.END_TAG ||
+                    parser.getDepth() > depth) && type != XmlPullParser.END_DOCUMENT) {
                 if ((type == XmlPullParser.START_TAG)
                         && GridOption.TAG_NAME.equals(parser.getName())) {
-                    result.add(new GridOption(context, Xml.asAttributeSet(parser)));
+
+                    GridOption gridOption = new GridOption(context, Xml.asAttributeSet(parser));
+                    gridOptions.add(gridOption);
+                    final int displayDepth = parser.getDepth();
+                    while (((type = parser.next()) != XmlPullParser.END_TAG
+                            || parser.getDepth() > displayDepth)
+                            && type != XmlPullParser.END_DOCUMENT) {
+                        if ((type == XmlPullParser.START_TAG) && "display-option".equals(
+                                parser.getName())) {
+                            displayOptions.add(new DisplayOption(gridOption, context,
+                                    Xml.asAttributeSet(parser)));
+                        }
+                    }
                 }
             }
-        } catch (IOException | XmlPullParserException e) {
-            Log.e(TAG, "Error parsing device profile", e);
-            return Collections.emptyList();
         }
-        return result;
+        return new DeviceProfilesXml(gridOptions, displayOptions);
     }
 
     private int getLauncherIconDensity(int requiredSize) {
@@ -678,6 +758,8 @@ public class InvariantDeviceProfile implements OnSharedPreferenceChangeListener
                 this.numColumns = numColumns;
             }
             if (iconSizePx > 0) {
+                // The sizes are shared with the parsed display option
+                this.iconSize = this.iconSize.clone();
                 this.iconSize[InvariantDeviceProfile.INDEX_DEFAULT] =
                         Utilities.dpiFromPx(iconSizePx, dm.densityDpi);
             }
@@ -820,6 +902,75 @@ public class InvariantDeviceProfile implements OnSharedPreferenceChangeListener
     }
 
 
+    /**
+     * Grid options and display options defined in device_profiles.xml
+     */
+    private static final class DeviceProfilesXml {
+
+        final List<GridOption> gridOptions;
+        final List<DisplayOption> displayOptions;
+
+        DeviceProfilesXml(List<GridOption> gridOptions, List<DisplayOption> displayOptions) {
+            this.gridOptions = Collections.unmodifiableList(gridOptions);
+            this.displayOptions = Collections.unmodifiableList(displayOptions);
+        }
+    }
+
+    /**
+     * Display configuration which the supported profiles are computed for, along with the grid,
+     * the resource configuration and the preferences which aren't followed by an eviction
+     */
+    private static final class ProfilesKey {
+
+        private final String mGridName;
+        private final @DeviceType int mDeviceType;
+        private final int mDensityDpi;
+        private final float mFontScale;
+        private final NavigationMode mNavigationMode;
+        private final boolean mIsTransientTaskbar;
+        private final List<WindowBounds> mSupportedBounds;
+        // Covers the ui mode and the overlays, which the profile resources depend on
+        private final Configuration mConfiguration;
+        private final boolean mTwoLineAllApps;
+
+        ProfilesKey(Context context, String gridName, @DeviceType int deviceType,
+                Info displayInfo) {
+            mGridName = gridName;
+            mDeviceType = deviceType;
+            mDensityDpi = displayInfo.getDensityDpi();
+            mFontScale = displayInfo.fontScale;
+            mNavigationMode = displayInfo.navigationMode;
+            mIsTransientTaskbar = displayInfo.isTransientTaskbar();
+            // Keep the iteration order, which the cached profiles are stored in
+            mSupportedBounds = new ArrayList<>(displayInfo.supportedBounds);
+            mConfiguration = new Configuration(context.getResources().getConfiguration());
+            mTwoLineAllApps = LauncherPrefs.ENABLE_TWOLINE_ALLAPPS_TOGGLE.get(context);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof ProfilesKey)) {
+                return false;
+            }
+            ProfilesKey other = (ProfilesKey) o;
+            return mGridName.equals(other.mGridName)
+                    && mDeviceType == other.mDeviceType
+                    && mDensityDpi == other.mDensityDpi
+                    && mFontScale == other.mFontScale
+                    && mNavigationMode == other.mNavigationMode
+                    && mIsTransientTaskbar == other.mIsTransientTaskbar
+                    && mSupportedBounds.equals(other.mSupportedBounds)
+                    && mConfiguration.equals(other.mConfiguration)
+                    && mTwoLineAllApps == other.mTwoLineAllApps;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(mGridName, mDeviceType, mDensityDpi, mFontScale, mNavigationMode,
+                    mIsTransientTaskbar, mSupportedBounds, mConfiguration, mTwoLineAllApps);
+        }
+    }
+
     public static final class GridOption {
 
         public static final String TAG_NAME = "grid-option";
@@ -193,8 +193,10 @@ import com.android.launcher3.logger.LauncherAtom.ContainerInfo;
 import com.android.launcher3.logger.LauncherAtom.WorkspaceContainer;
 import com.android.launcher3.logging.ColdRebootStartupLatencyLogger;
 import com.android.launcher3.logging.FileLog;
+import com.android.launcher3.logging.FrameStatsTracker;
 import com.android.launcher3.logging.InstanceId;
 import com.android.launcher3.logging.InstanceIdSequence;
+import com.android.launcher3.logging.PerfTraceRecorder;
 import com.android.launcher3.logging.StartupLatencyLogger;
 import com.android.launcher3.logging.StatsLogManager;
 import com.android.launcher3.logging.StatsLogManager.LauncherLatencyEvent;
@@ -227,10 +229,12 @@ import com.android.launcher3.util.ActivityTracker;
 import com.android.launcher3.util.BackPressHandler;
 import com.android.launcher3.util.CannedAnimationCoordinator;
 import com.android.launcher3.util.ComponentKey;
+import com.android.launcher3.util.Executors;
 import com.android.launcher3.util.IntArray;
 import com.android.launcher3.util.IntSet;
 import com.android.launcher3.util.ItemInflater;
 import com.android.launcher3.util.KeyboardShortcutsDelegate;
+import com.android.launcher3.util.LabelLayoutCache;
 import com.android.launcher3.util.LockedUserState;
 import com.android.launcher3.util.PackageUserKey;
 import com.android.launcher3.util.PendingRequestArgs;
@@ -2628,7 +2632,12 @@ public class Launcher extends StatefulActivity<LauncherState>
 
         // Extra logging for general debugging
         mDragLayer.dump(prefix, writer);
+        mWorkspace.dump(prefix, writer);
         mStateManager.dump(prefix, writer);
+        FrameStatsTracker.INSTANCE.dump(prefix, writer);
+        PerfTraceRecorder.INSTANCE.get(this).dump(prefix, writer);
+        Executors.dump(prefix, writer);
+        LabelLayoutCache.INSTANCE.dump(prefix, writer);
         mPopupDataProvider.dump(prefix, writer);
         mDeviceProfile.dump(this, prefix, writer);
         mAppsView.getAppsStore().dump(prefix, writer);
@@ -46,6 +46,7 @@ import com.android.launcher3.icons.IconProvider;
 import com.android.launcher3.icons.LauncherIconProvider;
 import com.android.launcher3.icons.LauncherIcons;
 import com.android.launcher3.lineage.trust.HiddenAppsFilter;
+import com.android.launcher3.logging.PerfTraceRecorder;
 import com.android.launcher3.model.ModelLauncherCallbacks;
 import com.android.launcher3.notification.NotificationListener;
 import com.android.launcher3.pm.InstallSessionHelper;
@@ -131,6 +132,10 @@ public class LauncherAppState implements SafeCloseable {
                 .addUserEventListener(mModel::onUserEvent);
         mOnTerminateCallback.add(userChangeListener::close);
 
+        SafeCloseable perfSnapshotProvider = PerfTraceRecorder.INSTANCE.get(mContext)
+                .addSnapshotProvider(mModel::addToPerfSnapshot);
+        mOnTerminateCallback.add(perfSnapshotProvider::close);
+
         if (ENABLE_SMARTSPACE_REMOVAL.get()) {
             OnSharedPreferenceChangeListener firstPagePinnedItemListener =
                     new OnSharedPreferenceChangeListener() {
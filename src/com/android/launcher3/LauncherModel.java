@@ -20,6 +20,7 @@ import static android.app.admin.DevicePolicyManager.ACTION_DEVICE_POLICY_RESOURC
 
 import static com.android.launcher3.LauncherAppState.ACTION_FORCE_ROLOAD;
 import static com.android.launcher3.config.FeatureFlags.IS_STUDIO_BUILD;
+import static com.android.launcher3.model.ModelTaskScheduler.PRIORITY_BINDING;
 import static com.android.launcher3.model.PackageUpdatedTask.OP_UPDATE;
 import static com.android.launcher3.pm.UserCache.ACTION_PROFILE_AVAILABLE;
 import static com.android.launcher3.pm.UserCache.ACTION_PROFILE_UNAVAILABLE;
@@ -33,6 +34,7 @@ import android.content.pm.PackageInstaller;
 import android.content.pm.ShortcutInfo;
 import android.os.UserHandle;
 import android.text.TextUtils;
+import android.util.Base64;
 import android.util.Log;
 import android.util.Pair;
 
@@ -51,10 +53,13 @@ import com.android.launcher3.model.BgDataModel.Callbacks;
 import com.android.launcher3.model.CacheDataUpdatedTask;
 import com.android.launcher3.model.ItemInstallQueue;
 import com.android.launcher3.model.LauncherBinder;
+import com.android.launcher3.model.LoaderMemoryLogger;
 import com.android.launcher3.model.LoaderTask;
 import com.android.launcher3.model.ModelDbController;
 import com.android.launcher3.model.ModelDelegate;
 import com.android.launcher3.model.ModelLauncherCallbacks;
+import com.android.launcher3.model.ModelTaskScheduler;
+import com.android.launcher3.model.ModelTaskScheduler.Priority;
 import com.android.launcher3.model.ModelWriter;
 import com.android.launcher3.model.PackageInstallStateChangedTask;
 import com.android.launcher3.model.PackageUpdatedTask;
@@ -67,7 +72,11 @@ import com.android.launcher3.model.data.WorkspaceItemInfo;
 import com.android.launcher3.pm.InstallSessionTracker;
 import com.android.launcher3.pm.PackageInstallInfo;
 import com.android.launcher3.pm.UserCache;
+import com.android.launcher3.shortcuts.ShortcutCache;
 import com.android.launcher3.shortcuts.ShortcutRequest;
+import com.android.launcher3.tracing.IconCacheStatsProto;
+import com.android.launcher3.tracing.ModelStateProto;
+import com.android.launcher3.tracing.PerfSnapshotProto;
 import com.android.launcher3.util.IntSet;
 import com.android.launcher3.util.ItemInfoMatcher;
 import com.android.launcher3.util.PackageUserKey;
@@ -76,6 +85,7 @@ import com.android.launcher3.util.Preconditions;
 import java.io.FileDescriptor;
 import java.io.PrintWriter;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.concurrent.CancellationException;
@@ -137,6 +147,14 @@ public class LauncherModel implements InstallSessionTracker.Callback {
 
     private int mLastLoadId = -1;
 
+    @NonNull
+    private final ModelTaskScheduler mTaskScheduler =
+            new ModelTaskScheduler(MODEL_EXECUTOR);
+
+    // Trace of the last successful loader run
+    @Nullable
+    private volatile LoaderMemoryLogger mLastLoaderTrace;
+
     // Runnable to check if the shortcuts permission has changed.
     @NonNull
     private final Runnable mDataValidationCheck = new Runnable() {
@@ -407,6 +425,24 @@ public class LauncherModel implements InstallSessionTracker.Callback {
         }
     }
 
+    /**
+     * Returns the cache of published shortcuts. The cache is thread safe: it is updated on the
+     * model thread and can be read from any thread, like the UI thread when opening a popup.
+     */
+    @NonNull
+    public ShortcutCache getShortcutCache() {
+        return mBgDataModel.shortcutCache;
+    }
+
+    /**
+     * Returns the last published snapshot of the model data. Unlike {@link #loadAsync}, this can
+     * be read on any thread without waiting for the model thread.
+     */
+    @NonNull
+    public BgDataModel.Snapshot getModelSnapshot() {
+        return mBgDataModel.getSnapshot();
+    }
+
     /**
      * Loads the model if not loaded
      * @param callback called with the data model upon successful load or null on model thread.
@@ -586,7 +622,7 @@ public class LauncherModel implements InstallSessionTracker.Callback {
             return;
         }
         task.init(mApp, this, mBgDataModel, mBgAllAppsList, MAIN_EXECUTOR);
-        MODEL_EXECUTOR.execute(task);
+        mTaskScheduler.executeWrite(task, task.getPriority());
     }
 
     /**
@@ -610,6 +646,13 @@ public class LauncherModel implements InstallSessionTracker.Callback {
                 @NonNull BgDataModel dataModel, @NonNull AllAppsList allAppsList,
                 @NonNull Executor uiExecutor);
 
+        /**
+         * Returns the priority class of the task, pending tasks of a higher class run first.
+         */
+        @Priority
+        default int getPriority() {
+            return PRIORITY_BINDING;
+        }
     }
 
     public void updateAndBindWorkspaceItem(@NonNull final WorkspaceItemInfo si,
@@ -663,6 +706,38 @@ public class LauncherModel implements InstallSessionTracker.Callback {
         }
         mModelDelegate.dump(prefix, fd, writer, args);
         mBgDataModel.dump(prefix, fd, writer, args);
+        mTaskScheduler.dump(prefix, writer);
+
+        LoaderMemoryLogger loaderTrace = mLastLoaderTrace;
+        if (loaderTrace != null) {
+            loaderTrace.dump(prefix, writer);
+            if (Arrays.asList(args).contains("--loader-trace-proto")) {
+                writer.println(prefix + "Loader trace proto: " + Base64.encodeToString(
+                        loaderTrace.toProto().toByteArray(), Base64.NO_WRAP));
+            }
+        }
+    }
+
+    /**
+     * Adds the current model state to the provided perf snapshot
+     */
+    public void addToPerfSnapshot(@NonNull PerfSnapshotProto.Builder snapshot) {
+        snapshot.setModel(ModelStateProto.newBuilder()
+                .setLoaded(isModelLoaded())
+                .setLoadId(mLastLoadId)
+                .setGeneration(mBgDataModel.getSnapshot().generation)
+                .setPendingWrites(ModelWriter.getPendingWriteCount()));
+        IconCache iconCache = mApp.getIconCache();
+        snapshot.setIconCache(IconCacheStatsProto.newBuilder()
+                .setLookupCount(iconCache.getLookupCount())
+                .setMissCount(iconCache.getMissCount()));
+    }
+
+    /**
+     * Stores the trace of the last successful loader run, for dumpsys
+     */
+    public void setLastLoaderTrace(@NonNull LoaderMemoryLogger loaderTrace) {
+        mLastLoaderTrace = loaderTrace;
     }
 
     /**
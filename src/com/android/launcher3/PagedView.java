@@ -54,6 +54,7 @@ import androidx.annotation.Nullable;
 
 import com.android.launcher3.compat.AccessibilityManagerCompat;
 import com.android.launcher3.config.FeatureFlags;
+import com.android.launcher3.logging.FrameStatsTracker;
 import com.android.launcher3.pageindicators.PageIndicator;
 import com.android.launcher3.touch.PagedOrientationHandler;
 import com.android.launcher3.touch.PagedOrientationHandler.ChildBounds;
@@ -139,6 +140,7 @@ public abstract class PagedView<T extends View & PageIndicator> extends ViewGrou
     protected int mActivePointerId = INVALID_POINTER;
 
     protected boolean mIsPageInTransition = false;
+    private String mFrameStatsKey;
     private Runnable mOnPageTransitionEndCallback;
 
     // Page Indicator
@@ -467,6 +469,7 @@ public abstract class PagedView<T extends View & PageIndicator> extends ViewGrou
     protected void pageBeginTransition() {
         if (!mIsPageInTransition) {
             mIsPageInTransition = true;
+            FrameStatsTracker.INSTANCE.beginSection(getFrameStatsKey(), getDisplay());
             onPageBeginTransition();
         }
     }
@@ -475,10 +478,18 @@ public abstract class PagedView<T extends View & PageIndicator> extends ViewGrou
         if (mIsPageInTransition && !mIsBeingDragged && mScroller.isFinished()
                 && (!isShown() || (mEdgeGlowLeft.isFinished() && mEdgeGlowRight.isFinished()))) {
             mIsPageInTransition = false;
+            FrameStatsTracker.INSTANCE.endSection(getFrameStatsKey());
             onPageEndTransition();
         }
     }
 
+    private String getFrameStatsKey() {
+        if (mFrameStatsKey == null) {
+            mFrameStatsKey = "PageScroll:" + getClass().getSimpleName();
+        }
+        return mFrameStatsKey;
+    }
+
     @Override
     public void onVisibilityAggregated(boolean isVisible) {
         pageEndTransition();
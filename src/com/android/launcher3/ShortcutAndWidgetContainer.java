@@ -26,6 +26,8 @@ import static com.android.launcher3.util.MultiTranslateDelegate.INDEX_WIDGET_CEN
 
 import android.app.WallpaperManager;
 import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
 import android.graphics.Point;
 import android.graphics.PointF;
 import android.graphics.Rect;
@@ -68,6 +70,10 @@ public class ShortcutAndWidgetContainer extends ViewGroup implements FolderIcon.
     @Nullable
     private TranslationProvider mTranslationProvider = null;
 
+    // Number of times the content was drawn since the hardware layer was enabled, each of which
+    // renders the whole layer again
+    private int mLayerDrawCount;
+
     public ShortcutAndWidgetContainer(Context context, @ContainerType int containerType) {
         super(context);
         mActivity = ActivityContext.lookupContext(context);
@@ -76,6 +82,26 @@ public class ShortcutAndWidgetContainer extends ViewGroup implements FolderIcon.
         setClipChildren(false);
     }
 
+    @Override
+    public void setLayerType(int layerType, @Nullable Paint paint) {
+        if (layerType != getLayerType()) {
+            mLayerDrawCount = 0;
+        }
+        super.setLayerType(layerType, paint);
+    }
+
+    @Override
+    protected void dispatchDraw(Canvas canvas) {
+        if (getLayerType() == LAYER_TYPE_HARDWARE) {
+            mLayerDrawCount++;
+        }
+        super.dispatchDraw(canvas);
+    }
+
+    int getLayerDrawCount() {
+        return mLayerDrawCount;
+    }
+
     public void setCellDimensions(int cellWidth, int cellHeight, int countX, int countY,
             Point borderSpace) {
         mCellWidth = cellWidth;
@@ -52,7 +52,9 @@ import android.graphics.PointF;
 import android.graphics.Rect;
 import android.graphics.drawable.Drawable;
 import android.os.Handler;
+import android.os.Looper;
 import android.os.Message;
+import android.os.MessageQueue;
 import android.os.Parcelable;
 import android.util.AttributeSet;
 import android.util.Log;
@@ -128,6 +130,7 @@ import com.android.launcher3.widget.util.WidgetSizes;
 import com.android.systemui.plugins.shared.LauncherOverlayManager.LauncherOverlayCallbacks;
 import com.android.systemui.plugins.shared.LauncherOverlayManager.LauncherOverlayTouchProxy;
 
+import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -229,6 +232,12 @@ public class Workspace<T extends View & PageIndicator> extends PagedView<T>
     private boolean mIsSwitchingState = false;
 
     boolean mChildrenLayersEnabled = true;
+    // Peak memory used by the hardware layers of the pages
+    private long mPeakPageLayerBytes;
+    // Number of times the layer of a page was skipped as its content kept changing
+    private int mSkippedPageLayerCount;
+    private final MessageQueue.IdleHandler mBuildPageLayersHandler = this::buildPendingPageLayers;
+    private boolean mPageLayersBuildPending;
 
     private boolean mStripScreensOnPageStopMoving = false;
 
@@ -1515,13 +1524,75 @@ public class Workspace<T extends View & PageIndicator> extends PagedView<T>
                 }
             }
 
+            boolean hasPendingLayer = false;
             for (int i = 0; i < screenCount; i++) {
                 final CellLayout layout = (CellLayout) getPageAt(i);
                 // enable layers between left and right screen inclusive.
                 boolean enableLayer = leftScreen <= i && i <= rightScreen;
+                boolean hadUpdatingContent = layout.hasUpdatingContent();
                 layout.enableHardwareLayer(enableLayer);
+                hasPendingLayer |= layout.isHardwareLayerPending()
+                        && (i < visibleScreens[0] || i > visibleScreens[1]);
+                if (!hadUpdatingContent && layout.hasUpdatingContent()) {
+                    mSkippedPageLayerCount++;
+                }
+            }
+            if (hasPendingLayer && !mPageLayersBuildPending && isAttachedToWindow()
+                    && Flags.prerenderWorkspacePages()) {
+                // Render the pages which are not visible yet once the main thread is idle,
+                // instead of in the frame they scroll in
+                mPageLayersBuildPending = true;
+                Looper.myQueue().addIdleHandler(mBuildPageLayersHandler);
+            }
+            updatePeakPageLayerBytes();
+        }
+    }
+
+    private boolean buildPendingPageLayers() {
+        mPageLayersBuildPending = false;
+        if (!mChildrenLayersEnabled || !isAttachedToWindow()) {
+            return false;
+        }
+        final int[] visibleScreens = getVisibleChildrenRange();
+        for (int i = 0; i < getPageCount(); i++) {
+            final CellLayout layout = (CellLayout) getPageAt(i);
+            if (layout.isHardwareLayerPending()
+                    && (i < visibleScreens[0] || i > visibleScreens[1])) {
+                layout.getShortcutsAndWidgets().buildLayer();
             }
         }
+        updatePeakPageLayerBytes();
+        return false;
+    }
+
+    private void updatePeakPageLayerBytes() {
+        long layerBytes = 0;
+        for (int i = 0; i < getPageCount(); i++) {
+            layerBytes += ((CellLayout) getPageAt(i)).getHardwareLayerBytes();
+        }
+        mPeakPageLayerBytes = Math.max(mPeakPageLayerBytes, layerBytes);
+    }
+
+    /**
+     * Dumps the memory used by the hardware layers of the pages during transitions
+     */
+    public void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + "Workspace page layers:");
+        long layerBytes = 0;
+        for (int i = 0; i < getPageCount(); i++) {
+            CellLayout layout = (CellLayout) getPageAt(i);
+            long pageBytes = layout.getHardwareLayerBytes();
+            layerBytes += pageBytes;
+            writer.println(prefix + "\tpage " + i + ": screenId=" + getScreenIdForPageIndex(i)
+                    + " layerEnabled=" + layout.isHardwareLayerEnabled()
+                    + " layerPending=" + layout.isHardwareLayerPending()
+                    + " updatingContent=" + layout.hasUpdatingContent()
+                    + " bytes=" + pageBytes);
+        }
+        writer.println(prefix + "\tcurrentBytes=" + layerBytes
+                + " peakBytes=" + mPeakPageLayerBytes
+                + " skippedLayers=" + mSkippedPageLayerCount
+                + " prerenderEnabled=" + Flags.prerenderWorkspacePages());
     }
 
     public void onWallpaperTap(MotionEvent ev) {
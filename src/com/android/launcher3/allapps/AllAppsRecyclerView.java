@@ -50,6 +50,7 @@ import com.android.launcher3.LauncherAppState;
 import com.android.launcher3.R;
 import com.android.launcher3.Utilities;
 import com.android.launcher3.logging.StatsLogManager;
+import com.android.launcher3.recyclerview.AllAppsRecyclerViewPool;
 import com.android.launcher3.views.ActivityContext;
 
 import java.util.List;
@@ -123,6 +124,12 @@ public class AllAppsRecyclerView extends FastScrollRecyclerView {
         if (hasWorkProfile) {
             maxPoolSizeForAppIcons *= 2;
         }
+        if (pool instanceof AllAppsRecyclerViewPool) {
+            // Keep enough icons for the highest number used at the same time before
+            maxPoolSizeForAppIcons = Math.max(maxPoolSizeForAppIcons,
+                    ((AllAppsRecyclerViewPool<?>) pool).getObservedDemand(
+                            AllAppsGridAdapter.VIEW_TYPE_ICON, grid));
+        }
         pool.setMaxRecycledViews(
                 AllAppsGridAdapter.VIEW_TYPE_ICON, maxPoolSizeForAppIcons);
     }
@@ -63,6 +63,7 @@ public class AllAppsStore<T extends Context & ActivityContext> {
     private AppInfo mTempInfo = new AppInfo();
 
     private @NonNull AppInfo[] mApps = EMPTY_ARRAY;
+    private final SortedAppList mSortedApps;
 
     private final List<OnUpdateListener> mUpdateListeners = new CopyOnWriteArrayList<>();
     private final ArrayList<ViewGroup> mIconContainers = new ArrayList<>();
@@ -78,8 +79,16 @@ public class AllAppsStore<T extends Context & ActivityContext> {
         return mApps;
     }
 
+    /**
+     * Returns the current set of apps sorted by title, in the order of {@link AppInfoComparator}
+     */
+    public List<AppInfo> getSortedApps() {
+        return mSortedApps.getApps();
+    }
+
     public AllAppsStore(@NonNull T context) {
         mContext = context;
+        mSortedApps = new SortedAppList(context);
     }
 
     /**
@@ -103,6 +112,7 @@ public class AllAppsStore<T extends Context & ActivityContext> {
     public void setApps(@Nullable AppInfo[] apps, int flags, Map<PackageUserKey, Integer> map,
             boolean shouldPreinflate) {
         mApps = apps == null ? EMPTY_ARRAY : apps;
+        mSortedApps.update(mApps);
         mModelFlags = flags;
         notifyUpdate();
         mPackageUserKeytoUidMap = map;
@@ -263,5 +273,6 @@ public class AllAppsStore<T extends Context & ActivityContext> {
             writer.println(String.format("%s\tPackage index and name: %d/%s", prefix, i,
                     mApps[i].componentName.getPackageName()));
         }
+        mAllAppsRecyclerViewPool.dump(prefix + "\t", writer);
     }
 }
@@ -18,9 +18,13 @@ package com.android.launcher3.allapps;
 import static com.android.launcher3.allapps.SectionDecorationInfo.ROUND_BOTTOM_LEFT;
 import static com.android.launcher3.allapps.SectionDecorationInfo.ROUND_BOTTOM_RIGHT;
 import static com.android.launcher3.allapps.SectionDecorationInfo.ROUND_NOTHING;
+import static com.android.launcher3.util.Executors.MAIN_EXECUTOR;
+import static com.android.launcher3.util.Executors.UI_HELPER_EXECUTOR;
 
 import android.content.Context;
+import android.text.PrecomputedText;
 
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
 import androidx.recyclerview.widget.DiffUtil;
@@ -31,6 +35,7 @@ import com.android.launcher3.allapps.BaseAllAppsAdapter.AdapterItem;
 import com.android.launcher3.model.data.AppInfo;
 import com.android.launcher3.model.data.ItemInfo;
 import com.android.launcher3.util.LabelComparator;
+import com.android.launcher3.util.LabelLayoutCache;
 import com.android.launcher3.views.ActivityContext;
 
 import java.util.ArrayList;
@@ -91,17 +96,23 @@ public class AlphabeticalAppsList<T extends Context & ActivityContext> implement
     // The of ordered component names as a result of a search query
     private final ArrayList<AdapterItem> mSearchResults = new ArrayList<>();
     private BaseAllAppsAdapter<T> mAdapter;
-    private AppInfoComparator mAppNameComparator;
+    // Incremented on every update of the apps, to ignore the results of outdated background sorts
+    private int mAppsGeneration;
+    // Incremented on every change of the adapter items, to ignore outdated background diffs
+    private int mAdapterItemsVersion;
     private int mNumAppsPerRowAllApps;
     private int mNumAppRowsInAdapter;
     private Predicate<ItemInfo> mItemFilter;
     private final boolean mSortSections;
 
+    // Text metrics of the app icon labels, used to precompute the label layouts
+    @Nullable
+    private PrecomputedText.Params mLabelTextMetricsParams;
+
     public AlphabeticalAppsList(Context context, @Nullable AllAppsStore<T> appsStore,
             WorkProfileManager workProfileManager, PrivateProfileManager privateProfileManager) {
         mAllAppsStore = appsStore;
         mActivityContext = ActivityContext.lookupContext(context);
-        mAppNameComparator = new AppInfoComparator(context);
         mWorkProviderManager = workProfileManager;
         mPrivateProviderManager = privateProfileManager;
         mNumAppsPerRowAllApps = mActivityContext.getDeviceProfile().numShownAllAppsColumns;
@@ -114,11 +125,48 @@ public class AlphabeticalAppsList<T extends Context & ActivityContext> implement
     /** Set the number of apps per row when device profile changes. */
     public void setNumAppsPerRowAllApps(int numAppsPerRow) {
         mNumAppsPerRowAllApps = numAppsPerRow;
+        // The text size may have changed as well, wait for the next icon bind to get its metrics
+        mLabelTextMetricsParams = null;
+    }
+
+    /**
+     * Returns the text metrics of the app icon labels, or null if not known yet
+     */
+    @Nullable
+    public PrecomputedText.Params getLabelTextMetricsParams() {
+        return mLabelTextMetricsParams;
+    }
+
+    /**
+     * Sets the text metrics of the app icon labels, so that the label layouts can be precomputed
+     * in the background before the icons are bound.
+     */
+    public void setLabelTextMetricsParams(@NonNull PrecomputedText.Params params) {
+        mLabelTextMetricsParams = params;
+        precomputeLabels();
+    }
+
+    private void precomputeLabels() {
+        if (mLabelTextMetricsParams == null) {
+            return;
+        }
+        List<CharSequence> labels = new ArrayList<>(mApps.size() + mPrivateApps.size());
+        for (AppInfo info : mApps) {
+            if (info.title != null) {
+                labels.add(info.title);
+            }
+        }
+        for (AppInfo info : mPrivateApps) {
+            if (info.title != null) {
+                labels.add(info.title);
+            }
+        }
+        LabelLayoutCache.INSTANCE.precompute(labels, mLabelTextMetricsParams);
     }
 
     public void updateItemFilter(Predicate<ItemInfo> itemFilter) {
         this.mItemFilter = itemFilter;
-        onAppsUpdated();
+        updateApps();
     }
 
     /**
@@ -201,36 +249,91 @@ public class AlphabeticalAppsList<T extends Context & ActivityContext> implement
     }
 
     /**
-     * Updates internals when the set of apps are updated.
+     * Updates internals when the set of apps are updated. The apps are filtered, and the adapter
+     * items and their changes are computed in the background. They are committed together once
+     * done, unless the apps were updated again in the meantime.
      */
     @Override
     public void onAppsUpdated() {
         if (mAllAppsStore == null) {
             return;
         }
-        // Sort the list of apps
+        int generation = ++mAppsGeneration;
+        List<AppInfo> sortedApps = mAllAppsStore.getSortedApps();
+        Predicate<ItemInfo> itemFilter = getActiveItemFilter();
+        Predicate<ItemInfo> privateItemFilter = getActivePrivateItemFilter();
+        // Search results replace the apps in the adapter, so only the apps are updated then
+        ItemsState state = hasSearchResults() ? null : captureItemsState(mAdapter != null);
+        UI_HELPER_EXECUTOR.execute(() -> {
+            List<AppInfo> apps = filterApps(sortedApps, itemFilter, mSortSections);
+            List<AppInfo> privateApps = filterApps(sortedApps, privateItemFilter, false);
+            AdapterItems items = state == null ? null
+                    : buildAdapterItems(apps, privateApps, state);
+            MAIN_EXECUTOR.execute(() -> {
+                if (generation != mAppsGeneration) {
+                    return;
+                }
+                setApps(apps, privateApps);
+                if (items != null && !hasSearchResults()) {
+                    commitAdapterItems(items);
+                }
+            });
+        });
+    }
+
+    /**
+     * Filters the current set of apps and updates the list immediately
+     */
+    private void updateApps() {
+        if (mAllAppsStore == null) {
+            return;
+        }
+        mAppsGeneration++;
+        List<AppInfo> sortedApps = mAllAppsStore.getSortedApps();
+        setApps(filterApps(sortedApps, getActiveItemFilter(), mSortSections),
+                filterApps(sortedApps, getActivePrivateItemFilter(), false));
+        // Recompose the set of adapter items from the current set of apps
+        if (!hasSearchResults()) {
+            updateAdapterItems();
+        }
+    }
+
+    @Nullable
+    private Predicate<ItemInfo> getActiveItemFilter() {
+        return hasSearchResults() ? null : mItemFilter;
+    }
+
+    @Nullable
+    private Predicate<ItemInfo> getActivePrivateItemFilter() {
+        return !hasSearchResults() && mItemFilter != null && mPrivateProviderManager != null
+                ? mPrivateProviderManager.getItemInfoMatcher() : null;
+    }
+
+    private void setApps(List<AppInfo> apps, List<AppInfo> privateApps) {
         mApps.clear();
+        mApps.addAll(apps);
         mPrivateApps.clear();
+        mPrivateApps.addAll(privateApps);
+        precomputeLabels();
+    }
 
-        Stream<AppInfo> appSteam = Stream.of(mAllAppsStore.getApps());
-        Stream<AppInfo> privateAppStream = Stream.of(mAllAppsStore.getApps());
-
-        if (!hasSearchResults() && mItemFilter != null) {
-            appSteam = appSteam.filter(mItemFilter);
-            if (mPrivateProviderManager != null) {
-                privateAppStream = privateAppStream
-                        .filter(mPrivateProviderManager.getItemInfoMatcher());
-            }
+    /**
+     * Returns the apps matching the filter, in the order of the sorted apps. Doesn't depend on any
+     * state of the list, so that it can run on a background thread.
+     */
+    private static List<AppInfo> filterApps(List<AppInfo> sortedApps,
+            @Nullable Predicate<ItemInfo> filter, boolean sortSections) {
+        Stream<AppInfo> appStream = sortedApps.stream();
+        if (filter != null) {
+            appStream = appStream.filter(filter);
         }
-        appSteam = appSteam.sorted(mAppNameComparator);
-        privateAppStream = privateAppStream.sorted(mAppNameComparator);
 
         // As a special case for some languages (currently only Simplified Chinese), we may need to
         // coalesce sections
-        if (mSortSections) {
+        if (sortSections) {
             // Compute the section headers. We use a TreeMap with the section name comparator to
             // ensure that the sections are ordered when we iterate over it later
-            appSteam = appSteam.collect(Collectors.groupingBy(
+            appStream = appStream.collect(Collectors.groupingBy(
                     info -> info.sectionName,
                     () -> new TreeMap<>(new LabelComparator()),
                     Collectors.toCollection(ArrayList::new)))
@@ -238,13 +341,7 @@ public class AlphabeticalAppsList<T extends Context & ActivityContext> implement
                     .stream()
                     .flatMap(ArrayList::stream);
         }
-
-        appSteam.forEachOrdered(mApps::add);
-        privateAppStream.forEachOrdered(mPrivateApps::add);
-        // Recompose the set of adapter items from the current set of apps
-        if (mSearchResults.isEmpty()) {
-            updateAdapterItems();
-        }
+        return appStream.collect(Collectors.toList());
     }
 
     /**
@@ -252,109 +349,141 @@ public class AlphabeticalAppsList<T extends Context & ActivityContext> implement
      * mCachedSectionNames to have been calculated for the set of all apps in mApps.
      */
     public void updateAdapterItems() {
-        List<AdapterItem> oldItems = new ArrayList<>(mAdapterItems);
-        // Prepare to update the list of sections, filtered apps, etc.
-        mFastScrollerSections.clear();
-        mAdapterItems.clear();
-        mAccessibilityResultsCount = 0;
+        AdapterItems items;
+        if (hasSearchResults()) {
+            items = new AdapterItems();
+            items.items.addAll(mSearchResults);
+            items.updateRowsAndCounts(mNumAppsPerRowAllApps);
+        } else {
+            items = buildAdapterItems(mApps, mPrivateApps, captureItemsState(false));
+        }
+        commitAdapterItems(items);
+    }
+
+    /**
+     * Reads the state the adapter items depend on, other than the apps, so that the items can be
+     * built on a background thread.
+     *
+     * @param diffInBackground whether the changes from the current items should be computed
+     *                         along with the new items
+     */
+    private ItemsState captureItemsState(boolean diffInBackground) {
+        ItemsState state = new ItemsState();
+        if (mWorkProviderManager != null) {
+            mWorkProviderManager.addWorkItems(state.workItems);
+            state.addApps = mWorkProviderManager.shouldShowWorkApps();
+        }
+        state.addPrivateSpace = Flags.enablePrivateSpace() && mPrivateProviderManager != null
+                && !mPrivateProviderManager.isPrivateSpaceHidden();
+        if (state.addPrivateSpace) {
+            state.privateSpaceState = mPrivateProviderManager.getCurrentState();
+        }
+        state.numAppsPerRow = mNumAppsPerRowAllApps;
+        if (diffInBackground) {
+            state.oldItems = new ArrayList<>(mAdapterItems);
+            state.oldItemsVersion = mAdapterItemsVersion;
+        }
+        return state;
+    }
 
+    /**
+     * Builds the adapter items for the provided apps into a new list. Doesn't modify the state of
+     * the list, so that it can run on a background thread.
+     */
+    private AdapterItems buildAdapterItems(List<AppInfo> apps, List<AppInfo> privateApps,
+            ItemsState state) {
+        AdapterItems items = new AdapterItems();
         // Recreate the filtered and sectioned apps (for convenience for the grid layout) from the
         // ordered set of sections
-        if (hasSearchResults()) {
-            mAdapterItems.addAll(mSearchResults);
-        } else {
-            int position = 0;
-            boolean addApps = true;
-            if (mWorkProviderManager != null) {
-                position += mWorkProviderManager.addWorkItems(mAdapterItems);
-                addApps = mWorkProviderManager.shouldShowWorkApps();
-            }
-            if (addApps) {
-                position = addAppsWithSections(mApps, position);
-            }
-            if (Flags.enablePrivateSpace()) {
-                position = addPrivateSpaceItems(position);
-            }
+        items.items.addAll(state.workItems);
+        int position = items.items.size();
+        if (state.addApps) {
+            position = addAppsWithSections(items, apps, position, state.numAppsPerRow);
         }
-        mAccessibilityResultsCount = (int) mAdapterItems.stream()
-                .filter(AdapterItem::isCountedForAccessibility).count();
+        if (state.addPrivateSpace) {
+            position = addPrivateSpaceItems(items, privateApps, position, state);
+        }
+        items.updateRowsAndCounts(state.numAppsPerRow);
 
-        if (mNumAppsPerRowAllApps != 0) {
-            // Update the number of rows in the adapter after we do all the merging (otherwise, we
-            // would have to shift the values again)
-            int numAppsInSection = 0;
-            int numAppsInRow = 0;
-            int rowIndex = -1;
-            for (AdapterItem item : mAdapterItems) {
-                item.rowIndex = 0;
-                if (BaseAllAppsAdapter.isDividerViewType(item.viewType)
-                        || BaseAllAppsAdapter.isPrivateSpaceHeaderView(item.viewType)
-                        || BaseAllAppsAdapter.isPrivateSpaceSysAppsDividerView(item.viewType)) {
-                    numAppsInSection = 0;
-                } else if (BaseAllAppsAdapter.isIconViewType(item.viewType)) {
-                    if (numAppsInSection % mNumAppsPerRowAllApps == 0) {
-                        numAppsInRow = 0;
-                        rowIndex++;
-                    }
-                    item.rowIndex = rowIndex;
-                    item.rowAppIndex = numAppsInRow;
-                    numAppsInSection++;
-                    numAppsInRow++;
-                }
-            }
-            mNumAppRowsInAdapter = rowIndex + 1;
+        if (state.oldItems != null) {
+            items.diff = DiffUtil.calculateDiff(
+                    new MyDiffCallback(state.oldItems, items.items), false);
+            items.diffBaseVersion = state.oldItemsVersion;
         }
+        return items;
+    }
 
+    /**
+     * Replaces the adapter items and notifies the adapter of the changes. Changes computed in the
+     * background are only used if the adapter items did not change since.
+     */
+    private void commitAdapterItems(AdapterItems items) {
+        DiffUtil.DiffResult diff = null;
         if (mAdapter != null) {
-            DiffUtil.calculateDiff(new MyDiffCallback(oldItems, mAdapterItems), false)
-                    .dispatchUpdatesTo(mAdapter);
+            diff = items.diff != null && items.diffBaseVersion == mAdapterItemsVersion
+                    ? items.diff
+                    : DiffUtil.calculateDiff(new MyDiffCallback(
+                            new ArrayList<>(mAdapterItems), items.items), false);
+        }
+        mAdapterItemsVersion++;
+        mAdapterItems.clear();
+        mAdapterItems.addAll(items.items);
+        mFastScrollerSections.clear();
+        mFastScrollerSections.addAll(items.fastScrollerSections);
+        mAccessibilityResultsCount = items.accessibilityResultsCount;
+        if (items.numAppRows >= 0) {
+            mNumAppRowsInAdapter = items.numAppRows;
+        }
+        if (diff != null) {
+            diff.dispatchUpdatesTo(mAdapter);
         }
     }
 
-    int addPrivateSpaceItems(int position) {
-        if (mPrivateProviderManager != null
-                && !mPrivateProviderManager.isPrivateSpaceHidden()
-                && !mPrivateApps.isEmpty()) {
+    private int addPrivateSpaceItems(AdapterItems items, List<AppInfo> privateApps,
+            int position, ItemsState state) {
+        if (!privateApps.isEmpty()) {
             // Always add PS Header if Space is present and visible.
-            position = mPrivateProviderManager.addPrivateSpaceHeader(mAdapterItems);
-            int privateSpaceState = mPrivateProviderManager.getCurrentState();
-            switch (privateSpaceState) {
+            position = mPrivateProviderManager.addPrivateSpaceHeader(items.items);
+            switch (state.privateSpaceState) {
                 case PrivateProfileManager.STATE_DISABLED:
                 case PrivateProfileManager.STATE_TRANSITION:
                     break;
                 case PrivateProfileManager.STATE_ENABLED:
                     // Add PS Apps only in Enabled State.
-                    position = addPrivateSpaceApps(position);
+                    position = addPrivateSpaceApps(items, privateApps, position,
+                            state.numAppsPerRow);
                     break;
             }
         }
         return position;
     }
 
-    private int addPrivateSpaceApps(int position) {
+    private int addPrivateSpaceApps(AdapterItems items, List<AppInfo> privateApps,
+            int position, int numAppsPerRow) {
         // Add Install Apps Button first.
         if (Flags.privateSpaceAppInstallerButton()) {
-            mPrivateProviderManager.addPrivateSpaceInstallAppButton(mAdapterItems);
+            mPrivateProviderManager.addPrivateSpaceInstallAppButton(items.items);
             position++;
         }
 
         // Split of private space apps into user-installed and system apps.
-        Map<Boolean, List<AppInfo>> split = mPrivateApps.stream()
+        Map<Boolean, List<AppInfo>> split = privateApps.stream()
                 .collect(Collectors.partitioningBy(mPrivateProviderManager
                                 .splitIntoUserInstalledAndSystemApps()));
         // Add user installed apps
-        position = addAppsWithSections(split.get(true), position);
+        position = addAppsWithSections(items, split.get(true), position, numAppsPerRow);
         // Add system apps separator.
         if (Flags.privateSpaceSysAppsSeparation()) {
-            position = mPrivateProviderManager.addSystemAppsDivider(mAdapterItems);
+            position = mPrivateProviderManager.addSystemAppsDivider(items.items);
         }
         // Add system apps.
-        position = addAppsWithSections(split.get(false), position);
+        position = addAppsWithSections(items, split.get(false), position, numAppsPerRow);
 
         return position;
     }
 
-    private int addAppsWithSections(List<AppInfo> appList, int startPosition) {
+    private int addAppsWithSections(AdapterItems items, List<AppInfo> appList, int startPosition,
+            int numAppsPerRow) {
         String lastSectionName = null;
         boolean hasPrivateApps = false;
         if (mPrivateProviderManager != null) {
@@ -365,19 +494,20 @@ public class AlphabeticalAppsList<T extends Context & ActivityContext> implement
             AppInfo info = appList.get(i);
             // Apply decorator to private apps.
             if (hasPrivateApps) {
-                mAdapterItems.add(AdapterItem.asAppWithDecorationInfo(info,
+                items.items.add(AdapterItem.asAppWithDecorationInfo(info,
                         new SectionDecorationInfo(mActivityContext.getApplicationContext(),
-                                getRoundRegions(i, appList.size()),
+                                getRoundRegions(i, appList.size(), numAppsPerRow),
                                 true /* decorateTogether */)));
             } else {
-                mAdapterItems.add(AdapterItem.asApp(info));
+                items.items.add(AdapterItem.asApp(info));
             }
 
             String sectionName = info.sectionName;
             // Create a new section if the section names do not match
             if (!sectionName.equals(lastSectionName)) {
                 lastSectionName = sectionName;
-                mFastScrollerSections.add(new FastScrollSectionInfo(sectionName, startPosition));
+                items.fastScrollerSections.add(
+                        new FastScrollSectionInfo(sectionName, startPosition));
             }
             startPosition++;
         }
@@ -402,14 +532,18 @@ public class AlphabeticalAppsList<T extends Context & ActivityContext> implement
      */
     @VisibleForTesting
     int getRoundRegions(int appIndex, int appListSize) {
-        int numberOfAppRows = (int) Math.ceil((double) appListSize / mNumAppsPerRowAllApps);
+        return getRoundRegions(appIndex, appListSize, mNumAppsPerRowAllApps);
+    }
+
+    private static int getRoundRegions(int appIndex, int appListSize, int numAppsPerRow) {
+        int numberOfAppRows = (int) Math.ceil((double) appListSize / numAppsPerRow);
         int roundRegion = ROUND_NOTHING;
         // App is in the last row.
-        if ((appIndex / mNumAppsPerRowAllApps) == numberOfAppRows - 1) {
-            if ((appIndex % mNumAppsPerRowAllApps) == 0) {
+        if ((appIndex / numAppsPerRow) == numberOfAppRows - 1) {
+            if ((appIndex % numAppsPerRow) == 0) {
                 // App is the first column.
                 roundRegion = ROUND_BOTTOM_LEFT;
-            } else if ((appIndex % mNumAppsPerRowAllApps) == mNumAppsPerRowAllApps-1) {
+            } else if ((appIndex % numAppsPerRow) == numAppsPerRow - 1) {
                 // App is in the last column.
                 roundRegion = ROUND_BOTTOM_RIGHT;
             }
@@ -421,6 +555,71 @@ public class AlphabeticalAppsList<T extends Context & ActivityContext> implement
         return roundRegion;
     }
 
+    /**
+     * State the adapter items depend on besides the apps, read on the main thread
+     */
+    private static class ItemsState {
+
+        final ArrayList<AdapterItem> workItems = new ArrayList<>();
+        boolean addApps = true;
+        boolean addPrivateSpace;
+        int privateSpaceState;
+        int numAppsPerRow;
+
+        // Adapter items when the state was read, to compute the changes from
+        @Nullable
+        List<AdapterItem> oldItems;
+        int oldItemsVersion;
+    }
+
+    /**
+     * A set of adapter items with the state derived from them, built detached from the adapter
+     */
+    private static class AdapterItems {
+
+        final ArrayList<AdapterItem> items = new ArrayList<>();
+        final ArrayList<FastScrollSectionInfo> fastScrollerSections = new ArrayList<>();
+        int accessibilityResultsCount;
+        // Number of rows of apps, or -1 if unknown
+        int numAppRows = -1;
+
+        // Changes from the adapter items of version diffBaseVersion, if computed in the background
+        @Nullable
+        DiffUtil.DiffResult diff;
+        int diffBaseVersion;
+
+        void updateRowsAndCounts(int numAppsPerRow) {
+            accessibilityResultsCount = (int) items.stream()
+                    .filter(AdapterItem::isCountedForAccessibility).count();
+            if (numAppsPerRow == 0) {
+                return;
+            }
+            // Update the number of rows in the adapter after we do all the merging (otherwise, we
+            // would have to shift the values again)
+            int numAppsInSection = 0;
+            int numAppsInRow = 0;
+            int rowIndex = -1;
+            for (AdapterItem item : items) {
+                item.rowIndex = 0;
+                if (BaseAllAppsAdapter.isDividerViewType(item.viewType)
+                        || BaseAllAppsAdapter.isPrivateSpaceHeaderView(item.viewType)
+                        || BaseAllAppsAdapter.isPrivateSpaceSysAppsDividerView(item.viewType)) {
+                    numAppsInSection = 0;
+                } else if (BaseAllAppsAdapter.isIconViewType(item.viewType)) {
+                    if (numAppsInSection % numAppsPerRow == 0) {
+                        numAppsInRow = 0;
+                        rowIndex++;
+                    }
+                    item.rowIndex = rowIndex;
+                    item.rowAppIndex = numAppsInRow;
+                    numAppsInSection++;
+                    numAppsInRow++;
+                }
+            }
+            numAppRows = rowIndex + 1;
+        }
+    }
+
     private static class MyDiffCallback extends DiffUtil.Callback {
 
         private final List<AdapterItem> mOldList;
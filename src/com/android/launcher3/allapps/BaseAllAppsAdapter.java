@@ -268,6 +268,10 @@ public abstract class BaseAllAppsAdapter<T extends Context & ActivityContext> ex
                 AdapterItem adapterItem = mApps.getAdapterItems().get(position);
                 BubbleTextView icon = (BubbleTextView) holder.itemView;
                 icon.reset();
+                if (mApps.getLabelTextMetricsParams() == null) {
+                    mApps.setLabelTextMetricsParams(icon.getLabelTextMetricsParams());
+                }
+                icon.setPrecomputedLabelParams(mApps.getLabelTextMetricsParams());
                 icon.applyFromApplicationInfo(adapterItem.itemInfo);
                 icon.setOnFocusChangeListener(mIconFocusListener);
                 break;
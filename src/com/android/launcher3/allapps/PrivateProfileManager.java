@@ -82,22 +82,29 @@ public class PrivateProfileManager extends UserProfileManager {
         UI_HELPER_EXECUTOR.post(this::initializeInBackgroundThread);
     }
 
-    /** Adds Private Space Header to the layout. */
+    /**
+     * Adds Private Space Header to the provided items. The items are detached from the adapter, and
+     * can be built on a background thread.
+     */
     public int addPrivateSpaceHeader(ArrayList<BaseAllAppsAdapter.AdapterItem> adapterItems) {
         adapterItems.add(new BaseAllAppsAdapter.AdapterItem(VIEW_TYPE_PRIVATE_SPACE_HEADER));
-        mAllApps.mAH.get(MAIN).mAdapter.notifyItemInserted(adapterItems.size() - 1);
         return adapterItems.size();
     }
 
-    /** Adds Private Space System Apps Divider to the layout. */
+    /**
+     * Adds Private Space System Apps Divider to the provided items. The items are detached from
+     * the adapter, and can be built on a background thread.
+     */
     public int addSystemAppsDivider(List<BaseAllAppsAdapter.AdapterItem> adapterItems) {
         adapterItems.add(new BaseAllAppsAdapter
                 .AdapterItem(VIEW_TYPE_PRIVATE_SPACE_SYS_APPS_DIVIDER));
-        mAllApps.mAH.get(MAIN).mAdapter.notifyItemInserted(adapterItems.size() - 1);
         return adapterItems.size();
     }
 
-    /** Adds Private Space install app button to the layout. */
+    /**
+     * Adds Private Space install app button to the provided items. The items are detached from
+     * the adapter, and can be built on a background thread.
+     */
     public void addPrivateSpaceInstallAppButton(List<BaseAllAppsAdapter.AdapterItem> adapterItems) {
         Context context = mAllApps.getContext();
         // Prepare bitmapInfo
@@ -119,7 +126,6 @@ public class PrivateProfileManager extends UserProfileManager {
                 /* decorateTogether */ true);
 
         adapterItems.add(item);
-        mAllApps.mAH.get(MAIN).mAdapter.notifyItemInserted(adapterItems.size() - 1);
     }
 
     /**
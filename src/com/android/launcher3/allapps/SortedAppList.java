@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.allapps;
+
+import android.content.Context;
+import android.os.Process;
+import android.os.UserHandle;
+
+import androidx.annotation.NonNull;
+
+import com.android.launcher3.model.data.AppInfo;
+import com.android.launcher3.pm.UserCache;
+import com.android.launcher3.util.ComponentKey;
+
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * List of apps kept sorted by title, in the same order as {@link AppInfoComparator}.
+ *
+ * The sorting title of each app is converted to a {@link CollationKey} once, so that comparisons
+ * don't go through the {@link Collator} again. When the apps are updated, only the apps which were
+ * added, removed or renamed are moved, using binary search instead of sorting the whole list.
+ */
+class SortedAppList {
+
+    private final Collator mCollator = Collator.getInstance();
+    private final UserCache mUserCache;
+    private final UserHandle mMyUser = Process.myUserHandle();
+
+    private final ArrayList<Entry> mEntries = new ArrayList<>();
+    private final HashMap<ComponentKey, Entry> mEntriesByKey = new HashMap<>();
+    private List<AppInfo> mSortedApps = Collections.emptyList();
+
+    SortedAppList(Context context) {
+        mUserCache = UserCache.INSTANCE.get(context);
+    }
+
+    /**
+     * Returns an immutable snapshot of the sorted apps, which is safe to use on any thread
+     */
+    @NonNull
+    List<AppInfo> getApps() {
+        return mSortedApps;
+    }
+
+    /**
+     * Updates the list with the new set of apps
+     */
+    void update(@NonNull AppInfo[] apps) {
+        HashMap<ComponentKey, Entry> oldEntries = new HashMap<>(mEntriesByKey);
+        mEntriesByKey.clear();
+        List<Entry> addedEntries = new ArrayList<>();
+        for (AppInfo app : apps) {
+            ComponentKey key = new ComponentKey(app.componentName, app.user);
+            Entry entry = oldEntries.remove(key);
+            String title = getSortingTitle(app);
+            if (entry != null && entry.title.equals(title)) {
+                // The app instance may have changed, but not its position
+                entry.info = app;
+            } else {
+                if (entry != null) {
+                    removeEntry(entry);
+                }
+                entry = new Entry(app, title);
+                addedEntries.add(entry);
+            }
+            mEntriesByKey.put(key, entry);
+        }
+        for (Entry entry : oldEntries.values()) {
+            removeEntry(entry);
+        }
+
+        if (addedEntries.size() > mEntries.size()) {
+            // Mostly new apps, like the first update: sorting all the keys is cheaper
+            mEntries.addAll(addedEntries);
+            Collections.sort(mEntries);
+        } else {
+            for (Entry entry : addedEntries) {
+                int index = Collections.binarySearch(mEntries, entry);
+                mEntries.add(index < 0 ? -index - 1 : index, entry);
+            }
+        }
+
+        AppInfo[] sortedApps = new AppInfo[mEntries.size()];
+        for (int i = 0; i < sortedApps.length; i++) {
+            sortedApps[i] = mEntries.get(i).info;
+        }
+        mSortedApps = Collections.unmodifiableList(Arrays.asList(sortedApps));
+    }
+
+    private void removeEntry(Entry entry) {
+        int index = Collections.binarySearch(mEntries, entry);
+        if (index >= 0 && mEntries.get(index) == entry) {
+            mEntries.remove(index);
+        } else {
+            mEntries.remove(entry);
+        }
+    }
+
+    private static String getSortingTitle(AppInfo info) {
+        if (info.appTitle != null) {
+            return info.appTitle.toString();
+        }
+        if (info.title != null) {
+            return info.title.toString();
+        }
+        return "";
+    }
+
+    private class Entry implements Comparable<Entry> {
+
+        AppInfo info;
+        final String title;
+        final CollationKey titleKey;
+        // Titles which don't start with a linguistic letter or digit are sorted last
+        final boolean startsWithLetter;
+        final boolean isMyUser;
+        final long userSerial;
+
+        Entry(AppInfo info, String title) {
+            this.info = info;
+            this.title = title;
+            titleKey = mCollator.getCollationKey(title);
+            startsWithLetter = title.length() > 0
+                    && Character.isLetterOrDigit(title.codePointAt(0));
+            isMyUser = mMyUser.equals(info.user);
+            userSerial = isMyUser ? 0 : mUserCache.getSerialNumberForUser(info.user);
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            if (startsWithLetter != other.startsWithLetter) {
+                return startsWithLetter ? -1 : 1;
+            }
+            int result = titleKey.compareTo(other.titleKey);
+            if (result != 0) {
+                return result;
+            }
+            result = info.componentName.compareTo(other.info.componentName);
+            if (result != 0) {
+                return result;
+            }
+            if (isMyUser != other.isMyUser) {
+                return isMyUser ? -1 : 1;
+            }
+            return Long.compare(userSerial, other.userSerial);
+        }
+    }
+}
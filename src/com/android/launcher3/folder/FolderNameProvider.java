@@ -24,14 +24,11 @@ import android.os.UserHandle;
 import android.text.TextUtils;
 import android.util.Log;
 
-import androidx.annotation.NonNull;
 import androidx.annotation.WorkerThread;
 
 import com.android.launcher3.LauncherAppState;
 import com.android.launcher3.R;
 import com.android.launcher3.Utilities;
-import com.android.launcher3.model.AllAppsList;
-import com.android.launcher3.model.BaseModelUpdateTask;
 import com.android.launcher3.model.BgDataModel;
 import com.android.launcher3.model.StringCache;
 import com.android.launcher3.model.data.AppInfo;
@@ -42,7 +39,6 @@ import com.android.launcher3.util.Preconditions;
 import com.android.launcher3.util.ResourceBasedOverride;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
@@ -89,8 +85,14 @@ public class FolderNameProvider implements ResourceBasedOverride {
     }
 
     private void load(Context context) {
-        LauncherAppState.getInstance(context).getModel().enqueueModelUpdateTask(
-                new FolderNameWorker());
+        // Read from the published model snapshot instead of waiting behind the model tasks
+        BgDataModel.Snapshot snapshot =
+                LauncherAppState.getInstance(context).getModel().getModelSnapshot();
+        IntSparseArrayMap<FolderInfo> folderInfos = new IntSparseArrayMap<>();
+        for (FolderInfo info : snapshot.folders) {
+            folderInfos.put(info.id, info);
+        }
+        load(snapshot.apps, folderInfos);
     }
 
     private void load(List<AppInfo> appInfos, IntSparseArrayMap<FolderInfo> folderInfos) {
@@ -191,13 +193,4 @@ public class FolderNameProvider implements ResourceBasedOverride {
         nameInfos.setLabel(labels.length - 1, label, 1.0f);
     }
 
-    private class FolderNameWorker extends BaseModelUpdateTask {
-        @Override
-        public void execute(@NonNull final LauncherAppState app,
-                @NonNull final BgDataModel dataModel, @NonNull final AllAppsList apps) {
-            mFolderInfos = dataModel.folders.clone();
-            mAppInfos = Arrays.asList(apps.copyData());
-        }
-    }
-
 }
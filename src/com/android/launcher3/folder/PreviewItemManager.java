@@ -22,16 +22,20 @@ import static com.android.launcher3.folder.ClippedFolderIconLayoutRule.MAX_NUM_I
 import static com.android.launcher3.folder.FolderIcon.DROP_IN_ANIMATION_DURATION;
 import static com.android.launcher3.graphics.PreloadIconDrawable.newPendingIcon;
 import static com.android.launcher3.icons.BitmapInfo.FLAG_THEMED;
+import static com.android.launcher3.util.Executors.MAIN_EXECUTOR;
 
 import android.animation.Animator;
 import android.animation.AnimatorListenerAdapter;
 import android.animation.ObjectAnimator;
 import android.animation.ValueAnimator;
 import android.content.Context;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
+import android.graphics.Paint;
 import android.graphics.Path;
 import android.graphics.PointF;
 import android.graphics.Rect;
+import android.graphics.RectF;
 import android.graphics.drawable.Drawable;
 import android.util.FloatProperty;
 import android.view.View;
@@ -42,6 +46,7 @@ import androidx.annotation.VisibleForTesting;
 import com.android.launcher3.BubbleTextView;
 import com.android.launcher3.Utilities;
 import com.android.launcher3.graphics.PreloadIconDrawable;
+import com.android.launcher3.icons.BitmapRenderer;
 import com.android.launcher3.model.data.ItemInfoWithIcon;
 import com.android.launcher3.model.data.WorkspaceItemInfo;
 import com.android.launcher3.util.Themes;
@@ -96,6 +101,20 @@ public class PreviewItemManager {
     private float mCurrentPageItemsTransX = 0;
     private boolean mShouldSlideInFirstPage;
 
+    // The first page items rendered at rest, which are drawn instead of each item while they don't
+    // change, as all the folder icons of a page are redrawn when the workspace scrolls
+    private Bitmap mPreviewBitmap;
+    private boolean mPreviewBitmapValid;
+    // Position of the bitmap relative to the preview offset
+    private final RectF mPreviewBitmapBounds = new RectF();
+    // The state of the items the bitmap was rendered with
+    private final ArrayList<PreviewItemDrawingParams> mPreviewBitmapParams = new ArrayList<>();
+    private float mPreviewBitmapIconSize;
+    private final Paint mPreviewBitmapPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    // The bitmap is rendered after the frame which found it out of date, not during its draw
+    private final Runnable mRenderPreviewBitmapRunnable = this::renderPreviewBitmapIfNeeded;
+    private boolean mPreviewBitmapRenderPending;
+
     static final int INITIAL_ITEM_ANIMATION_DURATION = 350;
     private static final int FINAL_ITEM_ANIMATION_DURATION = 200;
 
@@ -208,10 +227,133 @@ public class PreviewItemManager {
         PointF firstPageOffset = new PointF(bg.basePreviewOffsetX + firstPageItemsTransX,
                 bg.basePreviewOffsetY);
         boolean shouldClipFirstPage = firstPageItemsTransX < -mClipThreshold;
-        drawParams(canvas, mFirstPageParams, firstPageOffset, shouldClipFirstPage, clipPath);
+        // The bitmap is a hardware bitmap, which can't be drawn in software
+        if (mShouldSlideInFirstPage || !canvas.isHardwareAccelerated()
+                || !drawPreviewBitmap(canvas, firstPageOffset)) {
+            drawParams(canvas, mFirstPageParams, firstPageOffset, shouldClipFirstPage, clipPath);
+        }
         canvas.restoreToCount(saveCount);
     }
 
+    /**
+     * Draws the first page items from the bitmap rendered at rest. If they changed since, the
+     * bitmap is rendered again after this frame.
+     *
+     * @return false if the items need to be drawn one by one, as they are not at rest or the
+     *         bitmap is not up to date
+     */
+    private boolean drawPreviewBitmap(Canvas canvas, PointF offset) {
+        if (!isPreviewAtRest()) {
+            return false;
+        }
+        if (!mPreviewBitmapValid || !matchesPreviewBitmapParams()) {
+            // Rendering costs more than drawing the items once, so it is kept out of the frame.
+            // Otherwise the first frame after a bind renders the bitmaps of all the folders.
+            if (!mPreviewBitmapRenderPending) {
+                mPreviewBitmapRenderPending = true;
+                MAIN_EXECUTOR.post(mRenderPreviewBitmapRunnable);
+            }
+            return false;
+        }
+        if (mPreviewBitmap == null) {
+            return false;
+        }
+        canvas.drawBitmap(mPreviewBitmap, offset.x + mPreviewBitmapBounds.left,
+                offset.y + mPreviewBitmapBounds.top, mPreviewBitmapPaint);
+        return true;
+    }
+
+    private boolean isPreviewAtRest() {
+        if (mFirstPageParams.isEmpty()) {
+            return false;
+        }
+        for (PreviewItemDrawingParams p : mFirstPageParams) {
+            // Exiting items are clipped, and pending icons show the download progress
+            if (p.anim != null || p.index == EXIT_INDEX || p.drawable == null
+                    || p.drawable instanceof PreloadIconDrawable) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean matchesPreviewBitmapParams() {
+        if (mPreviewBitmapIconSize != mIntrinsicIconSize
+                || mPreviewBitmapParams.size() != mFirstPageParams.size()) {
+            return false;
+        }
+        for (int i = 0; i < mFirstPageParams.size(); i++) {
+            PreviewItemDrawingParams p = mFirstPageParams.get(i);
+            PreviewItemDrawingParams rendered = mPreviewBitmapParams.get(i);
+            if (p.drawable != rendered.drawable || p.hidden != rendered.hidden
+                    || p.transX != rendered.transX || p.transY != rendered.transY
+                    || p.scale != rendered.scale) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void renderPreviewBitmapIfNeeded() {
+        mPreviewBitmapRenderPending = false;
+        if (isPreviewAtRest() && (!mPreviewBitmapValid || !matchesPreviewBitmapParams())) {
+            renderPreviewBitmap();
+            mIcon.invalidate();
+        }
+    }
+
+    private void renderPreviewBitmap() {
+        mPreviewBitmapParams.clear();
+        mPreviewBitmapBounds.setEmpty();
+        for (PreviewItemDrawingParams p : mFirstPageParams) {
+            PreviewItemDrawingParams rendered =
+                    new PreviewItemDrawingParams(p.transX, p.transY, p.scale);
+            rendered.drawable = p.drawable;
+            rendered.hidden = p.hidden;
+            mPreviewBitmapParams.add(rendered);
+            if (!p.hidden) {
+                float size = mIntrinsicIconSize * p.scale;
+                mPreviewBitmapBounds.union(p.transX, p.transY, p.transX + size, p.transY + size);
+            }
+        }
+        mPreviewBitmapIconSize = mIntrinsicIconSize;
+        mPreviewBitmapValid = true;
+
+        Rect bounds = new Rect();
+        mPreviewBitmapBounds.roundOut(bounds);
+        mPreviewBitmapBounds.set(bounds);
+        if (bounds.isEmpty()) {
+            mPreviewBitmap = null;
+            return;
+        }
+        PointF offset = new PointF(-bounds.left, -bounds.top);
+        mPreviewBitmap = BitmapRenderer.createHardwareBitmap(bounds.width(), bounds.height(),
+                c -> drawParams(c, mFirstPageParams, offset, false, null));
+    }
+
+    /**
+     * Renders the preview bitmap again on the next draw, as a preview item changed
+     */
+    void invalidatePreviewBitmap() {
+        mPreviewBitmapValid = false;
+    }
+
+    /**
+     * Frees the preview bitmap, which is rendered again when the icon is next drawn
+     */
+    void releasePreviewBitmap() {
+        MAIN_EXECUTOR.getHandler().removeCallbacks(mRenderPreviewBitmapRunnable);
+        mPreviewBitmapRenderPending = false;
+        mPreviewBitmap = null;
+        mPreviewBitmapValid = false;
+        mPreviewBitmapParams.clear();
+    }
+
+    @VisibleForTesting
+    Bitmap getPreviewBitmap() {
+        return mPreviewBitmap;
+    }
+
     public void onParamsChanged() {
         mIcon.invalidate();
     }
@@ -74,6 +74,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.stream.Stream;
@@ -107,6 +108,10 @@ public class IconCache extends BaseIconCache {
 
     private int mPendingIconRequestCount = 0;
 
+    // Stats for the icons applied to items, since process start
+    private final AtomicLong mLookupCount = new AtomicLong();
+    private final AtomicLong mMissCount = new AtomicLong();
+
     public IconCache(Context context, InvariantDeviceProfile idp, String dbFileName,
             IconProvider iconProvider) {
         super(context, dbFileName, MODEL_EXECUTOR.getLooper(),
@@ -588,13 +593,31 @@ public class IconCache extends BaseIconCache {
         info.title = Utilities.trim(entry.title);
         info.contentDescription = entry.contentDescription;
         info.bitmap = entry.bitmap;
+        mLookupCount.incrementAndGet();
         if (entry.bitmap == null) {
             // TODO: entry.bitmap can never be null, so this should not happen at all.
             Log.wtf(TAG, "Cannot find bitmap from the cache, default icon was loaded.");
             info.bitmap = getDefaultIcon(info.user);
+            mMissCount.incrementAndGet();
+        } else if (isDefaultIcon(entry.bitmap, info.user)) {
+            mMissCount.incrementAndGet();
         }
     }
 
+    /**
+     * Returns the number of cache entries applied to items since process start
+     */
+    public long getLookupCount() {
+        return mLookupCount.get();
+    }
+
+    /**
+     * Returns the number of cache entries applied to items which did not provide a real icon
+     */
+    public long getMissCount() {
+        return mMissCount.get();
+    }
+
     protected void applyPackageEntry(@NonNull final CacheEntry packageEntry,
             @NonNull final ItemInfoWithIcon info, @NonNull final CacheEntry fallbackEntry) {
         info.title = Utilities.trim(packageEntry.title);
@@ -15,10 +15,14 @@ import com.android.launcher3.util.IOUtils;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
-import java.io.FileWriter;
+import java.io.IOException;
 import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.text.DateFormat;
-import java.util.Calendar;
 import java.util.Date;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
@@ -27,26 +31,43 @@ import java.util.concurrent.TimeUnit;
  * Wrapper around {@link Log} to allow writing to a file.
  * This class can safely be called from main thread.
  *
+ * Log calls only record the raw entry into a preallocated ring buffer. Formatting and disk writes
+ * happen in batches on a background thread.
+ *
  * Note: This should only be used for logging errors which have a persistent effect on user's data,
  * but whose effect may not be visible immediately.
  */
 public final class FileLog {
 
     protected static final boolean ENABLED = true;
+    private static final String TAG = "FileLog";
     private static final String FILE_NAME_PREFIX = "log-";
     private static final DateFormat DATE_FORMAT =
             DateFormat.getDateTimeInstance(DateFormat.SHORT, DateFormat.SHORT);
 
-    private static final long MAX_LOG_FILE_SIZE = 8 << 20;  // 4 mb
+    private static final long MAX_LOG_FILE_SIZE = 8 << 20;  // 8 mb across all files
+
+    /** Number of log files, the current file is rotated once it reaches its share of the size */
+    public static final int LOG_FILE_COUNT = 4;
+    private static final long MAX_SINGLE_FILE_SIZE = MAX_LOG_FILE_SIZE / LOG_FILE_COUNT;
+    /** Log files which were not modified for this long are purged */
+    private static final long MAX_LOG_AGE_HOURS = 36;
+
+    /** Number of entries which can be recorded before the writer thread drains them */
+    @VisibleForTesting
+    static final int RING_CAPACITY = 512;
+    /** Delay before pending entries are written, so that bursts are written together */
+    private static final long WRITE_DELAY_MS = 100;
+
+    private static final Object LOCK = new Object();
+    private static final LogRing sRing = new LogRing(RING_CAPACITY);
 
     private static Handler sHandler = null;
     private static File sLogsDirectory = null;
 
-    public static final int LOG_DAYS = 4;
-
     public static void setDir(File logsDir) {
         if (ENABLED) {
-            synchronized (DATE_FORMAT) {
+            synchronized (LOCK) {
                 // If the target directory changes, stop any active thread.
                 if (sHandler != null && !logsDir.equals(sLogsDirectory)) {
                     ((HandlerThread) sHandler.getLooper().getThread()).quit();
@@ -105,16 +126,19 @@ public final class FileLog {
         if (!ENABLED) {
             return;
         }
-        String out = String.format("%s %s %s", DATE_FORMAT.format(new Date()), tag, msg);
-        if (e != null) {
-            out += "\n" + Log.getStackTraceString(e);
+        int pendingCount = sRing.add(System.currentTimeMillis(), tag, msg, e);
+        if (pendingCount == 1) {
+            // First entry of a new batch
+            getHandler().sendEmptyMessageDelayed(LogWriterCallback.MSG_WRITE, WRITE_DELAY_MS);
+        } else if (pendingCount == RING_CAPACITY / 2) {
+            // Write early to avoid dropping entries
+            getHandler().sendEmptyMessage(LogWriterCallback.MSG_WRITE);
         }
-        Message.obtain(getHandler(), LogWriterCallback.MSG_WRITE, out).sendToTarget();
     }
 
     @VisibleForTesting
     static Handler getHandler() {
-        synchronized (DATE_FORMAT) {
+        synchronized (LOCK) {
             if (sHandler == null) {
                 sHandler = new Handler(createAndStartNewLooper("file-logger"),
                         new LogWriterCallback());
@@ -139,10 +163,91 @@ public final class FileLog {
         return latch.getCount() == 0;
     }
 
+    /**
+     * Fixed size ring of log entries, recorded without any formatting. If the writer falls behind,
+     * the oldest entries are overwritten, and a line with the number of dropped entries and their
+     * time range is written to the file in their place.
+     */
+    @VisibleForTesting
+    static class LogRing {
+
+        private final long[] mTimes;
+        private final String[] mTags;
+        private final String[] mMessages;
+        private final Exception[] mErrors;
+
+        private int mStart = 0;
+        private int mCount = 0;
+        private int mDroppedCount = 0;
+        private long mFirstDroppedTime;
+        private long mLastDroppedTime;
+
+        LogRing(int capacity) {
+            mTimes = new long[capacity];
+            mTags = new String[capacity];
+            mMessages = new String[capacity];
+            mErrors = new Exception[capacity];
+        }
+
+        /**
+         * Adds an entry and returns the number of pending entries
+         */
+        synchronized int add(long time, String tag, String msg, Exception e) {
+            int capacity = mTimes.length;
+            if (mCount == capacity) {
+                if (mDroppedCount == 0) {
+                    mFirstDroppedTime = mTimes[mStart];
+                    Log.w(TAG, "Log writer fell behind, dropping the oldest entries");
+                }
+                mLastDroppedTime = mTimes[mStart];
+                mStart = (mStart + 1) % capacity;
+                mCount--;
+                mDroppedCount++;
+            }
+            int index = (mStart + mCount) % capacity;
+            mTimes[index] = time;
+            mTags[index] = tag;
+            mMessages[index] = msg;
+            mErrors[index] = e;
+            mCount++;
+            return mCount;
+        }
+
+        /**
+         * Formats all the pending entries into {@param out} and clears them
+         */
+        synchronized void drainTo(StringBuilder out, Date tempDate) {
+            if (mDroppedCount > 0) {
+                tempDate.setTime(mFirstDroppedTime);
+                out.append(DATE_FORMAT.format(tempDate)).append(' ').append(TAG).append(' ')
+                        .append(mDroppedCount).append(" log entries dropped, logged until ");
+                tempDate.setTime(mLastDroppedTime);
+                out.append(DATE_FORMAT.format(tempDate)).append('\n');
+                mDroppedCount = 0;
+            }
+            int capacity = mTimes.length;
+            for (int i = 0; i < mCount; i++) {
+                int index = (mStart + i) % capacity;
+                tempDate.setTime(mTimes[index]);
+                out.append(DATE_FORMAT.format(tempDate)).append(' ')
+                        .append(mTags[index]).append(' ')
+                        .append(mMessages[index]).append('\n');
+                if (mErrors[index] != null) {
+                    out.append(Log.getStackTraceString(mErrors[index])).append('\n');
+                }
+                mTags[index] = null;
+                mMessages[index] = null;
+                mErrors[index] = null;
+            }
+            mStart = 0;
+            mCount = 0;
+        }
+    }
+
     /**
      * Writes logs to the file.
-     * Log files are named log-0 for even days of the year and log-1 for odd days of the year.
-     * Logs older than 36 hours are purged.
+     * Logs are appended to log-0, which is rotated to log-1 and so on once it reaches its maximum
+     * size. Files which have not been written to for more than 36 hours are purged.
      */
     private static class LogWriterCallback implements Handler.Callback {
 
@@ -152,12 +257,71 @@ public final class FileLog {
         private static final int MSG_CLOSE = 2;
         private static final int MSG_FLUSH = 3;
 
-        private String mCurrentFileName = null;
-        private PrintWriter mCurrentWriter = null;
+        private final StringBuilder mBuffer = new StringBuilder();
+        private final Date mTempDate = new Date();
+
+        private FileChannel mCurrentChannel = null;
 
         private void closeWriter() {
-            IOUtils.closeSilently(mCurrentWriter);
-            mCurrentWriter = null;
+            IOUtils.closeSilently(mCurrentChannel);
+            mCurrentChannel = null;
+        }
+
+        /**
+         * Writes all the pending entries to the current log file in a single batch
+         */
+        private void writePending() {
+            mBuffer.setLength(0);
+            sRing.drainTo(mBuffer, mTempDate);
+            if (mBuffer.length() == 0) {
+                return;
+            }
+            try {
+                if (mCurrentChannel == null) {
+                    mCurrentChannel = openLogFile();
+                } else if (mCurrentChannel.size() >= MAX_SINGLE_FILE_SIZE) {
+                    closeWriter();
+                    rotateFiles();
+                    mCurrentChannel = openLogFile();
+                }
+                ByteBuffer bytes = StandardCharsets.UTF_8.encode(CharBuffer.wrap(mBuffer));
+                while (bytes.hasRemaining()) {
+                    mCurrentChannel.write(bytes);
+                }
+                mCurrentChannel.force(false);
+
+                // Auto close file stream after some time.
+                sHandler.removeMessages(MSG_CLOSE);
+                sHandler.sendEmptyMessageDelayed(MSG_CLOSE, CLOSE_DELAY);
+            } catch (Exception e) {
+                Log.e(TAG, "Error writing logs to file", e);
+                // Close stream, will try reopening during next log
+                closeWriter();
+            }
+        }
+
+        private FileChannel openLogFile() throws IOException {
+            long purgeTime =
+                    System.currentTimeMillis() - TimeUnit.HOURS.toMillis(MAX_LOG_AGE_HOURS);
+            for (int i = 0; i < LOG_FILE_COUNT; i++) {
+                File file = new File(sLogsDirectory, FILE_NAME_PREFIX + i);
+                if (file.exists() && file.lastModified() < purgeTime) {
+                    file.delete();
+                }
+            }
+            return FileChannel.open(new File(sLogsDirectory, FILE_NAME_PREFIX + 0).toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+        }
+
+        private void rotateFiles() {
+            new File(sLogsDirectory, FILE_NAME_PREFIX + (LOG_FILE_COUNT - 1)).delete();
+            for (int i = LOG_FILE_COUNT - 2; i >= 0; i--) {
+                File file = new File(sLogsDirectory, FILE_NAME_PREFIX + i);
+                if (file.exists()) {
+                    file.renameTo(new File(sLogsDirectory, FILE_NAME_PREFIX + (i + 1)));
+                }
+            }
         }
 
         @Override
@@ -167,44 +331,8 @@ public final class FileLog {
             }
             switch (msg.what) {
                 case MSG_WRITE: {
-                    Calendar cal = Calendar.getInstance();
-                    // suffix with 0 or 1 based on the day of the year.
-                    String fileName = FILE_NAME_PREFIX + (cal.get(Calendar.DAY_OF_YEAR) % LOG_DAYS);
-
-                    if (!fileName.equals(mCurrentFileName)) {
-                        closeWriter();
-                    }
-
-                    try {
-                        if (mCurrentWriter == null) {
-                            mCurrentFileName = fileName;
-
-                            boolean append = false;
-                            File logFile = new File(sLogsDirectory, fileName);
-                            if (logFile.exists()) {
-                                Calendar modifiedTime = Calendar.getInstance();
-                                modifiedTime.setTimeInMillis(logFile.lastModified());
-
-                                // If the file was modified more that 36 hours ago, purge the file.
-                                // We use instead of 24 to account for day-365 followed by day-1
-                                modifiedTime.add(Calendar.HOUR, 36);
-                                append = cal.before(modifiedTime)
-                                        && logFile.length() < MAX_LOG_FILE_SIZE;
-                            }
-                            mCurrentWriter = new PrintWriter(new FileWriter(logFile, append));
-                        }
-
-                        mCurrentWriter.println((String) msg.obj);
-                        mCurrentWriter.flush();
-
-                        // Auto close file stream after some time.
-                        sHandler.removeMessages(MSG_CLOSE);
-                        sHandler.sendEmptyMessageDelayed(MSG_CLOSE, CLOSE_DELAY);
-                    } catch (Exception e) {
-                        Log.e("FileLog", "Error writing logs to file", e);
-                        // Close stream, will try reopening during next log
-                        closeWriter();
-                    }
+                    sHandler.removeMessages(MSG_WRITE);
+                    writePending();
                     return true;
                 }
                 case MSG_CLOSE: {
@@ -212,12 +340,15 @@ public final class FileLog {
                     return true;
                 }
                 case MSG_FLUSH: {
+                    sHandler.removeMessages(MSG_WRITE);
+                    writePending();
                     closeWriter();
                     Pair<PrintWriter, CountDownLatch> p =
                             (Pair<PrintWriter, CountDownLatch>) msg.obj;
 
                     if (p.first != null) {
-                        for (int i = 0; i < LOG_DAYS; i++) {
+                        // Dump the oldest file first
+                        for (int i = LOG_FILE_COUNT - 1; i >= 0; i--) {
                             dumpFile(p.first, FILE_NAME_PREFIX + i);
                         }
                     }
@@ -257,8 +388,8 @@ public final class FileLog {
         try {
             flushAll(null);
         } catch (InterruptedException e) { }
-        File[] files = new File[LOG_DAYS];
-        for (int i = 0; i < LOG_DAYS; i++) {
+        File[] files = new File[LOG_FILE_COUNT];
+        for (int i = 0; i < LOG_FILE_COUNT; i++) {
             files[i] = new File(sLogsDirectory, FILE_NAME_PREFIX + i);
         }
         return files;
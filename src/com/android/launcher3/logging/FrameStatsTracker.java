@@ -0,0 +1,207 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.logging;
+
+import android.view.Choreographer;
+import android.view.Display;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.UiThread;
+import androidx.annotation.VisibleForTesting;
+
+import com.android.launcher3.Utilities;
+import com.android.launcher3.util.LogConfig;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects frame durations while animated sections, like state transitions or page scrolls, are
+ * running, and keeps a histogram per section to track animation smoothness.
+ *
+ * Sections are identified by a key and can overlap, in which case each frame is counted for all
+ * the active sections. A frame is considered dropped if it took longer than 1.5 times the frame
+ * interval of the display.
+ *
+ * Collection is opt-in with the {@link LogConfig#FRAME_STATS} log tag, which is checked each time
+ * a section begins. The stats are only exported through dumpsys.
+ */
+@UiThread
+public class FrameStatsTracker implements Choreographer.FrameCallback {
+
+    public static final FrameStatsTracker INSTANCE = new FrameStatsTracker();
+
+    // Frame durations are bucketed by milliseconds, with the last bucket containing all the
+    // frames longer than that.
+    @VisibleForTesting
+    static final int MAX_BUCKET_MS = 100;
+
+    private static final long DEFAULT_FRAME_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1) / 60;
+
+    private final HashMap<String, SectionStats> mSections = new HashMap<>();
+    private final ArrayList<SectionStats> mActiveSections = new ArrayList<>();
+
+    private long mLastFrameTimeNanos = 0;
+    private boolean mCallbackPosted = false;
+
+    @VisibleForTesting
+    FrameStatsTracker() { }
+
+    /**
+     * Starts collecting frames for the provided section
+     *
+     * @param display the display the section is rendered on, used to identify dropped frames
+     */
+    public void beginSection(@NonNull String key, @Nullable Display display) {
+        if (!Utilities.isPropertyEnabled(LogConfig.FRAME_STATS)) {
+            return;
+        }
+        SectionStats section = mSections.get(key);
+        if (section == null) {
+            section = new SectionStats(key);
+            mSections.put(key, section);
+        }
+        long frameIntervalNanos = DEFAULT_FRAME_INTERVAL_NANOS;
+        if (display != null && display.getRefreshRate() > 0) {
+            frameIntervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / display.getRefreshRate());
+        }
+        section.begin(frameIntervalNanos);
+        if (!mActiveSections.contains(section)) {
+            mActiveSections.add(section);
+        }
+        if (!mCallbackPosted) {
+            mCallbackPosted = true;
+            mLastFrameTimeNanos = 0;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    /**
+     * Stops collecting frames for the provided section
+     */
+    public void endSection(@NonNull String key) {
+        SectionStats section = mSections.get(key);
+        if (section == null || !mActiveSections.remove(section)) {
+            return;
+        }
+        section.instanceCount++;
+        if (mActiveSections.isEmpty() && mCallbackPosted) {
+            mCallbackPosted = false;
+            Choreographer.getInstance().removeFrameCallback(this);
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (mActiveSections.isEmpty()) {
+            mCallbackPosted = false;
+            return;
+        }
+        if (mLastFrameTimeNanos > 0) {
+            recordFrame(frameTimeNanos - mLastFrameTimeNanos);
+        }
+        mLastFrameTimeNanos = frameTimeNanos;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    @VisibleForTesting
+    void recordFrame(long frameDurationNanos) {
+        for (int i = mActiveSections.size() - 1; i >= 0; i--) {
+            mActiveSections.get(i).addFrame(frameDurationNanos);
+        }
+    }
+
+    /**
+     * Returns the stats collected for the provided section, or null if it never started
+     */
+    @VisibleForTesting
+    @Nullable
+    SectionStats getSectionStats(@NonNull String key) {
+        return mSections.get(key);
+    }
+
+    public void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + "FrameStatsTracker:");
+        for (SectionStats section : mSections.values()) {
+            writer.println(prefix + "\t" + section.key
+                    + ": instances=" + section.instanceCount
+                    + " frames=" + section.frameCount
+                    + " dropped=" + section.droppedCount
+                    + " p50=" + section.getPercentileMs(50) + "ms"
+                    + " p90=" + section.getPercentileMs(90) + "ms"
+                    + " p99=" + section.getPercentileMs(99) + "ms"
+                    + " max=" + section.maxFrameMs + "ms");
+        }
+    }
+
+    /**
+     * Frame histogram of a single section, across all its instances
+     */
+    @VisibleForTesting
+    static class SectionStats {
+
+        final String key;
+        final int[] buckets = new int[MAX_BUCKET_MS + 1];
+
+        int instanceCount;
+        int frameCount;
+        int droppedCount;
+        int maxFrameMs;
+
+        // Frame interval of the display for the currently running instance
+        long frameIntervalNanos;
+
+        SectionStats(String key) {
+            this.key = key;
+        }
+
+        void begin(long frameIntervalNanos) {
+            this.frameIntervalNanos = frameIntervalNanos;
+        }
+
+        void addFrame(long frameDurationNanos) {
+            int frameMs = (int) TimeUnit.NANOSECONDS.toMillis(frameDurationNanos);
+            buckets[Math.min(frameMs, MAX_BUCKET_MS)]++;
+            frameCount++;
+            maxFrameMs = Math.max(maxFrameMs, frameMs);
+            if (frameDurationNanos * 2 > frameIntervalNanos * 3) {
+                droppedCount++;
+            }
+        }
+
+        /**
+         * Returns the frame duration, in milliseconds, at the provided percentile
+         */
+        int getPercentileMs(int percentile) {
+            if (frameCount == 0) {
+                return 0;
+            }
+            // Rank of the frame at the percentile, rounded up
+            int rank = (int) Math.ceil(frameCount * percentile / 100f);
+            int count = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                count += buckets[i];
+                if (count >= rank) {
+                    return i;
+                }
+            }
+            return MAX_BUCKET_MS;
+        }
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.logging;
+
+import static com.android.launcher3.util.Executors.MODEL_EXECUTOR;
+import static com.android.launcher3.util.Executors.ORDERED_BG_EXECUTOR;
+import static com.android.launcher3.util.Executors.THREAD_POOL_EXECUTOR;
+import static com.android.launcher3.util.Executors.UI_HELPER_EXECUTOR;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+
+import com.android.launcher3.Utilities;
+import com.android.launcher3.tracing.ExecutorStateProto;
+import com.android.launcher3.tracing.LauncherTraceEntryProto;
+import com.android.launcher3.tracing.LauncherTraceFileProto;
+import com.android.launcher3.tracing.LauncherTraceProto;
+import com.android.launcher3.tracing.PerfSnapshotProto;
+import com.android.launcher3.util.LogConfig;
+import com.android.launcher3.util.LooperExecutor;
+import com.android.launcher3.util.MainThreadInitializedObject;
+import com.android.launcher3.util.SafeCloseable;
+import com.android.launcher3.util.ScreenOnTracker;
+import com.android.launcher3.util.ScreenOnTracker.ScreenOnListener;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Periodically records a snapshot of the launcher state (model, caches and executor queues) in a
+ * bounded on-disk ring, so that the state leading to a slowdown can be reconstructed from a bug
+ * report.
+ *
+ * The ring is made of two files in the {@link LauncherTraceFileProto} format. Entries are
+ * appended to the current file until it is full, at which point the other file is truncated and
+ * becomes the current file.
+ *
+ * Recording is off by default and is enabled through a debug property:
+ *   adb shell setprop log.tag.PerfTrace VERBOSE
+ */
+public class PerfTraceRecorder implements SafeCloseable, ScreenOnListener {
+
+    private static final String TAG = "PerfTraceRecorder";
+
+    public static final MainThreadInitializedObject<PerfTraceRecorder> INSTANCE =
+            new MainThreadInitializedObject<>(PerfTraceRecorder::new);
+
+    private static final String DIR_NAME = "perf_trace";
+    private static final String FILE_NAME_PREFIX = "trace-";
+    private static final int FILE_COUNT = 2;
+
+    private static final long SNAPSHOT_INTERVAL_MS = TimeUnit.SECONDS.toMillis(10);
+    // About 30 minutes of snapshots per file
+    @VisibleForTesting
+    static final int MAX_ENTRIES_PER_FILE = 180;
+
+    private static final long MAGIC_NUMBER =
+            ((long) LauncherTraceFileProto.MagicNumber.MAGIC_NUMBER_H_VALUE << 32)
+                    | LauncherTraceFileProto.MagicNumber.MAGIC_NUMBER_L_VALUE;
+
+    private final CopyOnWriteArrayList<Consumer<PerfSnapshotProto.Builder>> mProviders =
+            new CopyOnWriteArrayList<>();
+    private final Handler mHandler = ORDERED_BG_EXECUTOR.getHandler();
+    private final Runnable mSnapshotRunnable = this::recordSnapshotAndReschedule;
+
+    private final Context mContext;
+    private final File mDir;
+
+    // Only accessed on the background thread
+    private int mCurrentFileIndex = -1;
+    private int mCurrentEntryCount = 0;
+
+    private PerfTraceRecorder(Context context) {
+        this(context, new File(context.getFilesDir(), DIR_NAME));
+        ScreenOnTracker.INSTANCE.get(context).addListener(this);
+        schedule(true);
+    }
+
+    @VisibleForTesting
+    PerfTraceRecorder(Context context, File dir) {
+        mContext = context;
+        mDir = dir;
+    }
+
+    /**
+     * Adds a provider which fills the parts of each snapshot it owns. Providers are called on a
+     * background thread and should only read state which is safe to access from there.
+     */
+    public SafeCloseable addSnapshotProvider(@NonNull Consumer<PerfSnapshotProto.Builder> p) {
+        mProviders.add(p);
+        return () -> mProviders.remove(p);
+    }
+
+    @Override
+    public void onScreenOnChanged(boolean isOn) {
+        // Nothing interesting happens while the screen is off
+        schedule(isOn);
+    }
+
+    private void schedule(boolean enabled) {
+        mHandler.removeCallbacks(mSnapshotRunnable);
+        if (enabled) {
+            mHandler.postDelayed(mSnapshotRunnable, SNAPSHOT_INTERVAL_MS);
+        }
+    }
+
+    private void recordSnapshotAndReschedule() {
+        // The property can be turned on or off at any time, so it is checked for every snapshot
+        // instead of only when the screen turns on
+        if (isRecordingEnabled()) {
+            recordSnapshot();
+        }
+        mHandler.postDelayed(mSnapshotRunnable, SNAPSHOT_INTERVAL_MS);
+    }
+
+    private static boolean isRecordingEnabled() {
+        return Utilities.isPropertyEnabled(LogConfig.PERF_TRACE);
+    }
+
+    /**
+     * Collects a snapshot from all the providers and appends it to the ring
+     */
+    @WorkerThread
+    @VisibleForTesting
+    void recordSnapshot() {
+        PerfSnapshotProto.Builder snapshot = PerfSnapshotProto.newBuilder();
+        snapshot.addExecutor(getExecutorState("model", MODEL_EXECUTOR));
+        snapshot.addExecutor(getExecutorState("ui_helper", UI_HELPER_EXECUTOR));
+        snapshot.addExecutor(ExecutorStateProto.newBuilder()
+                .setName("thread_pool")
+                .setQueueDepth(THREAD_POOL_EXECUTOR.getQueue().size())
+                .setActiveCount(THREAD_POOL_EXECUTOR.getActiveCount()));
+        for (Consumer<PerfSnapshotProto.Builder> provider : mProviders) {
+            provider.accept(snapshot);
+        }
+
+        LauncherTraceEntryProto entry = LauncherTraceEntryProto.newBuilder()
+                .setElapsedRealtimeNanos(SystemClock.elapsedRealtimeNanos())
+                .setLauncher(LauncherTraceProto.newBuilder().setPerfSnapshot(snapshot))
+                .build();
+        try {
+            appendEntry(entry);
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to write perf snapshot", e);
+        }
+    }
+
+    private static ExecutorStateProto.Builder getExecutorState(
+            String name, LooperExecutor executor) {
+        return ExecutorStateProto.newBuilder()
+                .setName(name)
+                .setQueueDepth(executor.getQueueDepth());
+    }
+
+    private void appendEntry(LauncherTraceEntryProto entry) throws IOException {
+        if (mCurrentFileIndex < 0 || mCurrentEntryCount >= MAX_ENTRIES_PER_FILE) {
+            startNextFile();
+        }
+        // Serialized protos can be concatenated, which merges their repeated fields
+        try (FileOutputStream out = new FileOutputStream(getFile(mCurrentFileIndex), true)) {
+            LauncherTraceFileProto.newBuilder().addEntry(entry).build().writeTo(out);
+        }
+        mCurrentEntryCount++;
+    }
+
+    /**
+     * Truncates the oldest file of the ring and starts writing to it
+     */
+    private void startNextFile() throws IOException {
+        if (mCurrentFileIndex < 0) {
+            // Don't overwrite the most recent entries of the previous process
+            mCurrentFileIndex = 0;
+            for (int i = 1; i < FILE_COUNT; i++) {
+                if (getFile(i).lastModified() < getFile(mCurrentFileIndex).lastModified()) {
+                    mCurrentFileIndex = i;
+                }
+            }
+        } else {
+            mCurrentFileIndex = (mCurrentFileIndex + 1) % FILE_COUNT;
+        }
+        mDir.mkdirs();
+        try (FileOutputStream out = new FileOutputStream(getFile(mCurrentFileIndex), false)) {
+            LauncherTraceFileProto.newBuilder().setMagicNumber(MAGIC_NUMBER).build().writeTo(out);
+        }
+        mCurrentEntryCount = 0;
+    }
+
+    private File getFile(int index) {
+        return new File(mDir, FILE_NAME_PREFIX + index);
+    }
+
+    /**
+     * Returns the trace files of the ring, oldest first
+     */
+    @WorkerThread
+    public File[] getTraceFiles() {
+        File[] files = new File[FILE_COUNT];
+        int start = mCurrentFileIndex < 0 ? 0 : mCurrentFileIndex + 1;
+        for (int i = 0; i < FILE_COUNT; i++) {
+            files[i] = getFile((start + i) % FILE_COUNT);
+        }
+        return files;
+    }
+
+    public void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + "PerfTraceRecorder: enabled=" + isRecordingEnabled()
+                + " dir=" + mDir
+                + " currentFile=" + mCurrentFileIndex
+                + " currentEntries=" + mCurrentEntryCount
+                + " providers=" + mProviders.size());
+    }
+
+    @Override
+    public void close() {
+        ScreenOnTracker.INSTANCE.get(mContext).removeListener(this);
+        schedule(false);
+        mProviders.clear();
+    }
+}
@@ -81,6 +81,7 @@ public abstract class BaseModelUpdateTask implements ModelUpdateTask {
             return;
         }
         execute(mApp, mDataModel, mAllAppsList);
+        mDataModel.publishSnapshot(mAllAppsList);
     }
 
     /**
@@ -105,6 +106,12 @@ public abstract class BaseModelUpdateTask implements ModelUpdateTask {
     }
 
     public void bindUpdatedWorkspaceItems(@NonNull final List<WorkspaceItemInfo> allUpdates) {
+        if (allUpdates.isEmpty()) {
+            return;
+        }
+        // The items may have been updated in place (eg. title or icon) without any db write
+        mDataModel.markChanged();
+
         // Bind workspace items
         List<WorkspaceItemInfo> workspaceUpdates = allUpdates.stream()
                 .filter(info -> info.id != ItemInfo.NO_ID)
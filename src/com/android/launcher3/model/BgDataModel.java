@@ -49,6 +49,7 @@ import com.android.launcher3.model.data.ItemInfo;
 import com.android.launcher3.model.data.LauncherAppWidgetInfo;
 import com.android.launcher3.model.data.WorkspaceItemInfo;
 import com.android.launcher3.pm.UserCache;
+import com.android.launcher3.shortcuts.ShortcutCache;
 import com.android.launcher3.shortcuts.ShortcutKey;
 import com.android.launcher3.shortcuts.ShortcutRequest;
 import com.android.launcher3.shortcuts.ShortcutRequest.QueryResult;
@@ -65,12 +66,14 @@ import java.io.FileDescriptor;
 import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
@@ -111,11 +114,34 @@ public class BgDataModel {
      */
     public final IntSparseArrayMap<FixedContainerItems> extraItems = new IntSparseArrayMap<>();
 
+    /**
+     * Index of all the items in {@link #itemsIdMap} by their target package and user. This is
+     * kept in sync by {@link #addItem} and {@link #removeItem}, and allows package level updates
+     * to only visit the affected items.
+     */
+    private final HashMap<PackageUserKey, ArraySet<ItemInfo>> mPackageIndex = new HashMap<>();
+
+    /**
+     * Index of all the items in {@link #itemsIdMap} by their target component and user.
+     */
+    private final HashMap<ComponentKey, ArraySet<ItemInfo>> mComponentIndex = new HashMap<>();
+
+    /**
+     * Keys under which an item id was last indexed, as the target of an item can change after it
+     * has been added to the model.
+     */
+    private final IntSparseArrayMap<IndexKeys> mIndexedKeys = new IntSparseArrayMap<>();
+
     /**
      * Maps all launcher activities to counts of their shortcuts.
      */
     public final HashMap<ComponentKey, Integer> deepShortcutMap = new HashMap<>();
 
+    /**
+     * Cache of the shortcuts published by each package, filled from full shortcut queries.
+     */
+    public final ShortcutCache shortcutCache = new ShortcutCache();
+
     /**
      * Entire list of widgets.
      */
@@ -126,6 +152,18 @@ public class BgDataModel {
      */
     public final StringCache stringCache = new StringCache();
 
+    /**
+     * Generation of the model data, incremented every time the items in the model or their data
+     * change
+     */
+    private int mGeneration = 0;
+
+    /**
+     * Last published snapshot of the model data, see {@link #publishSnapshot()}
+     */
+    @NonNull
+    private volatile Snapshot mSnapshot = new Snapshot(this, Collections.emptyList());
+
     /**
      * Id when the model was last bound
      */
@@ -146,8 +184,63 @@ public class BgDataModel {
         appWidgets.clear();
         folders.clear();
         itemsIdMap.clear();
+        mPackageIndex.clear();
+        mComponentIndex.clear();
+        mIndexedKeys.clear();
         deepShortcutMap.clear();
+        shortcutCache.clear();
         extraItems.clear();
+        mGeneration++;
+    }
+
+    /**
+     * Marks the model data as changed, for updates which are not made through {@link #addItem}
+     * or {@link #removeItem}, so that it is reflected in the next published snapshot. This
+     * includes in-place updates of an item's data, like its title or icon, which are bound
+     * through {@link BaseModelUpdateTask#bindUpdatedWorkspaceItems}.
+     */
+    public synchronized void markChanged() {
+        mGeneration++;
+    }
+
+    /**
+     * Returns the generation of the model data, which changes every time the model is updated.
+     */
+    public synchronized int getGeneration() {
+        return mGeneration;
+    }
+
+    /**
+     * Publishes a new {@link Snapshot} if the model has changed since the last snapshot. This
+     * should be called at the end of a batch of model updates. The apps of the last snapshot are
+     * carried over as is.
+     */
+    public synchronized Snapshot publishSnapshot() {
+        return publishSnapshot(null);
+    }
+
+    /**
+     * Publishes a new {@link Snapshot} if the model or the provided {@param allApps} have changed
+     * since the last snapshot. This should be called at the end of a batch of model updates.
+     */
+    public synchronized Snapshot publishSnapshot(@Nullable AllAppsList allApps) {
+        List<AppInfo> apps = mSnapshot.apps;
+        if (allApps != null && !apps.equals(allApps.data)) {
+            apps = Collections.unmodifiableList(new ArrayList<>(allApps.data));
+        }
+        if (mSnapshot.generation != mGeneration || apps != mSnapshot.apps) {
+            mSnapshot = new Snapshot(this, apps);
+        }
+        return mSnapshot;
+    }
+
+    /**
+     * Returns the last published snapshot of the model data. This can be called from any thread
+     * without locking the model.
+     */
+    @NonNull
+    public Snapshot getSnapshot() {
+        return mSnapshot;
     }
 
     /**
@@ -168,36 +261,41 @@ public class BgDataModel {
         return screenSet.getArray();
     }
 
-    public synchronized void dump(String prefix, FileDescriptor fd, PrintWriter writer,
+    public void dump(String prefix, FileDescriptor fd, PrintWriter writer,
             String[] args) {
-        writer.println(prefix + "Data Model:");
+        // Dump from the published snapshot to avoid contending with the loader
+        Snapshot snapshot = getSnapshot();
+        writer.println(prefix + "Data Model: generation=" + snapshot.generation);
         writer.println(prefix + " ---- workspace items ");
-        for (int i = 0; i < workspaceItems.size(); i++) {
-            writer.println(prefix + '\t' + workspaceItems.get(i).toString());
+        for (int i = 0; i < snapshot.workspaceItems.size(); i++) {
+            writer.println(prefix + '\t' + snapshot.workspaceItems.get(i).toString());
         }
         writer.println(prefix + " ---- appwidget items ");
-        for (int i = 0; i < appWidgets.size(); i++) {
-            writer.println(prefix + '\t' + appWidgets.get(i).toString());
+        for (int i = 0; i < snapshot.appWidgets.size(); i++) {
+            writer.println(prefix + '\t' + snapshot.appWidgets.get(i).toString());
         }
         writer.println(prefix + " ---- folder items ");
-        for (int i = 0; i < folders.size(); i++) {
-            writer.println(prefix + '\t' + folders.valueAt(i).toString());
+        for (int i = 0; i < snapshot.folders.size(); i++) {
+            writer.println(prefix + '\t' + snapshot.folders.get(i).toString());
         }
         writer.println(prefix + " ---- extra items ");
-        for (int i = 0; i < extraItems.size(); i++) {
-            writer.println(prefix + '\t' + extraItems.valueAt(i).toString());
+        for (int i = 0; i < snapshot.extraItems.size(); i++) {
+            writer.println(prefix + '\t' + snapshot.extraItems.get(i).toString());
         }
         writer.println(prefix + " ---- items id map ");
-        for (int i = 0; i < itemsIdMap.size(); i++) {
-            writer.println(prefix + '\t' + itemsIdMap.valueAt(i).toString());
+        for (int i = 0; i < snapshot.mItemsIdMap.size(); i++) {
+            writer.println(prefix + '\t' + snapshot.mItemsIdMap.valueAt(i).toString());
         }
 
         if (args.length > 0 && TextUtils.equals(args[0], "--all")) {
             writer.println(prefix + "shortcut counts ");
-            for (Integer count : deepShortcutMap.values()) {
-                writer.print(count + ", ");
+            synchronized (this) {
+                for (Integer count : deepShortcutMap.values()) {
+                    writer.print(count + ", ");
+                }
             }
             writer.println();
+            shortcutCache.dump(prefix, writer);
         }
     }
 
@@ -238,6 +336,8 @@ public class BgDataModel {
                     break;
             }
             itemsIdMap.remove(item.id);
+            removeFromIndex(item.id);
+            mGeneration++;
         }
         updatedDeepShortcuts.forEach(user -> updateShortcutPinnedState(context, user));
     }
@@ -255,7 +355,10 @@ public class BgDataModel {
                     String.format("Adding item to ID map: %s", item.toString()),
                     /* stackTrace= */ null);
         }
+        removeFromIndex(item.id);
         itemsIdMap.put(item.id, item);
+        addToIndex(item);
+        mGeneration++;
         switch (item.itemType) {
             case LauncherSettings.Favorites.ITEM_TYPE_FOLDER:
             case LauncherSettings.Favorites.ITEM_TYPE_APP_PAIR:
@@ -290,6 +393,103 @@ public class BgDataModel {
         }
     }
 
+    /**
+     * Re-indexes the provided item if its target package or component has changed since it was
+     * added to the model.
+     */
+    public synchronized void updateItemIndex(ItemInfo item) {
+        if (itemsIdMap.get(item.id) != item) {
+            return;
+        }
+        IndexKeys keys = mIndexedKeys.get(item.id);
+        if (keys != null && keys.equals(new IndexKeys(item))) {
+            return;
+        }
+        removeFromIndex(item.id);
+        addToIndex(item);
+        mGeneration++;
+    }
+
+    private void addToIndex(ItemInfo item) {
+        IndexKeys keys = new IndexKeys(item);
+        if (keys.packageKey == null && keys.componentKey == null) {
+            return;
+        }
+        mIndexedKeys.put(item.id, keys);
+        if (keys.packageKey != null) {
+            mPackageIndex.computeIfAbsent(keys.packageKey, k -> new ArraySet<>()).add(item);
+        }
+        if (keys.componentKey != null) {
+            mComponentIndex.computeIfAbsent(keys.componentKey, k -> new ArraySet<>()).add(item);
+        }
+    }
+
+    private void removeFromIndex(int itemId) {
+        IndexKeys keys = mIndexedKeys.get(itemId);
+        if (keys == null) {
+            return;
+        }
+        mIndexedKeys.remove(itemId);
+        if (keys.packageKey != null) {
+            removeFromIndex(mPackageIndex, keys.packageKey, itemId);
+        }
+        if (keys.componentKey != null) {
+            removeFromIndex(mComponentIndex, keys.componentKey, itemId);
+        }
+    }
+
+    private static <K> void removeFromIndex(
+            HashMap<K, ArraySet<ItemInfo>> index, K key, int itemId) {
+        ArraySet<ItemInfo> items = index.get(key);
+        if (items == null) {
+            return;
+        }
+        items.removeIf(info -> info.id == itemId);
+        if (items.isEmpty()) {
+            index.remove(key);
+        }
+    }
+
+    /**
+     * Returns all the items in {@link #itemsIdMap} targeting the provided package and user.
+     * Note the call is not synchronized over the model, that should be handled by the caller.
+     */
+    @NonNull
+    public List<ItemInfo> getItemsForPackage(@NonNull PackageUserKey key) {
+        ArraySet<ItemInfo> items = mPackageIndex.get(key);
+        if (items == null) {
+            return Collections.emptyList();
+        }
+        ArrayList<ItemInfo> result = new ArrayList<>(items.size());
+        for (ItemInfo info : items) {
+            // Guard against items whose target changed without being re-indexed
+            if (key.mUser.equals(info.user)
+                    && key.mPackageName.equals(info.getTargetPackage())) {
+                result.add(info);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns all the items in {@link #itemsIdMap} targeting the provided component and user.
+     * Note the call is not synchronized over the model, that should be handled by the caller.
+     */
+    @NonNull
+    public List<ItemInfo> getItemsForComponent(@NonNull ComponentKey key) {
+        ArraySet<ItemInfo> items = mComponentIndex.get(key);
+        if (items == null) {
+            return Collections.emptyList();
+        }
+        ArrayList<ItemInfo> result = new ArrayList<>(items.size());
+        for (ItemInfo info : items) {
+            if (key.equals(info.getComponentKey())) {
+                result.add(info);
+            }
+        }
+        return result;
+    }
+
     /**
      * Updates the deep shortucts state in system to match out internal model, pinning any missing
      * shortcuts and unpinning any extra shortcuts.
@@ -444,6 +644,150 @@ public class BgDataModel {
         }
     }
 
+    /**
+     * Similar to {@link #forAllWorkspaceItemInfos(UserHandle, Consumer)}, but only visits items
+     * targeting one of the provided {@code packages}, using the package index instead of iterating
+     * over all the items in the model.
+     * Note the call is not synchronized over the model, that should be handled by the called.
+     */
+    public void forAllWorkspaceItemInfos(UserHandle userHandle, Collection<String> packages,
+            Consumer<WorkspaceItemInfo> op) {
+        // Collect the items first, as op is allowed to re-index the items it visits
+        ArrayList<WorkspaceItemInfo> items = new ArrayList<>();
+        for (String packageName : packages) {
+            for (ItemInfo info : getItemsForPackage(new PackageUserKey(packageName, userHandle))) {
+                if (info instanceof WorkspaceItemInfo) {
+                    items.add((WorkspaceItemInfo) info);
+                }
+            }
+        }
+
+        for (int i = extraItems.size() - 1; i >= 0; i--) {
+            for (ItemInfo info : extraItems.valueAt(i).items) {
+                if (info instanceof WorkspaceItemInfo && userHandle.equals(info.user)
+                        && packages.contains(info.getTargetPackage())) {
+                    items.add((WorkspaceItemInfo) info);
+                }
+            }
+        }
+        items.forEach(op);
+    }
+
+    /**
+     * Keys used to index an item by its target.
+     */
+    private static class IndexKeys {
+
+        @Nullable
+        final PackageUserKey packageKey;
+        @Nullable
+        final ComponentKey componentKey;
+
+        IndexKeys(ItemInfo item) {
+            String packageName = item.user == null ? null : item.getTargetPackage();
+            packageKey = TextUtils.isEmpty(packageName)
+                    ? null : new PackageUserKey(packageName, item.user);
+            componentKey = item.user == null ? null : item.getComponentKey();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof IndexKeys)) return false;
+            IndexKeys other = (IndexKeys) obj;
+            return Objects.equals(packageKey, other.packageKey)
+                    && Objects.equals(componentKey, other.componentKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(packageKey, componentKey);
+        }
+    }
+
+    /**
+     * An immutable view of the model data at a given generation. The item lists of a snapshot
+     * never change once published, so it can be safely read on any thread without holding the
+     * model lock.
+     *
+     * Folders are copied along with their contents, so {@link FolderInfo#contents} of a snapshot
+     * folder reflects the folder at the time of the snapshot. All other {@link ItemInfo} objects,
+     * including the items inside folders and the {@link AppInfo}s, are shared with the model and
+     * their fields (like title or icon) can still be updated in place on the model thread.
+     */
+    public static class Snapshot {
+
+        public final int generation;
+        public final List<ItemInfo> workspaceItems;
+        public final List<LauncherAppWidgetInfo> appWidgets;
+        public final List<FolderInfo> folders;
+        public final List<FixedContainerItems> extraItems;
+        public final List<AppInfo> apps;
+
+        private final IntSparseArrayMap<ItemInfo> mItemsIdMap;
+
+        private Snapshot(BgDataModel model, List<AppInfo> apps) {
+            generation = model.mGeneration;
+            this.apps = apps;
+            mItemsIdMap = model.itemsIdMap.clone();
+
+            ArrayList<FolderInfo> folderList = new ArrayList<>(model.folders.size());
+            for (FolderInfo info : model.folders) {
+                FolderInfo copy = copyFolder(info);
+                folderList.add(copy);
+                if (mItemsIdMap.get(copy.id) == info) {
+                    mItemsIdMap.put(copy.id, copy);
+                }
+            }
+            folders = Collections.unmodifiableList(folderList);
+
+            ArrayList<ItemInfo> itemList = new ArrayList<>(model.workspaceItems.size());
+            for (ItemInfo info : model.workspaceItems) {
+                ItemInfo folderCopy = info instanceof FolderInfo ? mItemsIdMap.get(info.id) : null;
+                itemList.add(folderCopy != null ? folderCopy : info);
+            }
+            workspaceItems = Collections.unmodifiableList(itemList);
+            appWidgets = Collections.unmodifiableList(new ArrayList<>(model.appWidgets));
+
+            ArrayList<FixedContainerItems> extraList = new ArrayList<>(model.extraItems.size());
+            for (FixedContainerItems items : model.extraItems) {
+                extraList.add(items);
+            }
+            extraItems = Collections.unmodifiableList(extraList);
+        }
+
+        private static FolderInfo copyFolder(FolderInfo info) {
+            FolderInfo copy = (FolderInfo) info.makeShallowCopy();
+            copy.options = info.options;
+            copy.contents = new ArrayList<>(info.contents);
+            return copy;
+        }
+
+        /**
+         * Returns the item with the provided id, or null if it is not in this snapshot.
+         */
+        @Nullable
+        public ItemInfo getItem(int id) {
+            return mItemsIdMap.get(id);
+        }
+
+        /**
+         * Returns the number of items in this snapshot, including items inside folders.
+         */
+        public int getItemCount() {
+            return mItemsIdMap.size();
+        }
+
+        /**
+         * Returns a list containing all workspace items including widgets.
+         */
+        public ArrayList<ItemInfo> getAllWorkspaceItems() {
+            ArrayList<ItemInfo> items = new ArrayList<>(workspaceItems.size() + appWidgets.size());
+            items.addAll(workspaceItems);
+            items.addAll(appWidgets);
+            return items;
+        }
+    }
+
     /**
      * An object containing items corresponding to a fixed container
      */
@@ -15,6 +15,8 @@
  */
 package com.android.launcher3.model;
 
+import static com.android.launcher3.model.ModelTaskScheduler.PRIORITY_BACKGROUND;
+
 import android.content.ComponentName;
 import android.os.UserHandle;
 
@@ -51,6 +53,11 @@ public class CacheDataUpdatedTask extends BaseModelUpdateTask {
         mPackages = packages;
     }
 
+    @Override
+    public int getPriority() {
+        return PRIORITY_BACKGROUND;
+    }
+
     @Override
     public void execute(@NonNull final LauncherAppState app, @NonNull final BgDataModel dataModel,
             @NonNull final AllAppsList apps) {
@@ -58,7 +65,7 @@ public class CacheDataUpdatedTask extends BaseModelUpdateTask {
         ArrayList<WorkspaceItemInfo> updatedShortcuts = new ArrayList<>();
 
         synchronized (dataModel) {
-            dataModel.forAllWorkspaceItemInfos(mUser, si -> {
+            dataModel.forAllWorkspaceItemInfos(mUser, mPackages, si -> {
                 ComponentName cn = si.getTargetComponent();
                 if (si.itemType == LauncherSettings.Favorites.ITEM_TYPE_APPLICATION
                         && isValidShortcut(si) && cn != null
@@ -312,8 +312,10 @@ public class DatabaseHelper extends NoLocaleSQLiteHelper implements
     /**
      * Removes widgets which are registered to the Launcher's host, but are not present
      * in our model.
+     *
+     * @return the number of widgets removed
      */
-    public void removeGhostWidgets(SQLiteDatabase db) {
+    public int removeGhostWidgets(SQLiteDatabase db) {
         // Get all existing widget ids.
         final LauncherWidgetHolder holder = newLauncherWidgetHolder();
         try {
@@ -324,24 +326,24 @@ public class DatabaseHelper extends NoLocaleSQLiteHelper implements
                 allWidgets = holder.getAppWidgetIds();
             } catch (IncompatibleClassChangeError e) {
                 Log.e(TAG, "getAppWidgetIds not supported", e);
-                return;
+                return 0;
             }
             final IntSet validWidgets = IntSet.wrap(LauncherDbUtils.queryIntArray(false, db,
                     Favorites.TABLE_NAME, Favorites.APPWIDGET_ID,
                     "itemType=" + Favorites.ITEM_TYPE_APPWIDGET, null, null));
-            boolean isAnyWidgetRemoved = false;
+            int removedCount = 0;
             for (int widgetId : allWidgets) {
                 if (!validWidgets.contains(widgetId)) {
                     try {
                         FileLog.d(TAG, "Deleting invalid widget " + widgetId);
                         holder.deleteAppWidgetId(widgetId);
-                        isAnyWidgetRemoved = true;
+                        removedCount++;
                     } catch (RuntimeException e) {
                         // Ignore
                     }
                 }
             }
-            if (isAnyWidgetRemoved) {
+            if (removedCount > 0) {
                 final String allWidgetsIds = Arrays.stream(allWidgets).mapToObj(String::valueOf)
                         .collect(Collectors.joining(",", "[", "]"));
                 final String validWidgetsIds = Arrays.stream(
@@ -352,6 +354,7 @@ public class DatabaseHelper extends NoLocaleSQLiteHelper implements
                                 + " allWidgetsIds=" + allWidgetsIds
                                 + ", validWidgetsIds=" + validWidgetsIds);
             }
+            return removedCount;
         } finally {
             holder.destroy();
         }
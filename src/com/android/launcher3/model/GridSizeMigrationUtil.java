@@ -36,8 +36,10 @@ import android.database.sqlite.SQLiteDatabase;
 import android.graphics.Point;
 import android.util.ArrayMap;
 import android.util.Log;
+import android.util.SparseArray;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
 
 import com.android.launcher3.InvariantDeviceProfile;
 import com.android.launcher3.LauncherPrefs;
@@ -147,6 +149,29 @@ public class GridSizeMigrationUtil {
             final int destHotseatSize, @NonNull final Point targetSize,
             @NonNull final DeviceGridState srcDeviceState,
             @NonNull final DeviceGridState destDeviceState) {
+        MigrationPlan plan = planMigration(srcReader, destReader, destHotseatSize, targetSize,
+                srcDeviceState, destDeviceState);
+        if (!plan.mToBeRemoved.isEmpty()) {
+            removeEntryFromDb(destReader.mDb, destReader.mTableName, plan.mToBeRemoved);
+        }
+        if (!plan.mHasItemsToAdd) {
+            return false;
+        }
+        applyPlacements(helper, plan, srcReader.mTableName, destReader.mTableName);
+        return true;
+    }
+
+    /**
+     * Computes the result of migrating the workspace read by {@code srcReader} to the target grid
+     * on top of the items read by {@code destReader}, without modifying either table.
+     */
+    @VisibleForTesting
+    @NonNull
+    static MigrationPlan planMigration(
+            @NonNull final DbReader srcReader, @NonNull final DbReader destReader,
+            final int destHotseatSize, @NonNull final Point targetSize,
+            @NonNull final DeviceGridState srcDeviceState,
+            @NonNull final DeviceGridState destDeviceState) {
 
         final List<DbEntry> srcHotseatItems = srcReader.loadHotseatEntries();
         final List<DbEntry> srcWorkspaceItems = srcReader.loadAllWorkspaceEntries();
@@ -154,10 +179,10 @@ public class GridSizeMigrationUtil {
         final List<DbEntry> dstWorkspaceItems = destReader.loadAllWorkspaceEntries();
         final List<DbEntry> hotseatToBeAdded = new ArrayList<>(1);
         final List<DbEntry> workspaceToBeAdded = new ArrayList<>(1);
-        final IntArray toBeRemoved = new IntArray();
+        final MigrationPlan plan = new MigrationPlan();
 
-        calcDiff(srcHotseatItems, dstHotseatItems, hotseatToBeAdded, toBeRemoved);
-        calcDiff(srcWorkspaceItems, dstWorkspaceItems, workspaceToBeAdded, toBeRemoved);
+        calcDiff(srcHotseatItems, dstHotseatItems, hotseatToBeAdded, plan.mToBeRemoved);
+        calcDiff(srcWorkspaceItems, dstWorkspaceItems, workspaceToBeAdded, plan.mToBeRemoved);
 
         final int trgX = targetSize.x;
         final int trgY = targetSize.y;
@@ -172,7 +197,7 @@ public class GridSizeMigrationUtil {
                     Collectors.joining(",\n", "[", "]"))
                     + "\n Removing Items:"
                     + dstWorkspaceItems.stream().filter(entry ->
-                            toBeRemoved.contains(entry.id)).map(DbEntry::toString).collect(
+                            plan.mToBeRemoved.contains(entry.id)).map(DbEntry::toString).collect(
                     Collectors.joining(",\n", "[", "]"))
                     + "\n Adding Workspace Items:"
                     + workspaceToBeAdded.stream().map(DbEntry::toString).collect(
@@ -182,20 +207,18 @@ public class GridSizeMigrationUtil {
                     Collectors.joining(",\n", "[", "]"))
             );
         }
-        if (!toBeRemoved.isEmpty()) {
-            removeEntryFromDb(destReader.mDb, destReader.mTableName, toBeRemoved);
-        }
         if (hotseatToBeAdded.isEmpty() && workspaceToBeAdded.isEmpty()) {
-            return false;
+            return plan;
         }
+        plan.mHasItemsToAdd = true;
 
         // Sort the items by the reading order.
         Collections.sort(hotseatToBeAdded);
         Collections.sort(workspaceToBeAdded);
 
         // Migrate hotseat
-        solveHotseatPlacement(helper, destHotseatSize,
-                srcReader, destReader, dstHotseatItems, hotseatToBeAdded);
+        solveHotseatPlacement(destHotseatSize, dstHotseatItems, hotseatToBeAdded,
+                plan.mHotseatPlacements);
 
         // Migrate workspace.
         // First we create a collection of the screens
@@ -215,8 +238,7 @@ public class GridSizeMigrationUtil {
             if (DEBUG) {
                 Log.d(TAG, "Migrating " + screenId);
             }
-            solveGridPlacement(helper, srcReader,
-                    destReader, screenId, trgX, trgY, workspaceToBeAdded, false);
+            solveGridPlacement(destReader, screenId, trgX, trgY, workspaceToBeAdded, false, plan);
             if (workspaceToBeAdded.isEmpty()) {
                 break;
             }
@@ -226,12 +248,12 @@ public class GridSizeMigrationUtil {
         // any of the screens, in this case we add them to new screens until all of them are placed.
         int screenId = destReader.mLastScreenId + 1;
         while (!workspaceToBeAdded.isEmpty()) {
-            solveGridPlacement(helper, srcReader,
-                    destReader, screenId, trgX, trgY, workspaceToBeAdded, preservePages);
+            solveGridPlacement(destReader, screenId, trgX, trgY, workspaceToBeAdded,
+                    preservePages, plan);
             screenId++;
         }
 
-        return true;
+        return plan;
     }
 
     /**
@@ -243,13 +265,16 @@ public class GridSizeMigrationUtil {
     private static void calcDiff(@NonNull final List<DbEntry> src,
             @NonNull final List<DbEntry> dest, @NonNull final List<DbEntry> toBeAdded,
             @NonNull final IntArray toBeRemoved) {
+        // Migration ids parse the intents, so compute them once per entry rather than per pair.
+        final Set<String> srcIds = getMigrationIds(src);
+        final Set<String> destIds = getMigrationIds(dest);
         src.forEach(entry -> {
-            if (!dest.contains(entry)) {
+            if (!destIds.contains(entry.getEntryMigrationId())) {
                 toBeAdded.add(entry);
             }
         });
         dest.forEach(entry -> {
-            if (!src.contains(entry)) {
+            if (!srcIds.contains(entry.getEntryMigrationId())) {
                 toBeRemoved.add(entry.id);
                 if (entry.itemType == LauncherSettings.Favorites.ITEM_TYPE_FOLDER) {
                     entry.mFolderItems.values().forEach(ids -> ids.forEach(toBeRemoved::add));
@@ -258,49 +283,79 @@ public class GridSizeMigrationUtil {
         });
     }
 
-    private static void insertEntryInDb(DatabaseHelper helper, DbEntry entry,
+    private static Set<String> getMigrationIds(@NonNull final List<DbEntry> entries) {
+        Set<String> ids = new HashSet<>(entries.size());
+        entries.forEach(entry -> ids.add(entry.getEntryMigrationId()));
+        return ids;
+    }
+
+    /**
+     * Copies all the placed entries of {@code plan}, along with their folder contents, from
+     * {@code srcTableName} to {@code destTableName}. The source rows are read with a single query
+     * and inserted in one transaction.
+     */
+    private static void applyPlacements(DatabaseHelper helper, MigrationPlan plan,
             String srcTableName, String destTableName) {
-        int id = copyEntryAndUpdate(helper, entry, srcTableName, destTableName);
+        List<DbEntry> placedEntries = new ArrayList<>(plan.mHotseatPlacements);
+        placedEntries.addAll(plan.mWorkspacePlacements);
 
-        if (entry.itemType == LauncherSettings.Favorites.ITEM_TYPE_FOLDER
-                || entry.itemType == LauncherSettings.Favorites.ITEM_TYPE_APP_PAIR) {
+        IntArray srcIds = new IntArray(placedEntries.size());
+        for (DbEntry entry : placedEntries) {
+            srcIds.add(entry.id);
             for (Set<Integer> itemIds : entry.mFolderItems.values()) {
-                for (int itemId : itemIds) {
-                    copyEntryAndUpdate(helper, itemId, id, srcTableName, destTableName);
-                }
+                itemIds.forEach(srcIds::add);
             }
         }
-    }
 
-    private static int copyEntryAndUpdate(DatabaseHelper helper,
-            DbEntry entry, String srcTableName, String destTableName) {
-        return copyEntryAndUpdate(helper, entry, -1, -1, srcTableName, destTableName);
-    }
+        SQLiteDatabase db = helper.getWritableDatabase();
+        SparseArray<ContentValues> srcRows = new SparseArray<>(srcIds.size());
+        try (Cursor c = db.query(srcTableName, null,
+                Utilities.createDbSelectionQuery(LauncherSettings.Favorites._ID, srcIds),
+                null, null, null, null)) {
+            final int indexId = c.getColumnIndexOrThrow(LauncherSettings.Favorites._ID);
+            while (c.moveToNext()) {
+                ContentValues values = new ContentValues();
+                DatabaseUtils.cursorRowToContentValues(c, values);
+                srcRows.put(c.getInt(indexId), values);
+            }
+        }
 
-    private static int copyEntryAndUpdate(DatabaseHelper helper,
-            int id, int folderId, String srcTableName, String destTableName) {
-        return copyEntryAndUpdate(helper, null, id, folderId, srcTableName, destTableName);
+        try (SQLiteTransaction t = new SQLiteTransaction(db)) {
+            for (DbEntry entry : placedEntries) {
+                insertEntryInDb(helper, entry, srcRows, destTableName);
+            }
+            t.commit();
+        }
     }
 
-    private static int copyEntryAndUpdate(DatabaseHelper helper, DbEntry entry,
-            int id, int folderId, String srcTableName, String destTableName) {
-        int newId = -1;
-        Cursor c = helper.getWritableDatabase().query(srcTableName, null,
-                LauncherSettings.Favorites._ID + " = '" + (entry != null ? entry.id : id) + "'",
-                null, null, null, null);
-        while (c.moveToNext()) {
-            ContentValues values = new ContentValues();
-            DatabaseUtils.cursorRowToContentValues(c, values);
-            if (entry != null) {
-                entry.updateContentValues(values);
-            } else {
-                values.put(LauncherSettings.Favorites.CONTAINER, folderId);
+    private static void insertEntryInDb(DatabaseHelper helper, DbEntry entry,
+            SparseArray<ContentValues> srcRows, String destTableName) {
+        int id = -1;
+        ContentValues values = srcRows.get(entry.id);
+        if (values != null) {
+            entry.updateContentValues(values);
+            id = insertWithNewId(helper, values, destTableName);
+        }
+
+        if (entry.itemType == LauncherSettings.Favorites.ITEM_TYPE_FOLDER
+                || entry.itemType == LauncherSettings.Favorites.ITEM_TYPE_APP_PAIR) {
+            for (Set<Integer> itemIds : entry.mFolderItems.values()) {
+                for (int itemId : itemIds) {
+                    ContentValues itemValues = srcRows.get(itemId);
+                    if (itemValues != null) {
+                        itemValues.put(LauncherSettings.Favorites.CONTAINER, id);
+                        insertWithNewId(helper, itemValues, destTableName);
+                    }
+                }
             }
-            newId = helper.generateNewItemId();
-            values.put(LauncherSettings.Favorites._ID, newId);
-            helper.getWritableDatabase().insert(destTableName, null, values);
         }
-        c.close();
+    }
+
+    private static int insertWithNewId(DatabaseHelper helper, ContentValues values,
+            String destTableName) {
+        int newId = helper.generateNewItemId();
+        values.put(LauncherSettings.Favorites._ID, newId);
+        helper.getWritableDatabase().insert(destTableName, null, values);
         return newId;
     }
 
@@ -326,10 +381,10 @@ public class GridSizeMigrationUtil {
         return validPackages;
     }
 
-    private static void solveGridPlacement(@NonNull final DatabaseHelper helper,
-            @NonNull final DbReader srcReader, @NonNull final DbReader destReader,
+    private static void solveGridPlacement(@NonNull final DbReader destReader,
             final int screenId, final int trgX, final int trgY,
-            @NonNull final List<DbEntry> sortedItemsToPlace, final boolean matchingScreenIdOnly) {
+            @NonNull final List<DbEntry> sortedItemsToPlace, final boolean matchingScreenIdOnly,
+            @NonNull final MigrationPlan plan) {
         final GridOccupancy occupied = new GridOccupancy(trgX, trgY);
         final Point trg = new Point(trgX, trgY);
         final Point next = new Point(0, screenId == 0
@@ -350,11 +405,12 @@ public class GridSizeMigrationUtil {
             if (matchingScreenIdOnly && entry.screenId < screenId) continue;
             if (matchingScreenIdOnly && entry.screenId > screenId) break;
             if (entry.minSpanX > trgX || entry.minSpanY > trgY) {
+                plan.mDroppedCount++;
                 iterator.remove();
                 continue;
             }
             if (findPlacementForEntry(entry, next, trg, occupied, screenId)) {
-                insertEntryInDb(helper, entry, srcReader.mTableName, destReader.mTableName);
+                plan.mWorkspacePlacements.add(entry);
                 iterator.remove();
             }
         }
@@ -391,11 +447,10 @@ public class GridSizeMigrationUtil {
         return false;
     }
 
-    private static void solveHotseatPlacement(
-            @NonNull final DatabaseHelper helper, final int hotseatSize,
-            @NonNull final DbReader srcReader, @NonNull final DbReader destReader,
+    private static void solveHotseatPlacement(final int hotseatSize,
             @NonNull final  List<DbEntry> placedHotseatItems,
-            @NonNull final List<DbEntry> itemsToPlace) {
+            @NonNull final List<DbEntry> itemsToPlace,
+            @NonNull final List<DbEntry> placements) {
 
         final boolean[] occupied = new boolean[hotseatSize];
         for (DbEntry entry : placedHotseatItems) {
@@ -410,18 +465,64 @@ public class GridSizeMigrationUtil {
                 // to something other than -1.
                 entry.cellX = i;
                 entry.cellY = 0;
-                insertEntryInDb(helper, entry, srcReader.mTableName, destReader.mTableName);
+                placements.add(entry);
                 occupied[entry.screenId] = true;
             }
         }
     }
 
+    /**
+     * Result of placing the items of a source grid on a target grid, see
+     * {@link #planMigration(DbReader, DbReader, int, Point, DeviceGridState, DeviceGridState)}.
+     */
+    public static class MigrationPlan {
+
+        private final List<DbEntry> mHotseatPlacements = new ArrayList<>();
+        private final List<DbEntry> mWorkspacePlacements = new ArrayList<>();
+        private final IntArray mToBeRemoved = new IntArray();
+        private boolean mHasItemsToAdd;
+        private int mDroppedCount;
+
+        /** Source hotseat items with the position they get in the target grid */
+        public List<ItemInfo> getHotseatPlacements() {
+            return Collections.unmodifiableList(mHotseatPlacements);
+        }
+
+        /** Source workspace items with the position they get in the target grid */
+        public List<ItemInfo> getWorkspacePlacements() {
+            return Collections.unmodifiableList(mWorkspacePlacements);
+        }
+
+        /** Ids of the target items, including folder contents, not present in the source */
+        public IntArray getRemovedIds() {
+            return mToBeRemoved;
+        }
+
+        /** Number of source items which are too big for the target grid and are not migrated */
+        public int getDroppedCount() {
+            return mDroppedCount;
+        }
+
+        /** Number of rows the migration inserts or deletes, as an estimate of its cost */
+        public int getEstimatedRowWrites() {
+            int writes = mToBeRemoved.size();
+            for (DbEntry entry : mHotseatPlacements) {
+                writes += 1 + entry.getFolderItemsCount();
+            }
+            for (DbEntry entry : mWorkspacePlacements) {
+                writes += 1 + entry.getFolderItemsCount();
+            }
+            return writes;
+        }
+    }
+
     protected static class DbReader {
 
         private final SQLiteDatabase mDb;
         private final String mTableName;
         private final Context mContext;
         private final Set<String> mValidPackages;
+        private final boolean mReadOnly;
         private int mLastScreenId = -1;
 
         private final Map<Integer, ArrayList<DbEntry>> mWorkspaceEntriesByScreenId =
@@ -429,10 +530,19 @@ public class GridSizeMigrationUtil {
 
         DbReader(SQLiteDatabase db, String tableName, Context context,
                 Set<String> validPackages) {
+            this(db, tableName, context, validPackages, false);
+        }
+
+        /**
+         * @param readOnly if true, invalid entries are skipped but not deleted from the table
+         */
+        DbReader(SQLiteDatabase db, String tableName, Context context,
+                Set<String> validPackages, boolean readOnly) {
             mDb = db;
             mTableName = tableName;
             mContext = context;
             mValidPackages = validPackages;
+            mReadOnly = readOnly;
         }
 
         protected List<DbEntry> loadHotseatEntries() {
@@ -493,7 +603,7 @@ public class GridSizeMigrationUtil {
                 }
                 hotseatEntries.add(entry);
             }
-            removeEntryFromDb(mDb, mTableName, entriesToRemove);
+            removeInvalidEntries(entriesToRemove);
             c.close();
             return hotseatEntries;
         }
@@ -601,7 +711,7 @@ public class GridSizeMigrationUtil {
                 }
                 mWorkspaceEntriesByScreenId.get(entry.screenId).add(entry);
             }
-            removeEntryFromDb(mDb, mTableName, entriesToRemove);
+            removeInvalidEntries(entriesToRemove);
             c.close();
             return workspaceEntries;
         }
@@ -623,13 +733,19 @@ public class GridSizeMigrationUtil {
                     }
                     entry.mFolderItems.get(intent).add(id);
                 } catch (Exception e) {
-                    removeEntryFromDb(mDb, mTableName, IntArray.wrap(c.getInt(0)));
+                    removeInvalidEntries(IntArray.wrap(c.getInt(0)));
                 }
             }
             c.close();
             return total;
         }
 
+        private void removeInvalidEntries(IntArray entryIds) {
+            if (!mReadOnly) {
+                removeEntryFromDb(mDb, mTableName, entryIds);
+            }
+        }
+
         private Cursor queryWorkspace(String[] columns, String where) {
             return mDb.query(mTableName, columns, where, null, null, null, null);
         }
@@ -662,6 +778,14 @@ public class GridSizeMigrationUtil {
         private String mProvider;
         private Map<String, Set<Integer>> mFolderItems = new HashMap<>();
 
+        private int getFolderItemsCount() {
+            int count = 0;
+            for (Set<Integer> itemIds : mFolderItems.values()) {
+                count += itemIds.size();
+            }
+            return count;
+        }
+
         /** Comparator according to the reading order */
         @Override
         public int compareTo(DbEntry another) {
@@ -18,6 +18,8 @@ package com.android.launcher3.model;
 
 import static com.android.launcher3.LauncherSettings.Favorites.TABLE_NAME;
 import static com.android.launcher3.config.FeatureFlags.shouldShowFirstPageWidget;
+import static com.android.launcher3.model.LoaderMemoryLogger.TIME_BINDER;
+import static com.android.launcher3.model.LoaderMemoryLogger.TIME_ICON_RESOLUTION;
 
 import android.content.ComponentName;
 import android.content.ContentValues;
@@ -27,6 +29,7 @@ import android.content.pm.LauncherActivityInfo;
 import android.content.pm.LauncherApps;
 import android.database.Cursor;
 import android.database.CursorWrapper;
+import android.os.SystemClock;
 import android.os.UserHandle;
 import android.provider.BaseColumns;
 import android.text.TextUtils;
@@ -103,6 +106,8 @@ public class LoaderCursor extends CursorWrapper {
 
     @Nullable
     private LauncherActivityInfo mActivityInfo;
+    @Nullable
+    private LoaderMemoryLogger mMemoryLogger;
 
     // Properties loaded per iteration
     public long serialNumber;
@@ -146,6 +151,19 @@ public class LoaderCursor extends CursorWrapper {
         mAppWidgetSourceIndex = getColumnIndexOrThrow(Favorites.APPWIDGET_SOURCE);
     }
 
+    /**
+     * Sets the logger to book the icon resolution and binder time of the item lookups to
+     */
+    public void setMemoryLogger(@Nullable LoaderMemoryLogger memoryLogger) {
+        mMemoryLogger = memoryLogger;
+    }
+
+    private void addTimeSince(int category, long startNanos) {
+        if (mMemoryLogger != null) {
+            mMemoryLogger.addTimeSince(category, startNanos);
+        }
+    }
+
     @Override
     public boolean moveToNext() {
         boolean result = super.moveToNext();
@@ -183,9 +201,11 @@ public class LoaderCursor extends CursorWrapper {
         info.itemType = itemType;
         info.title = getTitle();
         // the fallback icon
+        long startNanos = SystemClock.elapsedRealtimeNanos();
         if (!loadIcon(info)) {
             info.bitmap = mIconCache.getDefaultIcon(info.user);
         }
+        addTimeSince(TIME_ICON_RESOLUTION, startNanos);
 
         // TODO: If there's an explicit component and we can't install that, delete it.
 
@@ -294,9 +314,11 @@ public class LoaderCursor extends CursorWrapper {
         info.intent = intent;
 
         // the fallback icon
+        long startNanos = SystemClock.elapsedRealtimeNanos();
         if (!loadIcon(info)) {
             mIconCache.getTitleAndIcon(info, false /* useLowResIcon */);
         }
+        addTimeSince(TIME_ICON_RESOLUTION, startNanos);
 
         if (hasRestoreFlag(WorkspaceItemInfo.FLAG_RESTORED_ICON)) {
             String title = getTitle();
@@ -345,8 +367,10 @@ public class LoaderCursor extends CursorWrapper {
         Intent newIntent = new Intent(Intent.ACTION_MAIN, null);
         newIntent.addCategory(Intent.CATEGORY_LAUNCHER);
         newIntent.setComponent(componentName);
+        long startNanos = SystemClock.elapsedRealtimeNanos();
         mActivityInfo = mContext.getSystemService(LauncherApps.class)
                 .resolveActivity(newIntent, user);
+        addTimeSince(TIME_BINDER, startNanos);
         if ((mActivityInfo == null) && !allowMissingTarget) {
             Log.d(TAG, "Missing activity found in getShortcutInfo: " + componentName);
             return null;
@@ -359,10 +383,12 @@ public class LoaderCursor extends CursorWrapper {
         UserIconInfo userIconInfo = userCache.getUserInfo(user);
 
         if (loadIcon) {
+            startNanos = SystemClock.elapsedRealtimeNanos();
             mIconCache.getTitleAndIcon(info, mActivityInfo, useLowResIcon);
             if (mIconCache.isDefaultIcon(info.bitmap, user)) {
                 loadIcon(info);
             }
+            addTimeSince(TIME_ICON_RESOLUTION, startNanos);
         }
 
         if (mActivityInfo != null) {
@@ -407,6 +433,13 @@ public class LoaderCursor extends CursorWrapper {
         }
     }
 
+    /**
+     * Returns the number of items marked for deletion
+     */
+    public int getDeletedItemCount() {
+        return mItemsToRemove.size();
+    }
+
     /**
      * Removes any items marked for removal.
      * @return true is any item was removed.
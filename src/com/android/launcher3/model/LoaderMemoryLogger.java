@@ -15,22 +15,51 @@
  */
 package com.android.launcher3.model;
 
+import android.os.SystemClock;
+import android.util.ArrayMap;
 import android.util.Log;
+import android.util.SparseArray;
 
 import androidx.annotation.Nullable;
 
+import com.android.launcher3.tracing.LoaderItemTypeProto;
+import com.android.launcher3.tracing.LoaderPhaseProto;
+import com.android.launcher3.tracing.LoaderRemovedItemsProto;
+import com.android.launcher3.tracing.LoaderTraceProto;
+
+import java.io.PrintWriter;
 import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Helper logger that collects logs while {@code LoaderTask#run} executes and prints them all iff
  * an exception is caught in {@code LoaderTask#run}.
+ *
+ * It also records a structured trace of the run: phase durations, count and processing time per
+ * item type, time spent in DB reads, icon resolution and binder calls, and the items removed
+ * while loading. The trace can be exported as a {@link LoaderTraceProto}. Item processing time
+ * includes the icon resolution and binder time booked while processing the item.
  */
 public class LoaderMemoryLogger {
 
     private static final String TAG = "LoaderMemoryLogger";
 
+    public static final int TIME_DB_READ = 0;
+    public static final int TIME_ICON_RESOLUTION = 1;
+    public static final int TIME_BINDER = 2;
+    private static final int TIME_CATEGORY_COUNT = 3;
+
     private final ArrayList<LogEntry> mLogEntries = new ArrayList<>();
 
+    private final long mStartNanos = SystemClock.elapsedRealtimeNanos();
+    private long mLastPhaseNanos = mStartNanos;
+    private long mEndNanos;
+    private final ArrayList<LoaderPhaseProto> mPhases = new ArrayList<>();
+    // Count and total processing time, indexed by item type
+    private final SparseArray<long[]> mItemTypeStats = new SparseArray<>();
+    private final long[] mCategoryNanos = new long[TIME_CATEGORY_COUNT];
+    private final ArrayMap<String, Integer> mRemovedItems = new ArrayMap<>();
+
     protected LoaderMemoryLogger() {}
 
     protected void addLog(int logLevel, String tag, String log) {
@@ -73,6 +102,115 @@ public class LoaderMemoryLogger {
         clearLogs();
     }
 
+    /**
+     * Marks the end of a loader phase, which started at the end of the previous phase
+     */
+    protected void addPhase(String name) {
+        long now = SystemClock.elapsedRealtimeNanos();
+        mPhases.add(LoaderPhaseProto.newBuilder()
+                .setName(name)
+                .setDurationNanos(now - mLastPhaseNanos)
+                .build());
+        mLastPhaseNanos = now;
+    }
+
+    /**
+     * Records the processing time of a single workspace item
+     */
+    protected void addItemTime(int itemType, long durationNanos) {
+        long[] stats = mItemTypeStats.get(itemType);
+        if (stats == null) {
+            stats = new long[2];
+            mItemTypeStats.put(itemType, stats);
+        }
+        stats[0]++;
+        stats[1] += durationNanos;
+    }
+
+    /**
+     * Adds time spent in one of the TIME_* categories
+     */
+    protected void addTime(int category, long durationNanos) {
+        mCategoryNanos[category] += durationNanos;
+    }
+
+    /**
+     * Adds the time elapsed since {@param startNanos}, as returned by
+     * {@link SystemClock#elapsedRealtimeNanos()}, to one of the TIME_* categories
+     */
+    protected void addTimeSince(int category, long startNanos) {
+        addTime(category, SystemClock.elapsedRealtimeNanos() - startNanos);
+    }
+
+    /**
+     * Records items removed from the workspace for the provided reason
+     */
+    protected void addRemovedItems(String reason, int count) {
+        if (count > 0) {
+            mRemovedItems.put(reason, mRemovedItems.getOrDefault(reason, 0) + count);
+        }
+    }
+
+    /**
+     * Marks the end of the loader run
+     */
+    protected void markComplete() {
+        mEndNanos = SystemClock.elapsedRealtimeNanos();
+    }
+
+    /**
+     * Returns the structured trace recorded so far
+     */
+    public LoaderTraceProto toProto() {
+        LoaderTraceProto.Builder builder = LoaderTraceProto.newBuilder()
+                .setStartElapsedRealtimeNanos(mStartNanos)
+                .setTotalDurationNanos(
+                        (mEndNanos > 0 ? mEndNanos : SystemClock.elapsedRealtimeNanos())
+                                - mStartNanos)
+                .addAllPhase(mPhases)
+                .setDbReadNanos(mCategoryNanos[TIME_DB_READ])
+                .setIconResolutionNanos(mCategoryNanos[TIME_ICON_RESOLUTION])
+                .setBinderNanos(mCategoryNanos[TIME_BINDER]);
+        for (int i = 0; i < mItemTypeStats.size(); i++) {
+            long[] stats = mItemTypeStats.valueAt(i);
+            builder.addItemType(LoaderItemTypeProto.newBuilder()
+                    .setItemType(mItemTypeStats.keyAt(i))
+                    .setCount((int) stats[0])
+                    .setDurationNanos(stats[1]));
+        }
+        for (int i = 0; i < mRemovedItems.size(); i++) {
+            builder.addRemovedItems(LoaderRemovedItemsProto.newBuilder()
+                    .setReason(mRemovedItems.keyAt(i))
+                    .setCount(mRemovedItems.valueAt(i)));
+        }
+        return builder.build();
+    }
+
+    public void dump(String prefix, PrintWriter writer) {
+        LoaderTraceProto trace = toProto();
+        writer.println(prefix + "Loader trace: total=" + toMs(trace.getTotalDurationNanos())
+                + " db=" + toMs(trace.getDbReadNanos())
+                + " icons=" + toMs(trace.getIconResolutionNanos())
+                + " binder=" + toMs(trace.getBinderNanos()));
+        for (LoaderPhaseProto phase : trace.getPhaseList()) {
+            writer.println(prefix + "\tphase " + phase.getName()
+                    + ": " + toMs(phase.getDurationNanos()));
+        }
+        for (LoaderItemTypeProto itemType : trace.getItemTypeList()) {
+            writer.println(prefix + "\titemType=" + itemType.getItemType()
+                    + ": count=" + itemType.getCount()
+                    + " time=" + toMs(itemType.getDurationNanos()));
+        }
+        for (LoaderRemovedItemsProto removed : trace.getRemovedItemsList()) {
+            writer.println(prefix + "\tremoved " + removed.getReason()
+                    + ": " + removed.getCount());
+        }
+    }
+
+    private static String toMs(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos) + "ms";
+    }
+
     private static class LogEntry {
 
         protected final int mLogLevel;
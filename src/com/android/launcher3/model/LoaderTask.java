@@ -29,6 +29,9 @@ import static com.android.launcher3.model.BgDataModel.Callbacks.FLAG_PRIVATE_PRO
 import static com.android.launcher3.model.BgDataModel.Callbacks.FLAG_QUIET_MODE_CHANGE_PERMISSION;
 import static com.android.launcher3.model.BgDataModel.Callbacks.FLAG_QUIET_MODE_ENABLED;
 import static com.android.launcher3.model.BgDataModel.Callbacks.FLAG_WORK_PROFILE_QUIET_MODE_ENABLED;
+import static com.android.launcher3.model.LoaderMemoryLogger.TIME_BINDER;
+import static com.android.launcher3.model.LoaderMemoryLogger.TIME_DB_READ;
+import static com.android.launcher3.model.LoaderMemoryLogger.TIME_ICON_RESOLUTION;
 import static com.android.launcher3.model.ModelUtils.filterCurrentWorkspaceItems;
 import static com.android.launcher3.model.data.ItemInfoWithIcon.FLAG_INSTALL_SESSION_ACTIVE;
 import static com.android.launcher3.util.Executors.MODEL_EXECUTOR;
@@ -45,6 +48,7 @@ import android.content.pm.PackageInstaller.SessionInfo;
 import android.content.pm.PackageManager;
 import android.content.pm.ShortcutInfo;
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.os.Trace;
 import android.os.UserHandle;
 import android.os.UserManager;
@@ -150,6 +154,8 @@ public class LoaderTask implements Runnable {
 
     private final Set<PackageUserKey> mPendingPackages = new HashSet<>();
     private boolean mItemsDeleted = false;
+    // Collects logs and the structured trace of this run
+    private final LoaderMemoryLogger mMemoryLogger = new LoaderMemoryLogger();
     private String mDbName;
 
     public LoaderTask(@NonNull LauncherAppState app, AllAppsList bgAllAppsList, BgDataModel bgModel,
@@ -214,7 +220,7 @@ public class LoaderTask implements Runnable {
         }
 
         TraceHelper.INSTANCE.beginSection(TAG);
-        LoaderMemoryLogger memoryLogger = new LoaderMemoryLogger();
+        LoaderMemoryLogger memoryLogger = mMemoryLogger;
         mIsRestoreFromBackup =
                 (Boolean) LauncherPrefs.get(mApp.getContext()).get(IS_FIRST_LOAD_AFTER_RESTORE);
         LauncherRestoreEventLogger restoreEventLogger = null;
@@ -239,6 +245,7 @@ public class LoaderTask implements Runnable {
             }
 
             verifyNotStopped();
+            mBgDataModel.publishSnapshot(mBgAllAppsList);
             mLauncherBinder.bindWorkspace(true /* incrementBindId */, /* isBindSync= */ false);
             logASplit("bindWorkspace");
 
@@ -349,8 +356,11 @@ public class LoaderTask implements Runnable {
             logASplit("finish icon update");
 
             mModelDelegate.modelLoadComplete();
+            mBgDataModel.publishSnapshot(mBgAllAppsList);
             transaction.commit();
             memoryLogger.clearLogs();
+            memoryLogger.markComplete();
+            mApp.getModel().setLastLoaderTrace(memoryLogger);
             if (mIsRestoreFromBackup) {
                 mIsRestoreFromBackup = false;
                 LauncherPrefs.get(mApp.getContext()).putSync(IS_FIRST_LOAD_AFTER_RESTORE.to(false));
@@ -418,8 +428,10 @@ public class LoaderTask implements Runnable {
             mBgDataModel.clear();
             mPendingPackages.clear();
 
+            long startNanos = SystemClock.elapsedRealtimeNanos();
             final HashMap<PackageUserKey, SessionInfo> installingPkgs =
                     mSessionHelper.getActiveSessions();
+            mMemoryLogger.addTime(TIME_BINDER, SystemClock.elapsedRealtimeNanos() - startNanos);
             if (Utilities.enableSupportForArchiving()) {
                 mInstallingPkgsCached = installingPkgs;
             }
@@ -430,14 +442,19 @@ public class LoaderTask implements Runnable {
             mFirstScreenBroadcast = new FirstScreenBroadcast(installingPkgs);
 
             mShortcutKeyToPinnedShortcuts = new HashMap<>();
+            startNanos = SystemClock.elapsedRealtimeNanos();
             final LoaderCursor c = new LoaderCursor(
                     dbController.query(TABLE_NAME, null, selection, null, null),
                     mApp, mUserManagerState, mIsRestoreFromBackup ? restoreEventLogger : null);
+            mMemoryLogger.addTime(TIME_DB_READ, SystemClock.elapsedRealtimeNanos() - startNanos);
+            c.setMemoryLogger(mMemoryLogger);
             final Bundle extras = c.getExtras();
             mDbName = extras == null ? null : extras.getString(ModelDbController.EXTRA_DB_NAME);
             try {
                 final LongSparseArray<Boolean> unlockedUsers = new LongSparseArray<>();
+                startNanos = SystemClock.elapsedRealtimeNanos();
                 queryPinnedShortcutsForUnlockedUsers(context, unlockedUsers);
+                mMemoryLogger.addTime(TIME_BINDER, SystemClock.elapsedRealtimeNanos() - startNanos);
 
                 List<IconRequestInfo<WorkspaceItemInfo>> iconRequestInfos = new ArrayList<>();
 
@@ -448,10 +465,21 @@ public class LoaderTask implements Runnable {
                         widgetInflater, pmHelper, iconRequestInfos, unlockedUsers,
                         allDeepShortcuts);
 
-                while (!mStopped && c.moveToNext()) {
+                while (!mStopped) {
+                    long readStartNanos = SystemClock.elapsedRealtimeNanos();
+                    if (!c.moveToNext()) {
+                        break;
+                    }
+                    long itemStartNanos = SystemClock.elapsedRealtimeNanos();
+                    mMemoryLogger.addTime(TIME_DB_READ, itemStartNanos - readStartNanos);
                     itemProcessor.processItem();
+                    mMemoryLogger.addItemTime(c.itemType,
+                            SystemClock.elapsedRealtimeNanos() - itemStartNanos);
                 }
+                startNanos = SystemClock.elapsedRealtimeNanos();
                 tryLoadWorkspaceIconsInBulk(iconRequestInfos);
+                mMemoryLogger.addTime(TIME_ICON_RESOLUTION,
+                        SystemClock.elapsedRealtimeNanos() - startNanos);
             } finally {
                 IOUtils.closeSilently(c);
             }
@@ -472,10 +500,14 @@ public class LoaderTask implements Runnable {
             }
 
             // Remove dead items
+            mMemoryLogger.addRemovedItems("invalid_items", c.getDeletedItemCount());
             mItemsDeleted = c.commitDeleted();
 
             processFolderItems();
+            startNanos = SystemClock.elapsedRealtimeNanos();
             processAppPairItems();
+            mMemoryLogger.addTime(TIME_ICON_RESOLUTION,
+                    SystemClock.elapsedRealtimeNanos() - startNanos);
 
             c.commitRestoredItems();
         }
@@ -562,7 +594,9 @@ public class LoaderTask implements Runnable {
 
                 if (info.usingLowResIcon() && info.itemType == Favorites.ITEM_TYPE_APPLICATION
                         && verifiers.stream().anyMatch(it -> it.isItemInPreview(info.rank))) {
+                    long startNanos = SystemClock.elapsedRealtimeNanos();
                     mIconCache.getTitleAndIcon(info, false);
+                    mMemoryLogger.addTimeSince(TIME_ICON_RESOLUTION, startNanos);
                 }
             }
         }
@@ -609,6 +643,7 @@ public class LoaderTask implements Runnable {
         if (itemsDeleted) {
             // Remove any empty folder
             IntArray deletedFolderIds = mApp.getModel().getModelDbController().deleteEmptyFolders();
+            mMemoryLogger.addRemovedItems("empty_folders", deletedFolderIds.size());
             synchronized (mBgDataModel) {
                 for (int folderId : deletedFolderIds) {
                     mBgDataModel.workspaceItems.remove(mBgDataModel.folders.get(folderId));
@@ -623,10 +658,13 @@ public class LoaderTask implements Runnable {
         Context context = mApp.getContext();
 
         // Remove any ghost widgets
-        mApp.getModel().getModelDbController().removeGhostWidgets();
+        long startNanos = SystemClock.elapsedRealtimeNanos();
+        mMemoryLogger.addRemovedItems("ghost_widgets",
+                mApp.getModel().getModelDbController().removeGhostWidgets());
 
         // Update pinned state of model shortcuts
         mBgDataModel.updateShortcutPinnedState(context);
+        mMemoryLogger.addTime(TIME_BINDER, SystemClock.elapsedRealtimeNanos() - startNanos);
 
         if (!Utilities.isBootCompleted() && !mPendingPackages.isEmpty()) {
             context.registerReceiver(
@@ -648,7 +686,9 @@ public class LoaderTask implements Runnable {
         boolean isPrivateProfileQuiet = false;
         for (UserHandle user : profiles) {
             // Query for the set of apps
+            long startNanos = SystemClock.elapsedRealtimeNanos();
             final List<LauncherActivityInfo> apps = mLauncherApps.getActivityList(null, user);
+            mMemoryLogger.addTime(TIME_BINDER, SystemClock.elapsedRealtimeNanos() - startNanos);
             // Fail if we don't have any apps
             // TODO: Fix this. Only fail for the current user.
             if (apps == null || apps.isEmpty()) {
@@ -710,11 +750,14 @@ public class LoaderTask implements Runnable {
         }
 
         Trace.beginSection("LoadAllAppsIconsInBulk");
+        long startNanos = SystemClock.elapsedRealtimeNanos();
         try {
             mIconCache.getTitlesAndIconsInBulk(iconRequestInfos);
             iconRequestInfos.forEach(iconRequestInfo ->
                     mBgAllAppsList.updateSectionName(iconRequestInfo.itemInfo));
         } finally {
+            mMemoryLogger.addTime(TIME_ICON_RESOLUTION,
+                    SystemClock.elapsedRealtimeNanos() - startNanos);
             Trace.endSection();
         }
 
@@ -738,14 +781,19 @@ public class LoaderTask implements Runnable {
     private List<ShortcutInfo> loadDeepShortcuts() {
         List<ShortcutInfo> allShortcuts = new ArrayList<>();
         mBgDataModel.deepShortcutMap.clear();
+        mBgDataModel.shortcutCache.clear();
 
         if (mBgAllAppsList.hasShortcutHostPermission()) {
             for (UserHandle user : mUserCache.getUserProfiles()) {
                 if (mUserManager.isUserUnlocked(user)) {
+                    long startNanos = SystemClock.elapsedRealtimeNanos();
                     List<ShortcutInfo> shortcuts = new ShortcutRequest(mApp.getContext(), user)
                             .query(ShortcutRequest.ALL);
+                    mMemoryLogger.addTime(TIME_BINDER,
+                            SystemClock.elapsedRealtimeNanos() - startNanos);
                     allShortcuts.addAll(shortcuts);
                     mBgDataModel.updateDeepShortcutCounts(null, user, shortcuts);
+                    mBgDataModel.shortcutCache.update(null, user, shortcuts);
                 }
             }
         }
@@ -774,7 +822,8 @@ public class LoaderTask implements Runnable {
                 && (provider.provider.getPackageName() != null);
     }
 
-    private static void logASplit(String label) {
+    private void logASplit(String label) {
+        mMemoryLogger.addPhase(label);
         if (DEBUG) {
             Log.d(TAG, label);
         }
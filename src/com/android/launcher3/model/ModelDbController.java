@@ -237,9 +237,9 @@ public class ModelDbController {
      * Removes any widget which are present in the framework, but not in out internal DB
      */
     @WorkerThread
-    public void removeGhostWidgets() {
+    public int removeGhostWidgets() {
         createDbIfNotExists();
-        mOpenHelper.removeGhostWidgets(mOpenHelper.getWritableDatabase());
+        return mOpenHelper.removeGhostWidgets(mOpenHelper.getWritableDatabase());
     }
 
     /**
@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.model;
+
+import android.os.Looper;
+import android.os.SystemClock;
+
+import androidx.annotation.IntDef;
+import androidx.annotation.NonNull;
+
+import com.android.launcher3.util.ExecutorStats;
+import com.android.launcher3.util.LooperExecutor;
+
+import java.io.PrintWriter;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Schedules the model tasks by priority class.
+ *
+ * Tasks which can change the model are kept serialized on the model thread, but a pending task
+ * of a higher class runs before the pending tasks of lower classes. Tasks of the same class run in
+ * order.
+ *
+ * A write task still acts as a barrier on the model thread: it always runs before any work posted
+ * on the model thread after it was enqueued, so that callers can wait for it by posting on
+ * {@link com.android.launcher3.util.Executors#MODEL_EXECUTOR}. Only the tasks of a higher class
+ * enqueued later can run before it.
+ */
+public class ModelTaskScheduler {
+
+    /** Tasks the user is waiting on, like search results or folder name suggestions */
+    public static final int PRIORITY_USER_INTERACTIVE = 0;
+    /** Tasks updating the data bound to the UI. This is the default class. */
+    public static final int PRIORITY_BINDING = 1;
+    /** Tasks which can be delayed without visible effect, like cache or prediction updates */
+    public static final int PRIORITY_BACKGROUND = 2;
+
+    @Retention(RetentionPolicy.SOURCE)
+    @IntDef({PRIORITY_USER_INTERACTIVE, PRIORITY_BINDING, PRIORITY_BACKGROUND})
+    public @interface Priority { }
+
+    private static final String[] PRIORITY_NAMES = {"interactive", "binding", "background"};
+
+    private final LooperExecutor mWriteExecutor;
+
+    // Pending write tasks per priority, guarded by itself
+    private final ArrayDeque<PendingTask>[] mQueues;
+
+    private final ExecutorStats[] mWriteStats;
+
+    @SuppressWarnings("unchecked")
+    public ModelTaskScheduler(@NonNull LooperExecutor writeExecutor) {
+        mWriteExecutor = writeExecutor;
+        mQueues = new ArrayDeque[PRIORITY_NAMES.length];
+        mWriteStats = new ExecutorStats[PRIORITY_NAMES.length];
+        for (int i = 0; i < PRIORITY_NAMES.length; i++) {
+            mQueues[i] = new ArrayDeque<>();
+            mWriteStats[i] = new ExecutorStats("model-" + PRIORITY_NAMES[i]);
+        }
+    }
+
+    /**
+     * Runs a task which can change the model on the model thread. The task runs immediately if
+     * called on the model thread.
+     */
+    public void executeWrite(@NonNull Runnable task, @Priority int priority) {
+        PendingTask pendingTask = new PendingTask(task, task.getClass().getName(), priority);
+        if (mWriteExecutor.getLooper() == Looper.myLooper()) {
+            pendingTask.run(mWriteStats[priority]);
+            return;
+        }
+        synchronized (mQueues) {
+            mQueues[priority].add(pendingTask);
+        }
+        mWriteExecutor.post(() -> runUntil(pendingTask));
+    }
+
+    /**
+     * Runs the pending tasks by priority until the provided task has run. Only the tasks of its
+     * class or of a higher class are run, so that the lower class tasks queued before any other
+     * work posted on the model thread still run before that work.
+     */
+    private void runUntil(PendingTask barrier) {
+        while (true) {
+            PendingTask task = null;
+            synchronized (mQueues) {
+                if (barrier.started) {
+                    // Already run by the runner of an earlier task
+                    return;
+                }
+                for (int i = 0; i <= barrier.priority && task == null; i++) {
+                    task = mQueues[i].poll();
+                }
+                // The barrier is still queued, so its own queue can't be empty
+                task.started = true;
+            }
+            task.run(mWriteStats[task.priority]);
+        }
+    }
+
+    public void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + "ModelTaskScheduler:");
+        for (int i = 0; i < PRIORITY_NAMES.length; i++) {
+            Map<String, Integer> queued = new TreeMap<>();
+            synchronized (mQueues) {
+                for (PendingTask task : mQueues[i]) {
+                    queued.merge(task.taskClass, 1, Integer::sum);
+                }
+            }
+            mWriteStats[i].dump(prefix + "\t", writer, queued);
+        }
+    }
+
+    private static class PendingTask {
+
+        final Runnable task;
+        final String taskClass;
+        final int priority;
+        final long enqueueNanos = SystemClock.elapsedRealtimeNanos();
+
+        // Set when the task is removed from its queue, guarded by the queues
+        boolean started = false;
+
+        PendingTask(Runnable task, String taskClass, int priority) {
+            this.task = task;
+            this.taskClass = taskClass;
+            this.priority = priority;
+        }
+
+        void run(ExecutorStats stats) {
+            long startNanos = SystemClock.elapsedRealtimeNanos();
+            try {
+                task.run();
+            } finally {
+                stats.record(taskClass, startNanos - enqueueNanos,
+                        SystemClock.elapsedRealtimeNanos() - startNanos);
+            }
+        }
+    }
+}
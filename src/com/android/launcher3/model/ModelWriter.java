@@ -53,6 +53,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
@@ -65,6 +66,9 @@ public class ModelWriter {
 
     private static final String TAG = "ModelWriter";
 
+    // Number of write tasks, across all writers, posted to the model thread but not yet run
+    private static final AtomicInteger sPendingWrites = new AtomicInteger();
+
     private final Context mContext;
     private final LauncherModel mModel;
     private final BgDataModel mBgDataModel;
@@ -472,6 +476,10 @@ public class ModelWriter {
                 // as in Workspace.onDrop. Here, we just add/remove them from the list of items
                 // that are on the desktop, as appropriate
                 ItemInfo modelItem = mBgDataModel.itemsIdMap.get(itemId);
+                if (modelItem != null) {
+                    mBgDataModel.updateItemIndex(modelItem);
+                }
+                mBgDataModel.markChanged();
                 if (modelItem != null &&
                         (modelItem.container == Favorites.CONTAINER_DESKTOP ||
                                 modelItem.container == Favorites.CONTAINER_HOTSEAT)) {
@@ -501,20 +509,33 @@ public class ModelWriter {
 
         @Override
         public final void run() {
-            if (mLoadId != mModel.getLastLoadId()) {
-                Log.d(TAG, "Model changed before the task could execute");
-                return;
+            try {
+                if (mLoadId != mModel.getLastLoadId()) {
+                    Log.d(TAG, "Model changed before the task could execute");
+                    return;
+                }
+                runImpl();
+                mBgDataModel.publishSnapshot();
+            } finally {
+                sPendingWrites.decrementAndGet();
             }
-            runImpl();
         }
 
         public final void executeOnModelThread() {
+            sPendingWrites.incrementAndGet();
             MODEL_EXECUTOR.execute(this);
         }
 
         public abstract void runImpl();
     }
 
+    /**
+     * Returns the number of write tasks posted to the model thread which have not run yet
+     */
+    public static int getPendingWriteCount() {
+        return sPendingWrites.get();
+    }
+
     private ModelTask newModelTask(Runnable r) {
         return new ModelTask() {
             @Override
@@ -15,6 +15,8 @@
  */
 package com.android.launcher3.model;
 
+import static com.android.launcher3.model.ModelTaskScheduler.PRIORITY_BACKGROUND;
+
 import android.os.UserHandle;
 
 import androidx.annotation.NonNull;
@@ -26,6 +28,7 @@ import com.android.launcher3.model.data.WorkspaceItemInfo;
 import com.android.launcher3.pm.PackageInstallInfo;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -48,6 +51,11 @@ public class PackageIncrementalDownloadUpdatedTask extends BaseModelUpdateTask {
         mPackageName = packageName;
     }
 
+    @Override
+    public int getPriority() {
+        return PRIORITY_BACKGROUND;
+    }
+
     @Override
     public void execute(@NonNull LauncherAppState app, @NonNull final BgDataModel dataModel,
             @NonNull final AllAppsList appsList) {
@@ -71,7 +79,7 @@ public class PackageIncrementalDownloadUpdatedTask extends BaseModelUpdateTask {
 
         final ArrayList<WorkspaceItemInfo> updatedWorkspaceItems = new ArrayList<>();
         synchronized (dataModel) {
-            dataModel.forAllWorkspaceItemInfos(mUser, si -> {
+            dataModel.forAllWorkspaceItemInfos(mUser, Collections.singleton(mPackageName), si -> {
                 if (mPackageName.equals(si.getTargetPackage())) {
                     si.runtimeStatusFlags &= ~ItemInfoWithIcon.FLAG_INSTALL_SESSION_ACTIVE;
                     si.setProgressLevel(downloadInfo);
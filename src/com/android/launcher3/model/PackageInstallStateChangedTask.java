@@ -26,7 +26,9 @@ import com.android.launcher3.model.data.ItemInfo;
 import com.android.launcher3.model.data.LauncherAppWidgetInfo;
 import com.android.launcher3.pm.PackageInstallInfo;
 import com.android.launcher3.util.InstantAppResolver;
+import com.android.launcher3.util.PackageUserKey;
 
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 
@@ -74,7 +76,8 @@ public class PackageInstallStateChangedTask extends BaseModelUpdateTask {
 
         synchronized (dataModel) {
             final HashSet<ItemInfo> updates = new HashSet<>();
-            dataModel.forAllWorkspaceItemInfos(mInstallInfo.user, si -> {
+            dataModel.forAllWorkspaceItemInfos(mInstallInfo.user,
+                    Collections.singleton(mInstallInfo.packageName), si -> {
                 if (si.hasPromiseIconUi()
                         && mInstallInfo.packageName.equals(si.getTargetPackage())) {
                     si.setProgressLevel(mInstallInfo);
@@ -82,8 +85,9 @@ public class PackageInstallStateChangedTask extends BaseModelUpdateTask {
                 }
             });
 
-            for (LauncherAppWidgetInfo widget : dataModel.appWidgets) {
-                if (widget.providerName.getPackageName().equals(mInstallInfo.packageName)) {
+            for (ItemInfo info : dataModel.getItemsForPackage(
+                    new PackageUserKey(mInstallInfo.packageName, mInstallInfo.user))) {
+                if (info instanceof LauncherAppWidgetInfo widget) {
                     widget.installProgress = mInstallInfo.progress;
                     updates.add(widget);
                 }
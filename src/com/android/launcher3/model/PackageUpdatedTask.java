@@ -63,6 +63,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
@@ -155,6 +156,7 @@ public class PackageUpdatedTask extends BaseModelUpdateTask {
                 for (int i = 0; i < N; i++) {
                     if (DEBUG) Log.d(TAG, "mAllAppsList.removePackage " + packages[i]);
                     appsList.removePackage(packages[i], mUser);
+                    dataModel.shortcutCache.invalidate(packages[i], mUser);
                 }
                 flagOp = FlagOp.NO_OP.addFlag(WorkspaceItemInfo.FLAG_DISABLED_NOT_AVAILABLE);
                 break;
@@ -206,7 +208,7 @@ public class PackageUpdatedTask extends BaseModelUpdateTask {
             // For system apps, package manager send OP_UPDATE when an app is enabled.
             final boolean isNewApkAvailable = mOp == OP_ADD || mOp == OP_UPDATE;
             synchronized (dataModel) {
-                dataModel.forAllWorkspaceItemInfos(mUser, si -> {
+                Consumer<WorkspaceItemInfo> itemUpdater = si -> {
 
                     boolean infoUpdated = false;
                     boolean shortcutUpdated = false;
@@ -307,15 +309,24 @@ public class PackageUpdatedTask extends BaseModelUpdateTask {
                         updatedWorkspaceItems.add(si);
                     }
                     if (infoUpdated && si.id != ItemInfo.NO_ID) {
+                        dataModel.updateItemIndex(si);
                         getModelWriter().updateItemInDatabase(si);
                     }
-                });
+                };
+                if (mOp == OP_USER_AVAILABILITY_CHANGE) {
+                    dataModel.forAllWorkspaceItemInfos(mUser, itemUpdater);
+                } else {
+                    dataModel.forAllWorkspaceItemInfos(mUser, packageSet, itemUpdater);
+                }
 
-                for (LauncherAppWidgetInfo widgetInfo : dataModel.appWidgets) {
-                    if (mUser.equals(widgetInfo.user)
-                            && widgetInfo.hasRestoreFlag(
-                                    LauncherAppWidgetInfo.FLAG_PROVIDER_NOT_READY)
-                            && packageSet.contains(widgetInfo.providerName.getPackageName())) {
+                for (String packageName : packageSet) {
+                    for (ItemInfo info : dataModel.getItemsForPackage(
+                            new PackageUserKey(packageName, mUser))) {
+                        if (!(info instanceof LauncherAppWidgetInfo widgetInfo)
+                                || !widgetInfo.hasRestoreFlag(
+                                        LauncherAppWidgetInfo.FLAG_PROVIDER_NOT_READY)) {
+                            continue;
+                        }
                         widgetInfo.restoreStatus &=
                                 ~LauncherAppWidgetInfo.FLAG_PROVIDER_NOT_READY
                                         & ~LauncherAppWidgetInfo.FLAG_RESTORE_STARTED;
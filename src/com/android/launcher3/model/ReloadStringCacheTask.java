@@ -15,6 +15,8 @@
  */
 package com.android.launcher3.model;
 
+import static com.android.launcher3.model.ModelTaskScheduler.PRIORITY_BACKGROUND;
+
 import androidx.annotation.NonNull;
 
 import com.android.launcher3.LauncherAppState;
@@ -32,6 +34,11 @@ public class ReloadStringCacheTask extends BaseModelUpdateTask {
         mModelDelegate = modelDelegate;
     }
 
+    @Override
+    public int getPriority() {
+        return PRIORITY_BACKGROUND;
+    }
+
     @Override
     public void execute(@NonNull final LauncherAppState app, @NonNull final BgDataModel dataModel,
             @NonNull final AllAppsList appsList) {
@@ -30,6 +30,7 @@ import com.android.launcher3.util.ItemInfoMatcher;
 import com.android.launcher3.util.PackageManagerHelper;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -68,7 +69,7 @@ public class ShortcutsChangedTask extends BaseModelUpdateTask {
         ArrayList<WorkspaceItemInfo> matchingWorkspaceItems = new ArrayList<>();
 
         synchronized (dataModel) {
-            dataModel.forAllWorkspaceItemInfos(mUser, si -> {
+            dataModel.forAllWorkspaceItemInfos(mUser, Collections.singleton(mPackageName), si -> {
                 if ((si.itemType == LauncherSettings.Favorites.ITEM_TYPE_DEEP_SHORTCUT)
                         && mPackageName.equals(si.getIntent().getPackage())) {
                     matchingWorkspaceItems.add(si);
@@ -123,6 +124,10 @@ public class ShortcutsChangedTask extends BaseModelUpdateTask {
             }
         }
 
+        // The shortcuts delivered with change events only have their key fields, the next popup
+        // queries the full shortcuts again.
+        dataModel.shortcutCache.invalidate(mPackageName, mUser);
+
         if (mUpdateIdMap) {
             // Update the deep shortcut map if the list of ids has changed for an activity.
             dataModel.updateDeepShortcutCounts(mPackageName, mUser, mShortcuts);
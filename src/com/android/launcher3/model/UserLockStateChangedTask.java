@@ -36,6 +36,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 
 /**
  * Task to handle changing of lock state of the user
@@ -112,11 +113,13 @@ public class UserLockStateChangedTask extends BaseModelUpdateTask {
                 keysIter.remove();
             }
         }
+        dataModel.shortcutCache.clearUser(mUser);
 
         if (mIsUserUnlocked) {
-            dataModel.updateDeepShortcutCounts(
-                    null, mUser,
-                    new ShortcutRequest(context, mUser).query(ShortcutRequest.ALL));
+            List<ShortcutInfo> shortcuts =
+                    new ShortcutRequest(context, mUser).query(ShortcutRequest.ALL);
+            dataModel.updateDeepShortcutCounts(null, mUser, shortcuts);
+            dataModel.shortcutCache.update(null, mUser, shortcuts);
         }
         bindDeepShortcuts(dataModel);
     }
@@ -23,6 +23,7 @@ import android.content.pm.LauncherApps
 import android.content.pm.PackageInstaller
 import android.content.pm.ShortcutInfo
 import android.graphics.Point
+import android.os.SystemClock
 import android.text.TextUtils
 import android.util.Log
 import android.util.LongSparseArray
@@ -32,6 +33,8 @@ import com.android.launcher3.LauncherSettings.Favorites
 import com.android.launcher3.Utilities
 import com.android.launcher3.backuprestore.LauncherRestoreEventLogger.RestoreError
 import com.android.launcher3.logging.FileLog
+import com.android.launcher3.model.LoaderMemoryLogger.TIME_BINDER
+import com.android.launcher3.model.LoaderMemoryLogger.TIME_ICON_RESOLUTION
 import com.android.launcher3.model.data.IconRequestInfo
 import com.android.launcher3.model.data.ItemInfoWithIcon
 import com.android.launcher3.model.data.LauncherAppWidgetInfo
@@ -146,14 +149,14 @@ class WorkspaceItemProcessor(
             c.markDeleted("No target package for item id=${c.id}", RestoreError.MISSING_INFO)
             return
         }
-        var validTarget = launcherApps.isPackageEnabled(targetPkg, c.user)
+        var validTarget = timed(TIME_BINDER) { launcherApps.isPackageEnabled(targetPkg, c.user) }
 
         // If it's a deep shortcut, we'll use pinned shortcuts to restore it
         if (cn != null && validTarget && (c.itemType != Favorites.ITEM_TYPE_DEEP_SHORTCUT)) {
             // If the apk is present and the shortcut points to a specific component.
 
             // If the component is already present
-            if (launcherApps.isActivityEnabled(cn, c.user)) {
+            if (timed(TIME_BINDER) { launcherApps.isActivityEnabled(cn, c.user) }) {
                 // no special handling necessary for this item
                 c.markRestored()
             } else {
@@ -163,7 +166,7 @@ class WorkspaceItemProcessor(
                     "Activity not enabled for id=${c.id}, component=$cn, user=${c.user}." +
                         " Will attempt to find fallback Activity for targetPkg=$targetPkg."
                 )
-                intent = pmHelper.getAppLaunchIntent(targetPkg, c.user)
+                intent = timed(TIME_BINDER) { pmHelper.getAppLaunchIntent(targetPkg, c.user) }
                 if (intent != null) {
                     c.restoreFlag = 0
                     c.updater().put(Favorites.INTENT, intent.toUri(0)).commit()
@@ -209,7 +212,7 @@ class WorkspaceItemProcessor(
                             }
                         }
                     }
-                    pmHelper.isAppOnSdcard(targetPkg, c.user) -> {
+                    timed(TIME_BINDER) { pmHelper.isAppOnSdcard(targetPkg, c.user) } -> {
                         // Package is present but not available.
                         disabledState =
                             disabledState or WorkspaceItemInfo.FLAG_DISABLED_NOT_AVAILABLE
@@ -267,8 +270,14 @@ class WorkspaceItemProcessor(
                     info = WorkspaceItemInfo(pinnedShortcut, app.context)
                     // If the pinned deep shortcut is no longer published,
                     // use the last saved icon instead of the default.
-                    iconCache.getShortcutIcon(info, pinnedShortcut, c::loadIcon)
-                    if (pmHelper.isAppSuspended(pinnedShortcut.getPackage(), info.user)) {
+                    timed(TIME_ICON_RESOLUTION) {
+                        iconCache.getShortcutIcon(info, pinnedShortcut, c::loadIcon)
+                    }
+                    if (
+                        timed(TIME_BINDER) {
+                            pmHelper.isAppSuspended(pinnedShortcut.getPackage(), info.user)
+                        }
+                    ) {
                         info.runtimeStatusFlags =
                             info.runtimeStatusFlags or ItemInfoWithIcon.FLAG_DISABLED_SUSPENDED
                     }
@@ -285,7 +294,10 @@ class WorkspaceItemProcessor(
                 info = c.loadSimpleWorkspaceItem()
 
                 // Shortcuts are only available on the primary profile
-                if (!TextUtils.isEmpty(targetPkg) && pmHelper.isAppSuspended(targetPkg, c.user)) {
+                if (
+                    !TextUtils.isEmpty(targetPkg) &&
+                        timed(TIME_BINDER) { pmHelper.isAppSuspended(targetPkg, c.user) }
+                ) {
                     disabledState = disabledState or ItemInfoWithIcon.FLAG_DISABLED_SUSPENDED
                 }
                 info.options = c.options
@@ -444,7 +456,7 @@ class WorkspaceItemProcessor(
                         (si == null) &&
                         (lapi == null) &&
                         !(Utilities.enableSupportForArchiving() &&
-                            pmHelper.isAppArchived(component.packageName))
+                            timed(TIME_BINDER) { pmHelper.isAppArchived(component.packageName) })
                 ) {
                     // Restore never started
                     c.markDeleted(
@@ -467,7 +479,9 @@ class WorkspaceItemProcessor(
                         appWidgetInfo.providerName,
                         appWidgetInfo.user
                     )
-                iconCache.getTitleAndIconForApp(appWidgetInfo.pendingItemInfo, false)
+                timed(TIME_ICON_RESOLUTION) {
+                    iconCache.getTitleAndIconForApp(appWidgetInfo.pendingItemInfo, false)
+                }
             }
             WidgetInflater.TYPE_REAL ->
                 WidgetSizes.updateWidgetSizeRangesAsync(
@@ -499,6 +513,16 @@ class WorkspaceItemProcessor(
         c.checkAndAddItem(appWidgetInfo, bgDataModel)
     }
 
+    /** Runs [block] and books its duration to the provided [LoaderMemoryLogger] time category. */
+    private inline fun <T> timed(category: Int, block: () -> T): T {
+        val startNanos = SystemClock.elapsedRealtimeNanos()
+        try {
+            return block()
+        } finally {
+            memoryLogger?.addTimeSince(category, startNanos)
+        }
+    }
+
     companion object {
         private const val TAG = "WorkspaceItemProcessor"
 
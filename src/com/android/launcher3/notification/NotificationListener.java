@@ -16,6 +16,7 @@
 
 package com.android.launcher3.notification;
 
+import static com.android.launcher3.Flags.batchNotificationUpdates;
 import static com.android.launcher3.util.Executors.MAIN_EXECUTOR;
 import static com.android.launcher3.util.Executors.MODEL_EXECUTOR;
 import static com.android.launcher3.util.SettingsCache.NOTIFICATION_BADGING_URI;
@@ -43,8 +44,10 @@ import com.android.launcher3.util.SettingsCache;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -64,6 +67,11 @@ public class NotificationListener extends NotificationListenerService {
     private static final int MSG_NOTIFICATION_REMOVED = 2;
     private static final int MSG_NOTIFICATION_FULL_REFRESH = 3;
     private static final int MSG_RANKING_UPDATE = 4;
+    private static final int MSG_NOTIFICATION_BATCH = 5;
+    private static final int MSG_FLUSH_BATCH = 6;
+
+    /** Time to collect notification changes before delivering them, roughly one frame. */
+    private static final long BATCH_DELAY_MS = 16;
 
     private static NotificationListener sNotificationListenerInstance = null;
     private static final ArraySet<NotificationsChangedListener> sNotificationsChangedListeners =
@@ -78,6 +86,12 @@ public class NotificationListener extends NotificationListenerService {
     private final Map<String, NotificationGroup> mNotificationGroupMap = new HashMap<>();
     /** Maps keys to their corresponding current group key */
     private final Map<String, String> mNotificationGroupKeyMap = new HashMap<>();
+    /**
+     * Changes waiting to be delivered to the UI thread, keyed by notification key. Only the
+     * latest change is kept for each notification.
+     */
+    private final LinkedHashMap<String, NotificationChange> mPendingChanges =
+            new LinkedHashMap<>();
 
     private SettingsCache mSettingsCache;
     private SettingsCache.OnChangeListener mNotificationSettingsChangedListener;
@@ -119,15 +133,13 @@ public class NotificationListener extends NotificationListenerService {
         switch (message.what) {
             case MSG_NOTIFICATION_POSTED: {
                 StatusBarNotification sbn = (StatusBarNotification) message.obj;
-                mUiHandler.obtainMessage(notificationIsValidForUI(sbn)
-                                ? MSG_NOTIFICATION_POSTED : MSG_NOTIFICATION_REMOVED,
-                        toKeyPair(sbn)).sendToTarget();
+                sendChangeToUi(sbn, notificationIsValidForUI(sbn)
+                        ? MSG_NOTIFICATION_POSTED : MSG_NOTIFICATION_REMOVED);
                 return true;
             }
             case MSG_NOTIFICATION_REMOVED: {
                 StatusBarNotification sbn = (StatusBarNotification) message.obj;
-                mUiHandler.obtainMessage(MSG_NOTIFICATION_REMOVED,
-                        toKeyPair(sbn)).sendToTarget();
+                sendChangeToUi(sbn, MSG_NOTIFICATION_REMOVED);
 
                 NotificationGroup notificationGroup = mNotificationGroupMap.get(sbn.getGroupKey());
                 String key = sbn.getKey();
@@ -140,6 +152,10 @@ public class NotificationListener extends NotificationListenerService {
                 return true;
             }
             case MSG_NOTIFICATION_FULL_REFRESH:
+                // The full refresh already reflects any pending change.
+                mPendingChanges.clear();
+                mWorkerHandler.removeMessages(MSG_FLUSH_BATCH);
+
                 List<StatusBarNotification> activeNotifications = null;
                 if (sIsConnected) {
                     activeNotifications = Arrays.stream(getActiveNotificationsSafely(null))
@@ -158,10 +174,37 @@ public class NotificationListener extends NotificationListenerService {
                 }
                 return true;
             }
+            case MSG_FLUSH_BATCH: {
+                if (!mPendingChanges.isEmpty()) {
+                    NotificationBatch batch = new NotificationBatch(mPendingChanges.values());
+                    mPendingChanges.clear();
+                    mUiHandler.obtainMessage(MSG_NOTIFICATION_BATCH, batch).sendToTarget();
+                }
+                return true;
+            }
         }
         return false;
     }
 
+    @WorkerThread
+    private void sendChangeToUi(StatusBarNotification sbn, int what) {
+        if (!batchNotificationUpdates()) {
+            mUiHandler.obtainMessage(what, toKeyPair(sbn)).sendToTarget();
+            return;
+        }
+        if (!mWorkerHandler.hasMessages(MSG_FLUSH_BATCH)) {
+            // A single change is delivered right away, only the changes following it within the
+            // same frame are accumulated into a batch
+            mUiHandler.obtainMessage(what, toKeyPair(sbn)).sendToTarget();
+            mWorkerHandler.sendEmptyMessageDelayed(MSG_FLUSH_BATCH, BATCH_DELAY_MS);
+            return;
+        }
+        // Re-insert so that the batch keeps the order of the latest changes
+        String key = sbn.getKey();
+        mPendingChanges.remove(key);
+        mPendingChanges.put(key, new NotificationChange(what, toKeyPair(sbn)));
+    }
+
     private boolean handleUiMessage(Message message) {
         switch (message.what) {
             case MSG_NOTIFICATION_POSTED:
@@ -180,6 +223,23 @@ public class NotificationListener extends NotificationListenerService {
                     }
                 }
                 break;
+            case MSG_NOTIFICATION_BATCH:
+                if (sNotificationsChangedListeners.size() > 0) {
+                    NotificationBatch batch = (NotificationBatch) message.obj;
+                    for (NotificationChange change : batch.changes) {
+                        for (NotificationsChangedListener listener
+                                : sNotificationsChangedListeners) {
+                            if (change.what == MSG_NOTIFICATION_POSTED) {
+                                listener.onNotificationPosted(change.keys.first,
+                                        change.keys.second);
+                            } else {
+                                listener.onNotificationRemoved(change.keys.first,
+                                        change.keys.second);
+                            }
+                        }
+                    }
+                }
+                break;
             case MSG_NOTIFICATION_FULL_REFRESH:
                 if (sNotificationsChangedListeners.size() > 0) {
                     for (NotificationsChangedListener listener : sNotificationsChangedListeners) {
@@ -320,6 +380,32 @@ public class NotificationListener extends NotificationListenerService {
                 NotificationKeyData.fromNotification(sbn));
     }
 
+    /**
+     * A posted or removed notification waiting to be delivered to the UI thread.
+     */
+    private static class NotificationChange {
+
+        final int what;
+        final Pair<PackageUserKey, NotificationKeyData> keys;
+
+        NotificationChange(int what, Pair<PackageUserKey, NotificationKeyData> keys) {
+            this.what = what;
+            this.keys = keys;
+        }
+    }
+
+    /**
+     * Changes delivered to the UI thread together, in the order they were last updated.
+     */
+    private static class NotificationBatch {
+
+        final ArrayList<NotificationChange> changes;
+
+        NotificationBatch(Collection<NotificationChange> changes) {
+            this.changes = new ArrayList<>(changes);
+        }
+    }
+
     public interface NotificationsChangedListener {
         void onNotificationPosted(PackageUserKey postedPackageUserKey,
                 NotificationKeyData notificationKey);
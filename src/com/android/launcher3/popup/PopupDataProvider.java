@@ -18,7 +18,9 @@ package com.android.launcher3.popup;
 
 import android.content.ComponentName;
 import android.service.notification.StatusBarNotification;
+import android.util.ArraySet;
 import android.util.Log;
+import android.view.Choreographer;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -39,6 +41,7 @@ import com.android.launcher3.widget.picker.WidgetRecommendationCategory;
 import java.io.PrintWriter;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -50,7 +53,8 @@ import java.util.stream.Collectors;
 /**
  * Provides data for the popup menu that appears after long-clicking on apps.
  */
-public class PopupDataProvider implements NotificationListener.NotificationsChangedListener {
+public class PopupDataProvider implements NotificationListener.NotificationsChangedListener,
+        Choreographer.FrameCallback {
 
     private static final boolean LOGD = false;
     private static final String TAG = "PopupDataProvider";
@@ -60,7 +64,22 @@ public class PopupDataProvider implements NotificationListener.NotificationsChan
     /** Maps launcher activity components to a count of how many shortcuts they have. */
     private HashMap<ComponentKey, Integer> mDeepShortcutMap = new HashMap<>();
     /** Maps packages to their DotInfo's . */
-    private Map<PackageUserKey, DotInfo> mPackageUserToDotInfos = new HashMap<>();
+    private final Map<PackageUserKey, DotInfo> mPackageUserToDotInfos = new HashMap<>();
+
+    /**
+     * Packages whose dots changed since the last frame. Dot updates are coalesced so that a burst
+     * of notifications only causes one update of the icons per frame. The two sets are swapped
+     * on dispatch to avoid allocating a new set for every frame.
+     */
+    private ArraySet<PackageUserKey> mPendingDotUpdates = new ArraySet<>();
+    private ArraySet<PackageUserKey> mDispatchingDotUpdates = new ArraySet<>();
+    private boolean mDotUpdateScheduled = false;
+    /** Used to look up existing dots without allocating a key for each notification. */
+    private final PackageUserKey mTempKey = new PackageUserKey(null, null);
+
+    /** Number of dot changes requested and number of icon updates actually dispatched. */
+    private int mDotChangeCount = 0;
+    private int mDotDispatchCount = 0;
 
     /** All installed widgets. */
     private List<WidgetsListBaseEntry> mAllWidgets = List.of();
@@ -73,8 +92,38 @@ public class PopupDataProvider implements NotificationListener.NotificationsChan
         mNotificationDotsChangeListener = notificationDotsChangeListener;
     }
 
-    private void updateNotificationDots(Predicate<PackageUserKey> updatedDots) {
-        mNotificationDotsChangeListener.accept(updatedDots);
+    /**
+     * Schedules an update of the dots for the provided package on the next frame.
+     */
+    private void scheduleDotUpdate(PackageUserKey updatedKey) {
+        mDotChangeCount++;
+        mPendingDotUpdates.add(updatedKey);
+        if (!mDotUpdateScheduled) {
+            mDotUpdateScheduled = true;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        mDotUpdateScheduled = false;
+        if (mPendingDotUpdates.isEmpty()) {
+            return;
+        }
+        ArraySet<PackageUserKey> updatedDots = mPendingDotUpdates;
+        mPendingDotUpdates = mDispatchingDotUpdates;
+        mDispatchingDotUpdates = updatedDots;
+
+        mDotDispatchCount++;
+        mNotificationDotsChangeListener.accept(updatedDots::contains);
+        updatedDots.clear();
+    }
+
+    /**
+     * Returns the number of dot changes which were merged into an already scheduled update.
+     */
+    public int getCoalescedDotUpdateCount() {
+        return mDotChangeCount - mDotDispatchCount;
     }
 
     @Override
@@ -86,7 +135,7 @@ public class PopupDataProvider implements NotificationListener.NotificationsChan
             mPackageUserToDotInfos.put(postedPackageUserKey, dotInfo);
         }
         if (dotInfo.addOrUpdateNotificationKey(notificationKey)) {
-            updateNotificationDots(postedPackageUserKey::equals);
+            scheduleDotUpdate(postedPackageUserKey);
         }
     }
 
@@ -98,43 +147,45 @@ public class PopupDataProvider implements NotificationListener.NotificationsChan
             if (oldDotInfo.getNotificationKeys().size() == 0) {
                 mPackageUserToDotInfos.remove(removedPackageUserKey);
             }
-            updateNotificationDots(removedPackageUserKey::equals);
+            scheduleDotUpdate(removedPackageUserKey);
         }
     }
 
     @Override
     public void onNotificationFullRefresh(List<StatusBarNotification> activeNotifications) {
         if (activeNotifications == null) return;
-        // This will contain the PackageUserKeys which have updated dots.
-        HashMap<PackageUserKey, DotInfo> updatedDots = new HashMap<>(mPackageUserToDotInfos);
-        mPackageUserToDotInfos.clear();
+        // Collect the new notification counts, reusing the existing keys where possible
+        HashMap<PackageUserKey, DotInfo> newDots = new HashMap<>();
         for (StatusBarNotification notification : activeNotifications) {
-            PackageUserKey packageUserKey = PackageUserKey.fromNotification(notification);
-            DotInfo dotInfo = mPackageUserToDotInfos.get(packageUserKey);
+            mTempKey.update(notification.getPackageName(), notification.getUser());
+            DotInfo dotInfo = newDots.get(mTempKey);
             if (dotInfo == null) {
                 dotInfo = new DotInfo();
-                mPackageUserToDotInfos.put(packageUserKey, dotInfo);
+                newDots.put(PackageUserKey.fromNotification(notification), dotInfo);
             }
             dotInfo.addOrUpdateNotificationKey(NotificationKeyData.fromNotification(notification));
         }
 
-        // Add and remove from updatedDots so it contains the PackageUserKeys of updated dots.
-        for (PackageUserKey packageUserKey : mPackageUserToDotInfos.keySet()) {
-            DotInfo prevDot = updatedDots.get(packageUserKey);
-            DotInfo newDot = mPackageUserToDotInfos.get(packageUserKey);
-            if (prevDot == null
-                    || prevDot.getNotificationCount() != newDot.getNotificationCount()) {
-                updatedDots.put(packageUserKey, newDot);
+        // Diff against the current dots, and only update the ones with a visual change.
+        Iterator<Map.Entry<PackageUserKey, DotInfo>> it =
+                mPackageUserToDotInfos.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<PackageUserKey, DotInfo> entry = it.next();
+            DotInfo newDot = newDots.remove(entry.getKey());
+            if (newDot == null) {
+                it.remove();
+                scheduleDotUpdate(entry.getKey());
             } else {
-                // No need to update the dot if it already existed (no visual change).
-                // Note that if the dot was removed entirely, we wouldn't reach this point because
-                // this loop only includes active notifications added above.
-                updatedDots.remove(packageUserKey);
+                if (newDot.getNotificationCount() != entry.getValue().getNotificationCount()) {
+                    scheduleDotUpdate(entry.getKey());
+                }
+                entry.setValue(newDot);
             }
         }
-
-        if (!updatedDots.isEmpty()) {
-            updateNotificationDots(updatedDots::containsKey);
+        // Remaining dots were not present before
+        for (Map.Entry<PackageUserKey, DotInfo> entry : newDots.entrySet()) {
+            mPackageUserToDotInfos.put(entry.getKey(), entry.getValue());
+            scheduleDotUpdate(entry.getKey());
         }
     }
 
@@ -270,6 +321,9 @@ public class PopupDataProvider implements NotificationListener.NotificationsChan
     public void dump(String prefix, PrintWriter writer) {
         writer.println(prefix + "PopupDataProvider:");
         writer.println(prefix + "\tmPackageUserToDotInfos:" + mPackageUserToDotInfos);
+        writer.println(prefix + "\tdotChanges=" + mDotChangeCount
+                + " dotUpdatesDispatched=" + mDotDispatchCount
+                + " coalesced=" + getCoalescedDotUpdateCount());
     }
 
     public interface PopupDataChangeListener {
@@ -31,12 +31,15 @@ import com.android.launcher3.icons.IconCache;
 import com.android.launcher3.model.data.ItemInfo;
 import com.android.launcher3.model.data.WorkspaceItemInfo;
 import com.android.launcher3.shortcuts.DeepShortcutView;
+import com.android.launcher3.shortcuts.ShortcutCache;
 import com.android.launcher3.shortcuts.ShortcutRequest;
+import com.android.launcher3.shortcuts.ShortcutRequest.QueryResult;
 import com.android.launcher3.views.ActivityContext;
 
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  * Contains logic relevant to populating a {@link PopupContainerWithArrow}. In particular,
@@ -113,9 +116,31 @@ public class PopupPopulator {
         final ComponentName activity = originalInfo.getTargetComponent();
         final UserHandle user = originalInfo.user;
         return () -> {
-            List<ShortcutInfo> shortcuts = new ShortcutRequest(context, user)
-                    .withContainer(activity)
-                    .query(ShortcutRequest.PUBLISHED);
+            ShortcutCache shortcutCache =
+                    LauncherAppState.getInstance(context).getModel().getShortcutCache();
+            List<ShortcutInfo> shortcuts = activity == null ? null
+                    : shortcutCache.getPublishedShortcuts(activity, user);
+            if (shortcuts == null && activity != null) {
+                // Query the whole package, so that its other activities are served from the cache
+                int invalidationCount = shortcutCache.getInvalidationCount();
+                QueryResult result = new ShortcutRequest(context, user)
+                        .forPackage(activity.getPackageName())
+                        .query(ShortcutRequest.PUBLISHED);
+                if (result.wasSuccess()) {
+                    shortcutCache.update(
+                            activity.getPackageName(), user, result, invalidationCount);
+                }
+                shortcuts = result.stream()
+                        .filter(shortcut -> activity.equals(shortcut.getActivity()))
+                        .collect(Collectors.toList());
+            } else if (shortcuts == null) {
+                shortcuts = new ShortcutRequest(context, user)
+                        .withContainer(activity)
+                        .query(ShortcutRequest.PUBLISHED);
+            } else {
+                // Sorting happens in place, do not modify the cached list
+                shortcuts = new ArrayList<>(shortcuts);
+            }
             shortcuts = PopupPopulator.sortAndFilterShortcuts(shortcuts);
             IconCache cache = LauncherAppState.getInstance(context).getIconCache();
             for (int i = 0; i < shortcuts.size() && i < shortcutViews.size(); i++) {
@@ -17,44 +17,89 @@
 package com.android.launcher3.recyclerview
 
 import android.content.Context
+import android.os.SystemClock
+import android.util.SparseIntArray
+import android.util.SparseLongArray
+import androidx.annotation.VisibleForTesting
 import androidx.recyclerview.widget.RecyclerView
 import androidx.recyclerview.widget.RecyclerView.RecycledViewPool
 import androidx.recyclerview.widget.RecyclerView.ViewHolder
 import com.android.launcher3.BubbleTextView
+import com.android.launcher3.DeviceProfile
 import com.android.launcher3.allapps.BaseAllAppsAdapter
 import com.android.launcher3.config.FeatureFlags
 import com.android.launcher3.util.CancellableTask
 import com.android.launcher3.util.Executors.MAIN_EXECUTOR
 import com.android.launcher3.util.Executors.VIEW_PREINFLATION_EXECUTOR
 import com.android.launcher3.views.ActivityContext
+import java.io.PrintWriter
+import java.util.concurrent.TimeUnit
 
 const val PREINFLATE_ICONS_ROW_COUNT = 4
 const val EXTRA_ICONS_COUNT = 2
 
+/**
+ * View types which can be inflated by a [BaseAllAppsAdapter] without any data source, and can be
+ * preinflated when they were needed before.
+ */
+private val PREINFLATABLE_VIEW_TYPES =
+    intArrayOf(
+        BaseAllAppsAdapter.VIEW_TYPE_ICON,
+        BaseAllAppsAdapter.VIEW_TYPE_ALL_APPS_DIVIDER,
+        BaseAllAppsAdapter.VIEW_TYPE_WORK_EDU_CARD,
+        BaseAllAppsAdapter.VIEW_TYPE_WORK_DISABLED_CARD,
+        BaseAllAppsAdapter.VIEW_TYPE_PRIVATE_SPACE_HEADER,
+        BaseAllAppsAdapter.VIEW_TYPE_PRIVATE_SPACE_SYS_APPS_DIVIDER,
+    )
+
 /**
  * An [RecycledViewPool] that preinflates app icons ([ViewHolder] of [BubbleTextView]) of all apps
  * [RecyclerView]. The view inflation will happen on background thread and inflated [ViewHolder]s
  * will be added to [RecycledViewPool] on main thread.
+ *
+ * The pool also records the number of view holders of each type used at the same time, per
+ * [DeviceProfile]. This includes the views created on the main thread when the pool was empty, for
+ * example during a fling, so the next preinflation for the same profile creates enough views of
+ * each type to avoid any inflation on the main thread.
  */
 class AllAppsRecyclerViewPool<T> : RecycledViewPool() {
 
     var hasWorkProfile = false
     private var mCancellableTask: CancellableTask<List<ViewHolder>>? = null
 
+    // Context of the last preinflation, used to identify the current device profile
+    private var mActivityContext: ActivityContext? = null
+
+    // Number of view holders of each type alive, either in the pool or in use by a RecyclerView
+    private val mLiveCounts = SparseIntArray()
+    // Max number of view holders of each type alive at the same time, per device profile
+    private val mDemand = HashMap<ProfileKey, SparseIntArray>()
+    private val mMaxRecycledViews = SparseIntArray()
+
+    private val mHitCounts = SparseIntArray()
+    private val mMissCounts = SparseIntArray()
+    private val mPreinflatedCounts = SparseIntArray()
+    private val mInflationNanos = SparseLongArray()
+
     /**
-     * Preinflate app icons. If all apps RV cannot be scrolled down, we don't need to preinflate.
+     * Preinflate app icons, and the other view types which were needed before with the current
+     * device profile. If all apps RV cannot be scrolled down, we don't need to preinflate.
      */
     fun <T> preInflateAllAppsViewHolders(context: T) where T : Context, T : ActivityContext {
         val appsView = context.appsView ?: return
         val activeRv: RecyclerView = appsView.activeRecyclerView ?: return
-        val preInflateCount = getPreinflateCount(context)
-        if (preInflateCount <= 0) {
+        mActivityContext = context
+        val viewTypes = ArrayList<Int>()
+        for (viewType in PREINFLATABLE_VIEW_TYPES) {
+            repeat(getPreinflateCount(context, viewType)) { viewTypes.add(viewType) }
+        }
+        if (viewTypes.isEmpty()) {
             return
         }
 
         // Because we perform onCreateViewHolder() on worker thread, we need a separate
         // adapter/inflator object as they are not thread-safe. Note that the adapter
-        // just need to perform onCreateViewHolder(parent, VIEW_TYPE_ICON) so it doesn't need
+        // just need to perform onCreateViewHolder(parent, viewType) so it doesn't need
         // data source information.
         val adapter: RecyclerView.Adapter<BaseAllAppsAdapter.ViewHolder> =
             object : BaseAllAppsAdapter<T>(context, context.appsView.layoutInflater, null, null) {
@@ -64,24 +109,39 @@ class AllAppsRecyclerViewPool<T> : RecycledViewPool() {
 
         mCancellableTask?.cancel()
         var task: CancellableTask<List<ViewHolder>>? = null
+        val inflationNanos = LongArray(viewTypes.size)
         task =
             CancellableTask(
                 {
                     val list: ArrayList<ViewHolder> = ArrayList()
-                    for (i in 0 until preInflateCount) {
+                    for (i in viewTypes.indices) {
                         if (task?.canceled == true) {
                             break
                         }
-                        list.add(
-                            adapter.createViewHolder(activeRv, BaseAllAppsAdapter.VIEW_TYPE_ICON)
-                        )
+                        val startNanos = SystemClock.elapsedRealtimeNanos()
+                        list.add(adapter.createViewHolder(activeRv, viewTypes[i]))
+                        inflationNanos[i] = SystemClock.elapsedRealtimeNanos() - startNanos
                     }
                     list
                 },
                 MAIN_EXECUTOR,
                 { viewHolders ->
-                    for (i in 0 until minOf(viewHolders.size, getPreinflateCount(context))) {
-                        putRecycledView(viewHolders[i])
+                    val remaining = SparseIntArray()
+                    for (viewType in PREINFLATABLE_VIEW_TYPES) {
+                        remaining.put(viewType, getPreinflateCount(context, viewType))
+                    }
+                    for (i in viewHolders.indices) {
+                        val viewType = viewTypes[i]
+                        mPreinflatedCounts.increment(viewType)
+                        mInflationNanos.put(
+                            viewType,
+                            mInflationNanos.get(viewType) + inflationNanos[i]
+                        )
+                        if (remaining.get(viewType) > 0) {
+                            remaining.put(viewType, remaining.get(viewType) - 1)
+                            mLiveCounts.increment(viewType)
+                            putRecycledView(viewHolders[i])
+                        }
                     }
                 }
             )
@@ -89,6 +149,64 @@ class AllAppsRecyclerViewPool<T> : RecycledViewPool() {
         VIEW_PREINFLATION_EXECUTOR.submit(mCancellableTask)
     }
 
+    override fun getRecycledView(viewType: Int): ViewHolder? {
+        val holder = super.getRecycledView(viewType)
+        if (holder != null) {
+            mHitCounts.increment(viewType)
+        } else {
+            // The RecyclerView will create a new view holder on the calling thread
+            mMissCounts.increment(viewType)
+            onViewHolderCreated(viewType, mActivityContext?.deviceProfile)
+        }
+        return holder
+    }
+
+    /** Records a view holder of the type created on the calling thread as the pool was empty */
+    @VisibleForTesting
+    fun onViewHolderCreated(viewType: Int, dp: DeviceProfile?) {
+        if (dp == null) {
+            mLiveCounts.increment(viewType)
+            return
+        }
+        val liveCount = minOf(mLiveCounts.get(viewType) + 1, getMaxLiveCount(viewType, dp))
+        mLiveCounts.put(viewType, liveCount)
+        val demand = mDemand.getOrPut(ProfileKey(dp)) { SparseIntArray() }
+        demand.put(viewType, maxOf(demand.get(viewType), liveCount))
+    }
+
+    /**
+     * Returns the max number of view holders of the type which can be in use at the same time with
+     * the device profile: the visible rows and the rows laid out ahead while scrolling, in each
+     * all apps [RecyclerView].
+     *
+     * View holders dropped by a [RecyclerView] without going through the pool are not tracked, so
+     * the live count is capped to this value instead of drifting up and inflating the demand.
+     */
+    @VisibleForTesting
+    fun getMaxLiveCount(viewType: Int, dp: DeviceProfile): Int {
+        val rowCount = dp.maxAllAppsRowCount + PREINFLATE_ICONS_ROW_COUNT
+        val count =
+            if (viewType == BaseAllAppsAdapter.VIEW_TYPE_ICON)
+                rowCount * dp.numShownAllAppsColumns + EXTRA_ICONS_COUNT
+            else rowCount
+        return if (hasWorkProfile) count * 2 else count
+    }
+
+    override fun putRecycledView(scrap: ViewHolder) {
+        val viewType = scrap.itemViewType
+        val countBefore = getRecycledViewCount(viewType)
+        super.putRecycledView(scrap)
+        if (getRecycledViewCount(viewType) == countBefore) {
+            // The pool is full and the view holder was discarded
+            mLiveCounts.put(viewType, maxOf(mLiveCounts.get(viewType) - 1, 0))
+        }
+    }
+
+    override fun setMaxRecycledViews(viewType: Int, max: Int) {
+        super.setMaxRecycledViews(viewType, max)
+        mMaxRecycledViews.put(viewType, max)
+    }
+
     /**
      * When clearing [RecycledViewPool], we should also abort pre-inflation tasks. This will make
      * sure we don't inflate app icons after DeviceProfile has changed.
@@ -96,8 +214,17 @@ class AllAppsRecyclerViewPool<T> : RecycledViewPool() {
     override fun clear() {
         super.clear()
         mCancellableTask?.cancel()
+        // Pool is only cleared after all the view holders in use were recycled
+        mLiveCounts.clear()
     }
 
+    /**
+     * Returns the max number of view holders of the type used at the same time with the device
+     * profile, or 0 if unknown.
+     */
+    fun getObservedDemand(viewType: Int, dp: DeviceProfile): Int =
+        mDemand[ProfileKey(dp)]?.get(viewType) ?: 0
+
     /**
      * After testing on phone, foldable and tablet, we found [PREINFLATE_ICONS_ROW_COUNT] rows of
      * app icons plus [EXTRA_ICONS_COUNT] is the magic minimal count of app icons to preinflate to
@@ -107,18 +234,70 @@ class AllAppsRecyclerViewPool<T> : RecycledViewPool() {
      * app icons in size of one all apps pages, so that opening all apps don't need to inflate app
      * icons.
      */
-    fun <T> getPreinflateCount(context: T): Int where T : Context, T : ActivityContext {
-        var targetPreinflateCount =
-            PREINFLATE_ICONS_ROW_COUNT * context.deviceProfile.numShownAllAppsColumns +
-                EXTRA_ICONS_COUNT
-        if (FeatureFlags.ALL_APPS_GONE_VISIBILITY.get()) {
-            val grid = ActivityContext.lookupContext<T>(context).deviceProfile
-            targetPreinflateCount += grid.maxAllAppsRowCount * grid.numShownAllAppsColumns
+    fun <T> getPreinflateCount(context: T): Int where T : Context, T : ActivityContext =
+        getPreinflateCount(context, BaseAllAppsAdapter.VIEW_TYPE_ICON)
+
+    /**
+     * Returns the number of view holders of the type to preinflate: enough to reach the number
+     * previously used at the same time with the current device profile, and for app icons at
+     * least the count described in [getPreinflateCount].
+     */
+    private fun getPreinflateCount(context: ActivityContext, viewType: Int): Int {
+        val grid = context.deviceProfile
+        val liveCount = minOf(mLiveCounts.get(viewType), getMaxLiveCount(viewType, grid))
+        var count = getObservedDemand(viewType, grid) - liveCount
+        if (viewType == BaseAllAppsAdapter.VIEW_TYPE_ICON) {
+            var targetPreinflateCount =
+                PREINFLATE_ICONS_ROW_COUNT * grid.numShownAllAppsColumns + EXTRA_ICONS_COUNT
+            if (FeatureFlags.ALL_APPS_GONE_VISIBILITY.get()) {
+                targetPreinflateCount += grid.maxAllAppsRowCount * grid.numShownAllAppsColumns
+            }
+            if (hasWorkProfile) {
+                targetPreinflateCount *= 2
+            }
+            count = maxOf(count, targetPreinflateCount - getRecycledViewCount(viewType))
         }
-        if (hasWorkProfile) {
-            targetPreinflateCount *= 2
+        // Views over the max size of the pool would be discarded
+        val maxRecycledViews = mMaxRecycledViews.get(viewType, DEFAULT_MAX_SCRAP)
+        return minOf(count, maxRecycledViews - getRecycledViewCount(viewType))
+    }
+
+    fun dump(prefix: String, writer: PrintWriter) {
+        writer.println("${prefix}AllAppsRecyclerViewPool:")
+        val context = mActivityContext
+        for (viewType in PREINFLATABLE_VIEW_TYPES) {
+            val preinflated = mPreinflatedCounts.get(viewType)
+            val misses = mMissCounts.get(viewType)
+            if (preinflated == 0 && misses == 0) {
+                continue
+            }
+            val avgInflationMs =
+                if (preinflated == 0) 0f
+                else mInflationNanos.get(viewType).toFloat() / preinflated / NANOS_PER_MS
+            writer.println(
+                "$prefix\tviewType=$viewType" +
+                    " hits=${mHitCounts.get(viewType)}" +
+                    " misses=$misses" +
+                    " preinflated=$preinflated" +
+                    " avgInflationMs=${"%.2f".format(avgInflationMs)}" +
+                    " estMainThreadInflationMs=${"%.1f".format(avgInflationMs * misses)}" +
+                    " demand=${context?.let { getObservedDemand(viewType, it.deviceProfile) } ?: 0}"
+            )
         }
-        val existingPreinflateCount = getRecycledViewCount(BaseAllAppsAdapter.VIEW_TYPE_ICON)
-        return targetPreinflateCount - existingPreinflateCount
+    }
+
+    /** Identifies device profiles with the same all apps grid */
+    private data class ProfileKey(val columns: Int, val rows: Int, val cellHeightPx: Int) {
+        constructor(
+            dp: DeviceProfile
+        ) : this(dp.numShownAllAppsColumns, dp.maxAllAppsRowCount, dp.allAppsCellHeightPx)
+    }
+
+    private companion object {
+        // Default max size of the pool for a view type, see RecycledViewPool
+        const val DEFAULT_MAX_SCRAP = 5
+        val NANOS_PER_MS = TimeUnit.MILLISECONDS.toNanos(1).toFloat()
+
+        fun SparseIntArray.increment(key: Int) = put(key, get(key) + 1)
     }
 }
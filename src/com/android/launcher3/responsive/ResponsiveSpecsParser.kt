@@ -18,7 +18,10 @@ package com.android.launcher3.responsive
 
 import android.content.res.TypedArray
 import android.content.res.XmlResourceParser
+import android.os.Trace
+import android.util.LruCache
 import android.util.Xml
+import androidx.annotation.VisibleForTesting
 import com.android.launcher3.R
 import com.android.launcher3.responsive.ResponsiveSpec.Companion.ResponsiveSpecType
 import com.android.launcher3.util.ResourceHelper
@@ -28,6 +31,11 @@ import org.xmlpull.v1.XmlPullParserException
 
 class ResponsiveSpecsParser(private val resourceHelper: ResourceHelper) {
 
+    /**
+     * Returns the groups of specs of the file. The specs are immutable, so they are shared with the
+     * other parsers of the same file and configuration, like the device profiles of all the window
+     * bounds of the display.
+     */
     fun <T : IResponsiveSpec> parseXML(
         responsiveSpecType: ResponsiveSpecType,
         map:
@@ -36,6 +44,32 @@ class ResponsiveSpecsParser(private val resourceHelper: ResourceHelper) {
                 attributes: TypedArray,
                 sizeSpecs: Map<String, SizeSpec>
             ) -> T
+    ): List<ResponsiveSpecGroup<T>> {
+        val key = Pair(resourceHelper.specsCacheKey, responsiveSpecType)
+        @Suppress("UNCHECKED_CAST")
+        parsedSpecs.get(key)?.let {
+            return it as List<ResponsiveSpecGroup<T>>
+        }
+        // Only cache misses show up in traces, to compare the parsing cost across startups
+        Trace.beginSection("ParseResponsiveSpecs")
+        val groups =
+            try {
+                parseXMLUncached(responsiveSpecType, map)
+            } finally {
+                Trace.endSection()
+            }
+        parsedSpecs.put(key, groups)
+        return groups
+    }
+
+    private fun <T : IResponsiveSpec> parseXMLUncached(
+        responsiveSpecType: ResponsiveSpecType,
+        map:
+            (
+                responsiveSpecType: ResponsiveSpecType,
+                attributes: TypedArray,
+                sizeSpecs: Map<String, SizeSpec>
+            ) -> T
     ): List<ResponsiveSpecGroup<T>> {
         val parser: XmlResourceParser = resourceHelper.getXml()
 
@@ -122,6 +156,19 @@ class ResponsiveSpecsParser(private val resourceHelper: ResourceHelper) {
 
     private infix fun XmlResourceParser.ends(tag: String): Boolean =
         name == tag && eventType == XmlPullParser.END_TAG
+
+    companion object {
+        // The spec files of the single and two panel layouts, for a few configurations
+        private const val MAX_CACHED_SPEC_FILES = 24
+
+        private val parsedSpecs = LruCache<Any, List<ResponsiveSpecGroup<*>>>(MAX_CACHED_SPEC_FILES)
+
+        /** Removes all the parsed specs, to measure the cost of parsing them again. */
+        @VisibleForTesting
+        fun clearCache() {
+            parsedSpecs.evictAll()
+        }
+    }
 }
 
 fun Map<String, SizeSpec>.getOrError(key: String): SizeSpec {
@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.shortcuts;
+
+import android.content.ComponentName;
+import android.content.pm.ShortcutInfo;
+import android.os.UserHandle;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.android.launcher3.util.PackageUserKey;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * In-memory cache of the shortcuts published by each package, so that the long-press popup can
+ * be populated without querying the shortcut service.
+ *
+ * The cache only holds the results of full shortcut queries: the shortcut list loaded by the
+ * loader and the per-package queries made on a cache miss. Shortcut change events only carry the
+ * key fields of the shortcuts, so they invalidate the changed package instead. A package missing
+ * from the cache is unknown, and callers should fallback to a {@link ShortcutRequest}.
+ */
+public class ShortcutCache {
+
+    private final HashMap<PackageUserKey, List<ShortcutInfo>> mShortcuts = new HashMap<>();
+
+    private int mHitCount = 0;
+    private int mMissCount = 0;
+    private int mInvalidationCount = 0;
+
+    /**
+     * Replaces the cached shortcuts for the provided package, or for all the packages of the user
+     * if {@code packageName} is null. {@code shortcuts} must be the full result of a
+     * {@link ShortcutRequest}, and not the key fields delivered with shortcut change events.
+     */
+    public synchronized void update(@Nullable String packageName, @NonNull UserHandle user,
+            @NonNull List<ShortcutInfo> shortcuts) {
+        if (packageName == null) {
+            clearUser(user);
+        } else {
+            mShortcuts.put(new PackageUserKey(packageName, user), new ArrayList<>());
+        }
+        for (ShortcutInfo shortcut : shortcuts) {
+            mShortcuts.computeIfAbsent(
+                    new PackageUserKey(shortcut.getPackage(), shortcut.getUserHandle()),
+                    k -> new ArrayList<>()).add(shortcut);
+        }
+    }
+
+    /**
+     * Same as {@link #update}, but drops {@code shortcuts} if the cache was invalidated since
+     * {@code invalidationCount} was read, as the query result might already be stale.
+     */
+    public synchronized void update(@NonNull String packageName, @NonNull UserHandle user,
+            @NonNull List<ShortcutInfo> shortcuts, int invalidationCount) {
+        if (invalidationCount == mInvalidationCount) {
+            update(packageName, user, shortcuts);
+        }
+    }
+
+    /**
+     * Returns a counter incremented every time some cached shortcuts are removed, to be read
+     * before starting a query whose result is passed to {@link #update}.
+     */
+    public synchronized int getInvalidationCount() {
+        return mInvalidationCount;
+    }
+
+    /**
+     * Removes the cached shortcuts for the provided package
+     */
+    public synchronized void invalidate(@NonNull String packageName, @NonNull UserHandle user) {
+        mShortcuts.remove(new PackageUserKey(packageName, user));
+        mInvalidationCount++;
+    }
+
+    /**
+     * Removes all the cached shortcuts for the provided user
+     */
+    public synchronized void clearUser(@NonNull UserHandle user) {
+        mShortcuts.keySet().removeIf(key -> user.equals(key.mUser));
+        mInvalidationCount++;
+    }
+
+    /**
+     * Removes all the cached shortcuts
+     */
+    public synchronized void clear() {
+        mShortcuts.clear();
+        mInvalidationCount++;
+    }
+
+    /**
+     * Returns the published (dynamic and manifest) shortcuts of the provided activity, or null
+     * if the package of the activity is not in the cache.
+     */
+    @Nullable
+    public synchronized List<ShortcutInfo> getPublishedShortcuts(
+            @NonNull ComponentName activity, @NonNull UserHandle user) {
+        List<ShortcutInfo> shortcuts =
+                mShortcuts.get(new PackageUserKey(activity.getPackageName(), user));
+        if (shortcuts == null) {
+            mMissCount++;
+            return null;
+        }
+        mHitCount++;
+        if (shortcuts.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<ShortcutInfo> result = new ArrayList<>();
+        for (ShortcutInfo shortcut : shortcuts) {
+            if ((shortcut.isDynamic() || shortcut.isDeclaredInManifest())
+                    && activity.equals(shortcut.getActivity())) {
+                result.add(shortcut);
+            }
+        }
+        return result;
+    }
+
+    public synchronized void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + "ShortcutCache: packages=" + mShortcuts.size()
+                + " hits=" + mHitCount + " misses=" + mMissCount);
+    }
+}
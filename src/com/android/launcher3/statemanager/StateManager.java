@@ -35,6 +35,7 @@ import androidx.annotation.FloatRange;
 import com.android.launcher3.anim.AnimationSuccessListener;
 import com.android.launcher3.anim.AnimatorPlaybackController;
 import com.android.launcher3.anim.PendingAnimation;
+import com.android.launcher3.logging.FrameStatsTracker;
 import com.android.launcher3.states.StateAnimationConfig;
 import com.android.launcher3.states.StateAnimationConfig.AnimationFlags;
 import com.android.launcher3.states.StateAnimationConfig.AnimationPropertyFlags;
@@ -71,6 +72,9 @@ public class StateManager<STATE_TYPE extends BaseState<STATE_TYPE>> {
 
     private STATE_TYPE mRestState;
 
+    // Key used to collect frame stats for the running transition
+    private String mTransitionFrameStatsKey;
+
     public StateManager(StatefulActivity<STATE_TYPE> l, STATE_TYPE baseState) {
         mUiHandler = new Handler(Looper.getMainLooper());
         mActivity = l;
@@ -417,6 +421,11 @@ public class StateManager<STATE_TYPE extends BaseState<STATE_TYPE>> {
     }
 
     private void onStateTransitionStart(STATE_TYPE state) {
+        if (mTransitionFrameStatsKey != null) {
+            FrameStatsTracker.INSTANCE.endSection(mTransitionFrameStatsKey);
+        }
+        mTransitionFrameStatsKey = "StateTransition:" + mState + "->" + state;
+        FrameStatsTracker.INSTANCE.beginSection(mTransitionFrameStatsKey, mActivity.getDisplay());
         mState = state;
         mActivity.onStateSetStart(mState);
 
@@ -440,6 +449,11 @@ public class StateManager<STATE_TYPE extends BaseState<STATE_TYPE>> {
             setRestState(null);
         }
 
+        if (mTransitionFrameStatsKey != null) {
+            FrameStatsTracker.INSTANCE.endSection(mTransitionFrameStatsKey);
+            mTransitionFrameStatsKey = null;
+        }
+
         if (DEBUG) {
             Log.d(TAG, "onStateTransitionEnd - state: " + state);
         }
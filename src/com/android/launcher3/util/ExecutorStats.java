@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.util;
+
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+
+import com.android.launcher3.Utilities;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Opt-in stats for the tasks run by an executor, grouped by the class of the task: the delay
+ * between when a task was supposed to start and when it actually started, and its run time.
+ *
+ * Recording is disabled by default, and is enabled for a fraction of the tasks through a debug
+ * property, which is checked again at most every second:
+ *   adb shell setprop log.tag.ExecutorStats VERBOSE
+ */
+public class ExecutorStats {
+
+    /** Sample rate which makes the executors follow {@link LogConfig#EXECUTOR_STATS} */
+    @VisibleForTesting
+    public static final int SAMPLE_RATE_FROM_PROPERTY = -1;
+
+    // Record one task out of N while the property is enabled
+    private static final int PROPERTY_SAMPLE_RATE = 10;
+    private static final long PROPERTY_CHECK_INTERVAL_MS = 1000;
+
+    // Record one task out of N, 0 to disable
+    private static volatile int sSampleRate = SAMPLE_RATE_FROM_PROPERTY;
+    private static volatile int sPropertySampleRate = 0;
+    private static volatile long sLastPropertyCheckMs = -PROPERTY_CHECK_INTERVAL_MS;
+
+    private static final int MAX_DUMPED_TASKS = 10;
+
+    private final String mName;
+    private final AtomicInteger mTaskCounter = new AtomicInteger();
+    private final HashMap<String, TaskStats> mTaskStats = new HashMap<>();
+
+    public ExecutorStats(@NonNull String name) {
+        mName = name;
+    }
+
+    /**
+     * Overrides the sample rate for all the executors. Every {@param rate}-th task is recorded,
+     * 0 disables recording and {@link #SAMPLE_RATE_FROM_PROPERTY} restores the debug property.
+     */
+    @VisibleForTesting
+    public static void setSampleRate(int rate) {
+        sSampleRate = Math.max(rate, SAMPLE_RATE_FROM_PROPERTY);
+    }
+
+    public static int getSampleRate() {
+        int rate = sSampleRate;
+        if (rate != SAMPLE_RATE_FROM_PROPERTY) {
+            return rate;
+        }
+        long now = SystemClock.uptimeMillis();
+        if (now - sLastPropertyCheckMs >= PROPERTY_CHECK_INTERVAL_MS) {
+            sLastPropertyCheckMs = now;
+            sPropertySampleRate = Utilities.isPropertyEnabled(LogConfig.EXECUTOR_STATS)
+                    ? PROPERTY_SAMPLE_RATE : 0;
+        }
+        return sPropertySampleRate;
+    }
+
+    /**
+     * Returns true if the next task should be recorded
+     */
+    public boolean shouldSample() {
+        int rate = getSampleRate();
+        return rate > 0 && mTaskCounter.incrementAndGet() % rate == 0;
+    }
+
+    /**
+     * Records a task which started {@param delayNanos} after it was supposed to, and ran for
+     * {@param runNanos}
+     */
+    public void record(@NonNull String taskClass, long delayNanos, long runNanos) {
+        synchronized (mTaskStats) {
+            TaskStats stats = mTaskStats.get(taskClass);
+            if (stats == null) {
+                stats = new TaskStats(taskClass);
+                mTaskStats.put(taskClass, stats);
+            }
+            stats.count++;
+            stats.totalDelayNanos += delayNanos;
+            stats.maxDelayNanos = Math.max(stats.maxDelayNanos, delayNanos);
+            stats.totalRunNanos += runNanos;
+            stats.maxRunNanos = Math.max(stats.maxRunNanos, runNanos);
+        }
+    }
+
+    /**
+     * Clears all the recorded stats
+     */
+    public void reset() {
+        synchronized (mTaskStats) {
+            mTaskStats.clear();
+        }
+    }
+
+    @VisibleForTesting
+    TaskStats getTaskStats(String taskClass) {
+        synchronized (mTaskStats) {
+            return mTaskStats.get(taskClass);
+        }
+    }
+
+    /**
+     * Dumps the tasks with the longest total run time, along with the tasks currently waiting in
+     * the queue of the executor
+     */
+    public void dump(String prefix, PrintWriter writer, @NonNull Map<String, Integer> queued) {
+        int total = 0;
+        for (int count : queued.values()) {
+            total += count;
+        }
+        writer.println(prefix + mName + ": queued=" + total);
+        for (Map.Entry<String, Integer> entry : queued.entrySet()) {
+            writer.println(prefix + "\tqueued " + entry.getKey() + ": " + entry.getValue());
+        }
+
+        ArrayList<TaskStats> tasks;
+        synchronized (mTaskStats) {
+            tasks = new ArrayList<>(mTaskStats.values());
+        }
+        tasks.sort((a, b) -> Long.compare(b.totalRunNanos, a.totalRunNanos));
+        for (int i = 0; i < tasks.size() && i < MAX_DUMPED_TASKS; i++) {
+            TaskStats task = tasks.get(i);
+            writer.println(prefix + "\t" + task.taskClass
+                    + ": count=" + task.count
+                    + " avgDelay=" + toMillis(task.totalDelayNanos / task.count) + "ms"
+                    + " maxDelay=" + toMillis(task.maxDelayNanos) + "ms"
+                    + " avgRun=" + toMillis(task.totalRunNanos / task.count) + "ms"
+                    + " maxRun=" + toMillis(task.maxRunNanos) + "ms");
+        }
+    }
+
+    private static String toMillis(long nanos) {
+        return String.format("%.2f", nanos / (float) TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    /**
+     * Stats for all the recorded tasks of a single class
+     */
+    @VisibleForTesting
+    static class TaskStats {
+
+        final String taskClass;
+
+        int count;
+        long totalDelayNanos;
+        long maxDelayNanos;
+        long totalRunNanos;
+        long maxRunNanos;
+
+        TaskStats(String taskClass) {
+            this.taskClass = taskClass;
+        }
+    }
+}
@@ -21,12 +21,10 @@ import android.os.HandlerThread;
 import android.os.Looper;
 import android.os.Process;
 
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
+import java.io.PrintWriter;
+import java.util.concurrent.Executor;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -39,14 +37,18 @@ public class Executors {
             Math.max(Runtime.getRuntime().availableProcessors(), 2);
     private static final int KEEP_ALIVE = 1;
 
-    /** Dedicated executor instances for work depending on other packages. */
-    private static final Map<String, LooperExecutor> PACKAGE_EXECUTORS = new ConcurrentHashMap<>();
+    private static final int PACKAGE_POOL_SIZE = 3;
+
+    /** Executors for work depending on other packages, sharing a bounded set of threads. */
+    private static final PackageExecutorPool PACKAGE_EXECUTORS = new PackageExecutorPool(
+            "package-executor", PACKAGE_POOL_SIZE, Process.THREAD_PRIORITY_DEFAULT);
 
     /**
-     * An {@link ThreadPoolExecutor} to be used with async task with no limit on the queue size.
+     * A thread pool to be used with async task with no limit on the queue size.
      */
-    public static final ThreadPoolExecutor THREAD_POOL_EXECUTOR = new ThreadPoolExecutor(
-            POOL_SIZE, POOL_SIZE, KEEP_ALIVE, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+    public static final InstrumentedThreadPoolExecutor THREAD_POOL_EXECUTOR =
+            new InstrumentedThreadPoolExecutor("ThreadPool", POOL_SIZE, POOL_SIZE, KEEP_ALIVE,
+                    TimeUnit.SECONDS, new LinkedBlockingQueue<>());
 
     /**
      * An {@link LooperExecutor} to be used with async task where order is important.
@@ -69,8 +71,9 @@ public class Executors {
 
 
     /** A background executor to preinflate views. */
-    public static final ExecutorService VIEW_PREINFLATION_EXECUTOR =
-            java.util.concurrent.Executors.newSingleThreadExecutor(
+    public static final InstrumentedThreadPoolExecutor VIEW_PREINFLATION_EXECUTOR =
+            new InstrumentedThreadPoolExecutor("preinflate-allapps-icons", 1, 1, 0,
+                    TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
                     new SimpleThreadFactory(
                             "preinflate-allapps-icons", THREAD_PRIORITY_BACKGROUND));
 
@@ -97,14 +100,29 @@ public class Executors {
             new LooperExecutor(createAndStartNewLooper("launcher-loader"));
 
     /**
-     * Returns and caches a single thread executor for a given package.
+     * Returns an executor which runs the tasks of a given package in order. Tasks of different
+     * packages may run in parallel.
      *
      * @param packageName Package associated with the executor.
      */
-    public static LooperExecutor getPackageExecutor(String packageName) {
-        return PACKAGE_EXECUTORS.computeIfAbsent(
-                packageName, p -> new LooperExecutor(
-                        createAndStartNewLooper(p, Process.THREAD_PRIORITY_DEFAULT)));
+    public static Executor getPackageExecutor(String packageName) {
+        return PACKAGE_EXECUTORS.getExecutor(packageName);
+    }
+
+    /**
+     * Dumps the queues of all the executors, along with their task stats if enabled through
+     * {@link LogConfig#EXECUTOR_STATS}
+     */
+    public static void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + "Executors: sampleRate=" + ExecutorStats.getSampleRate());
+        String childPrefix = prefix + "\t";
+        MAIN_EXECUTOR.dump(childPrefix, writer);
+        MODEL_EXECUTOR.dump(childPrefix, writer);
+        UI_HELPER_EXECUTOR.dump(childPrefix, writer);
+        ORDERED_BG_EXECUTOR.dump(childPrefix, writer);
+        THREAD_POOL_EXECUTOR.dump(childPrefix, writer);
+        VIEW_PREINFLATION_EXECUTOR.dump(childPrefix, writer);
+        PACKAGE_EXECUTORS.dump(childPrefix, writer);
     }
 
     /**
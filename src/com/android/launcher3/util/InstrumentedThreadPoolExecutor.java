@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.util;
+
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+
+import java.io.PrintWriter;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ThreadPoolExecutor} which records {@link ExecutorStats} for the sampled tasks
+ */
+public class InstrumentedThreadPoolExecutor extends ThreadPoolExecutor {
+
+    private final ExecutorStats mStats;
+
+    public InstrumentedThreadPoolExecutor(String name, int corePoolSize, int maximumPoolSize,
+            long keepAliveTime, TimeUnit unit, BlockingQueue<Runnable> workQueue) {
+        super(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue);
+        mStats = new ExecutorStats(name);
+    }
+
+    public InstrumentedThreadPoolExecutor(String name, int corePoolSize, int maximumPoolSize,
+            long keepAliveTime, TimeUnit unit, BlockingQueue<Runnable> workQueue,
+            ThreadFactory threadFactory) {
+        super(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue, threadFactory);
+        mStats = new ExecutorStats(name);
+    }
+
+    @Override
+    public void execute(@NonNull Runnable command) {
+        super.execute(mStats.shouldSample() ? new TimedRunnable(command, mStats) : command);
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
+        return new TaggedFutureTask<>(runnable, value, runnable.getClass());
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Callable<T> callable) {
+        return new TaggedFutureTask<>(callable, callable.getClass());
+    }
+
+    /**
+     * Returns the task stats of this executor, recorded when enabled through
+     * {@link LogConfig#EXECUTOR_STATS}
+     */
+    public ExecutorStats getStats() {
+        return mStats;
+    }
+
+    public void dump(String prefix, PrintWriter writer) {
+        Map<String, Integer> queued = new TreeMap<>();
+        for (Runnable r : getQueue()) {
+            queued.merge(TimedRunnable.getTaskClass(r), 1, Integer::sum);
+        }
+        mStats.dump(prefix, writer, queued);
+        writer.println(prefix + "\tactive=" + getActiveCount() + " pool=" + getPoolSize());
+    }
+
+    private static class TimedRunnable implements Runnable {
+
+        private final Runnable mTask;
+        private final ExecutorStats mStats;
+        private final long mEnqueueNanos = SystemClock.elapsedRealtimeNanos();
+
+        TimedRunnable(Runnable task, ExecutorStats stats) {
+            mTask = task;
+            mStats = stats;
+        }
+
+        @Override
+        public void run() {
+            long startNanos = SystemClock.elapsedRealtimeNanos();
+            try {
+                mTask.run();
+            } finally {
+                mStats.record(getTaskClass(mTask), startNanos - mEnqueueNanos,
+                        SystemClock.elapsedRealtimeNanos() - startNanos);
+            }
+        }
+
+        static String getTaskClass(Runnable r) {
+            if (r instanceof TimedRunnable) {
+                r = ((TimedRunnable) r).mTask;
+            }
+            return r instanceof TaggedFutureTask
+                    ? ((TaggedFutureTask<?>) r).mTaskClass.getName() : r.getClass().getName();
+        }
+    }
+
+    /**
+     * FutureTask created for the tasks passed to submit, which remembers the class of the original
+     * task so that it is recorded instead of FutureTask
+     */
+    private static class TaggedFutureTask<T> extends FutureTask<T> {
+
+        private final Class<?> mTaskClass;
+
+        TaggedFutureTask(Callable<T> callable, Class<?> taskClass) {
+            super(callable);
+            mTaskClass = taskClass;
+        }
+
+        TaggedFutureTask(Runnable runnable, T result, Class<?> taskClass) {
+            super(runnable, result);
+            mTaskClass = taskClass;
+        }
+    }
+}
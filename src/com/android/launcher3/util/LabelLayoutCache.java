@@ -0,0 +1,297 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.util;
+
+import static com.android.launcher3.util.Executors.THREAD_POOL_EXECUTOR;
+
+import android.graphics.Typeface;
+import android.text.PrecomputedText;
+import android.text.TextPaint;
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-wide cache of the letter spacing used to fit icon labels in the available width.
+ *
+ * The same label is usually displayed at the same size in multiple places (workspace, folders,
+ * all apps, taskbar), and is laid out again on every bind. Finding the spacing requires multiple
+ * text measurements, so the result is cached by text, typeface, text size and available width.
+ * The cache is cleared when the device profile changes, which includes font scale changes.
+ *
+ * It also keeps the text layouts of a list of labels, precomputed in the background before they
+ * are bound, for a single set of text metrics. That cache grows to fit the whole list.
+ */
+public class LabelLayoutCache {
+
+    public static final LabelLayoutCache INSTANCE =
+            new LabelLayoutCache(500, THREAD_POOL_EXECUTOR);
+
+    private static final int MAX_SEARCH_LOOP_COUNT = 20;
+
+    private final int mMaxEntries;
+    private final Executor mPrecomputeExecutor;
+
+    private final LruCache<Key, Float> mSpacings;
+    // Reused for the lookups, so that measuring a cached label doesn't allocate. Guarded by itself.
+    private final Key mLookupKey = new Key();
+
+    // Precomputed texts keyed by text, guarded by itself along with mPrecomputedParams
+    private final LruCache<String, PrecomputedText> mPrecomputedTexts;
+    @Nullable
+    private PrecomputedText.Params mPrecomputedParams;
+    private final AtomicLong mPrecomputedHitCount = new AtomicLong();
+    private final AtomicLong mPrecomputedMissCount = new AtomicLong();
+
+    @VisibleForTesting
+    LabelLayoutCache(int maxEntries, Executor precomputeExecutor) {
+        mMaxEntries = maxEntries;
+        mPrecomputeExecutor = precomputeExecutor;
+        mSpacings = new LruCache<>(maxEntries);
+        mPrecomputedTexts = new LruCache<>(maxEntries);
+    }
+
+    /**
+     * Returns the letter spacing to use for displaying the text in the available width with the
+     * provided paint: 0 if the text fits without change, or a negative value no lower than
+     * {@param minSpacingEm} otherwise. The letter spacing of the paint is left unchanged.
+     */
+    public float getLetterSpacing(@NonNull TextPaint paint, @NonNull CharSequence text,
+            float availableWidthPx, float minSpacingEm) {
+        Key key;
+        Float spacing;
+        synchronized (mLookupKey) {
+            mLookupKey.set(text.toString(), paint, availableWidthPx, minSpacingEm);
+            spacing = mSpacings.get(mLookupKey);
+            if (spacing != null) {
+                return spacing;
+            }
+            key = mLookupKey.copy();
+        }
+
+        float originalSpacing = paint.getLetterSpacing();
+        paint.setLetterSpacing(0);
+        spacing = paint.measureText(key.text) < availableWidthPx
+                ? 0 : findBestSpacingValue(paint, key.text, availableWidthPx, minSpacingEm);
+        paint.setLetterSpacing(originalSpacing);
+
+        mSpacings.put(key, spacing);
+        return spacing;
+    }
+
+    /**
+     * Find the appropriate text spacing to display the provided text
+     *
+     * @param paint          the paint used by the text view
+     * @param text           the text to display
+     * @param allowedWidthPx available space to render the text
+     * @param minSpacingEm   minimum spacing allowed between characters
+     * @return the final textSpacing value
+     */
+    private static float findBestSpacingValue(TextPaint paint, String text, float allowedWidthPx,
+            float minSpacingEm) {
+        paint.setLetterSpacing(minSpacingEm);
+        if (paint.measureText(text) > allowedWidthPx) {
+            // If there is no result at high limit, we can do anything more
+            return minSpacingEm;
+        }
+
+        float lowLimit = 0;
+        float highLimit = minSpacingEm;
+
+        for (int i = 0; i < MAX_SEARCH_LOOP_COUNT; i++) {
+            float value = (lowLimit + highLimit) / 2;
+            paint.setLetterSpacing(value);
+            if (paint.measureText(text) < allowedWidthPx) {
+                highLimit = value;
+            } else {
+                lowLimit = value;
+            }
+        }
+
+        // At the end error on the higher side
+        return highLimit;
+    }
+
+    /**
+     * Computes the layouts of the texts in the background, replacing all the precomputed texts if
+     * the text metrics changed. The cache is resized to fit all the texts.
+     */
+    public void precompute(@NonNull List<? extends CharSequence> texts,
+            @NonNull PrecomputedText.Params params) {
+        synchronized (mPrecomputedTexts) {
+            if (!params.equals(mPrecomputedParams)) {
+                mPrecomputedParams = params;
+                mPrecomputedTexts.evictAll();
+            }
+            // Keep the whole list, otherwise the texts at its end are never precomputed
+            int maxSize = Math.max(mMaxEntries, texts.size());
+            if (maxSize != mPrecomputedTexts.maxSize()) {
+                mPrecomputedTexts.resize(maxSize);
+            }
+        }
+        List<CharSequence> pending = new ArrayList<>();
+        for (CharSequence text : texts) {
+            if (mPrecomputedTexts.get(text.toString()) == null) {
+                pending.add(text);
+            }
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+        mPrecomputeExecutor.execute(() -> {
+            for (CharSequence text : pending) {
+                PrecomputedText precomputedText = PrecomputedText.create(text, params);
+                synchronized (mPrecomputedTexts) {
+                    if (params != mPrecomputedParams) {
+                        // The texts were invalidated while computing
+                        return;
+                    }
+                    mPrecomputedTexts.put(text.toString(), precomputedText);
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns the layout of the text computed by {@link #precompute}, or null if it is not ready
+     * or was computed with other text metrics. The params must be the instance passed to
+     * {@link #precompute}, as they are only compared by reference on this bind path.
+     */
+    @Nullable
+    public PrecomputedText getPrecomputedText(@NonNull CharSequence text,
+            @NonNull PrecomputedText.Params params) {
+        PrecomputedText precomputedText;
+        synchronized (mPrecomputedTexts) {
+            precomputedText = params == mPrecomputedParams
+                    ? mPrecomputedTexts.get(text.toString()) : null;
+        }
+        if (precomputedText != null) {
+            mPrecomputedHitCount.incrementAndGet();
+        } else {
+            mPrecomputedMissCount.incrementAndGet();
+        }
+        return precomputedText;
+    }
+
+    /**
+     * Removes all the entries, as text sizes or fonts may have changed
+     */
+    public void clear() {
+        mSpacings.evictAll();
+        synchronized (mPrecomputedTexts) {
+            mPrecomputedParams = null;
+            mPrecomputedTexts.evictAll();
+            mPrecomputedTexts.resize(mMaxEntries);
+        }
+    }
+
+    @VisibleForTesting
+    long getHitCount() {
+        return mSpacings.hitCount();
+    }
+
+    @VisibleForTesting
+    long getMissCount() {
+        return mSpacings.missCount();
+    }
+
+    public void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + "LabelLayoutCache:");
+        dumpStats(prefix + "\tspacings: ", writer, mSpacings.size(),
+                mSpacings.hitCount(), mSpacings.missCount());
+        dumpStats(prefix + "\tprecomputed: ", writer, mPrecomputedTexts.size(),
+                mPrecomputedHitCount.get(), mPrecomputedMissCount.get());
+    }
+
+    private static void dumpStats(String prefix, PrintWriter writer, int size,
+            long hits, long misses) {
+        long total = hits + misses;
+        writer.println(prefix + "size=" + size
+                + " hits=" + hits
+                + " misses=" + (total - hits)
+                + " hitRate=" + (total == 0 ? 0 : hits * 100 / total) + "%");
+    }
+
+    /**
+     * Key of a letter spacing. It is mutable so that a single instance can be reused for the
+     * lookups, and must not be changed once added to the cache.
+     */
+    private static class Key {
+
+        String text;
+        Typeface typeface;
+        float textSize;
+        int paintFlags;
+        float availableWidthPx;
+        float minSpacingEm;
+
+        void set(String text, TextPaint paint, float availableWidthPx, float minSpacingEm) {
+            this.text = text;
+            this.typeface = paint.getTypeface();
+            this.textSize = paint.getTextSize();
+            this.paintFlags = paint.getFlags();
+            this.availableWidthPx = availableWidthPx;
+            this.minSpacingEm = minSpacingEm;
+        }
+
+        Key copy() {
+            Key key = new Key();
+            key.text = text;
+            key.typeface = typeface;
+            key.textSize = textSize;
+            key.paintFlags = paintFlags;
+            key.availableWidthPx = availableWidthPx;
+            key.minSpacingEm = minSpacingEm;
+            return key;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return text.equals(other.text)
+                    && Objects.equals(typeface, other.typeface)
+                    && textSize == other.textSize
+                    && paintFlags == other.paintFlags
+                    && availableWidthPx == other.availableWidthPx
+                    && minSpacingEm == other.minSpacingEm;
+        }
+
+        @Override
+        public int hashCode() {
+            // Not using Objects.hash, which boxes the floats on every lookup
+            int result = text.hashCode();
+            result = 31 * result + Objects.hashCode(typeface);
+            result = 31 * result + Float.floatToIntBits(textSize);
+            result = 31 * result + paintFlags;
+            result = 31 * result + Float.floatToIntBits(availableWidthPx);
+            result = 31 * result + Float.floatToIntBits(minSpacingEm);
+            return result;
+        }
+    }
+}
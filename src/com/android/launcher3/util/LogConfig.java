@@ -65,4 +65,27 @@ public class LogConfig {
      * When turned on, we enable AGA related session summary logging.
      */
     public static final String AGA_SESSION_SUMMARY_LOG = "AGASessionSummaryLog";
+
+    /**
+     * When turned on, periodic perf snapshots are recorded to disk while the screen is on.
+     */
+    public static final String PERF_TRACE = "PerfTrace";
+
+    /**
+     * When turned on, main thread binder calls are measured per trace section. Read when the
+     * launcher process starts.
+     */
+    public static final String BINDER_TRACKER = "BinderTracker";
+
+    /**
+     * When turned on, frame durations of state transitions and page scrolls are collected and
+     * reported in dumpsys.
+     */
+    public static final String FRAME_STATS = "FrameStats";
+
+    /**
+     * When turned on, the delay and run time of a fraction of the executor tasks are recorded and
+     * reported in dumpsys.
+     */
+    public static final String EXECUTOR_STATS = "ExecutorStats";
 }
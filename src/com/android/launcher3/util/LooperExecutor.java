@@ -18,21 +18,37 @@ package com.android.launcher3.util;
 import android.os.Handler;
 import android.os.HandlerThread;
 import android.os.Looper;
+import android.os.Message;
 import android.os.Process;
+import android.os.SystemClock;
+import android.util.Printer;
 
+import androidx.annotation.NonNull;
+
+import java.io.PrintWriter;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.AbstractExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Extension of {@link AbstractExecutorService} which executed on a provided looper.
  */
 public class LooperExecutor extends AbstractExecutorService {
 
-    private final Handler mHandler;
+    private static final Pattern MESSAGE_CALLBACK_PATTERN = Pattern.compile("callback=(\\S+)");
+    private static final Pattern MESSAGE_WHAT_PATTERN = Pattern.compile("what=(\\d+)");
+
+    private final InstrumentedHandler mHandler;
+    private final ExecutorStats mStats;
 
     public LooperExecutor(Looper looper) {
-        mHandler = new Handler(looper);
+        mStats = new ExecutorStats(looper.getThread().getName());
+        mHandler = new InstrumentedHandler(looper, mStats);
     }
 
     public Handler getHandler() {
@@ -106,6 +122,48 @@ public class LooperExecutor extends AbstractExecutorService {
         return getHandler().getLooper();
     }
 
+    /**
+     * Returns an estimate of the number of messages waiting to run on this executor. This is
+     * cheap to call from any thread, but messages which are removed before they run are only
+     * dropped from the count the next time the looper goes idle.
+     */
+    public int getQueueDepth() {
+        return mHandler.mPendingCount.get();
+    }
+
+    /**
+     * Returns the number of messages waiting in the queue of this executor, grouped by the class
+     * of their callback. This dumps the whole queue and should only be used for diagnostics.
+     */
+    public Map<String, Integer> getQueuedTasks() {
+        Map<String, Integer> tasks = new TreeMap<>();
+        Printer printer = line -> {
+            Matcher matcher = MESSAGE_CALLBACK_PATTERN.matcher(line);
+            if (matcher.find()) {
+                tasks.merge(matcher.group(1), 1, Integer::sum);
+                return;
+            }
+            matcher = MESSAGE_WHAT_PATTERN.matcher(line);
+            if (matcher.find()) {
+                tasks.merge("what=" + matcher.group(1), 1, Integer::sum);
+            }
+        };
+        getLooper().dump(printer, "");
+        return tasks;
+    }
+
+    /**
+     * Returns the task stats of this executor, recorded when enabled through
+     * {@link LogConfig#EXECUTOR_STATS}
+     */
+    public ExecutorStats getStats() {
+        return mStats;
+    }
+
+    public void dump(String prefix, PrintWriter writer) {
+        mStats.dump(prefix, writer, getQueuedTasks());
+    }
+
     /**
      * Set the priority of a thread, based on Linux priorities.
      * @param priority Linux priority level, from -20 for highest scheduling priority
@@ -115,4 +173,60 @@ public class LooperExecutor extends AbstractExecutorService {
     public void setThreadPriority(int priority) {
         Process.setThreadPriority(((HandlerThread) getThread()).getThreadId(), priority);
     }
+
+    /**
+     * Handler which records the stats of the sampled messages and keeps count of the pending
+     * ones. This covers the tasks posted through the executor as well as the ones posted directly
+     * on the handler.
+     */
+    private static class InstrumentedHandler extends Handler {
+
+        private final ExecutorStats mStats;
+        private final AtomicInteger mPendingCount = new AtomicInteger();
+
+        InstrumentedHandler(Looper looper, ExecutorStats stats) {
+            super(looper);
+            mStats = stats;
+            // Nothing is due when the looper is idle. Resetting the count here keeps it from
+            // drifting because of removed messages, or ones sent at the front of the queue.
+            looper.getQueue().addIdleHandler(() -> {
+                mPendingCount.set(0);
+                return true;
+            });
+        }
+
+        @Override
+        public boolean sendMessageAtTime(@NonNull Message msg, long uptimeMillis) {
+            mPendingCount.incrementAndGet();
+            boolean sent = super.sendMessageAtTime(msg, uptimeMillis);
+            if (!sent) {
+                decrementPendingCount();
+            }
+            return sent;
+        }
+
+        private void decrementPendingCount() {
+            mPendingCount.updateAndGet(count -> Math.max(count - 1, 0));
+        }
+
+        @Override
+        public void dispatchMessage(@NonNull Message msg) {
+            decrementPendingCount();
+            if (!mStats.shouldSample()) {
+                super.dispatchMessage(msg);
+                return;
+            }
+            // The message is recycled after dispatch, read everything before
+            Runnable callback = msg.getCallback();
+            String taskClass = callback != null
+                    ? callback.getClass().getName() : "what=" + msg.what;
+            // Messages posted at the front of the queue don't have a target time
+            long delayNanos = msg.getWhen() > 0 ? TimeUnit.MILLISECONDS.toNanos(
+                    Math.max(SystemClock.uptimeMillis() - msg.getWhen(), 0)) : 0;
+
+            long startNanos = SystemClock.elapsedRealtimeNanos();
+            super.dispatchMessage(msg);
+            mStats.record(taskClass, delayNanos, SystemClock.elapsedRealtimeNanos() - startNanos);
+        }
+    }
 }
@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.util;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+
+import java.io.PrintWriter;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Provides an executor per package, running the tasks of a package in order, while multiplexing
+ * all the packages on a bounded set of threads.
+ *
+ * A package only keeps a queue while it has pending tasks, and the threads are stopped when they
+ * have been idle for some time, so packages which interact with launcher once don't hold on to
+ * any resources.
+ */
+public class PackageExecutorPool {
+
+    private static final long THREAD_KEEP_ALIVE_SECONDS = 10;
+
+    private final InstrumentedThreadPoolExecutor mPool;
+
+    // Packages with pending tasks. Also guards the state of all the executors.
+    private final HashMap<String, PackageExecutor> mActiveExecutors = new HashMap<>();
+
+    private int mCreatedCount = 0;
+
+    public PackageExecutorPool(String name, int threadCount, int priority) {
+        mPool = new InstrumentedThreadPoolExecutor(name, threadCount, threadCount,
+                THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                new Executors.SimpleThreadFactory(name + "-", priority));
+        mPool.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Returns an executor which runs the tasks posted to it in order, after all the tasks
+     * previously posted for the same package.
+     */
+    public Executor getExecutor(@NonNull String packageName) {
+        synchronized (mActiveExecutors) {
+            PackageExecutor executor = mActiveExecutors.get(packageName);
+            return executor != null ? executor : new PackageExecutor(packageName);
+        }
+    }
+
+    /**
+     * Returns the number of packages with tasks queued or running
+     */
+    public int getActivePackageCount() {
+        synchronized (mActiveExecutors) {
+            return mActiveExecutors.size();
+        }
+    }
+
+    /**
+     * Returns the number of threads currently running a task
+     */
+    public int getActiveThreadCount() {
+        return mPool.getActiveCount();
+    }
+
+    /**
+     * Returns the number of started threads waiting for a task
+     */
+    public int getIdleThreadCount() {
+        return Math.max(mPool.getPoolSize() - mPool.getActiveCount(), 0);
+    }
+
+    @VisibleForTesting
+    int getThreadCount() {
+        return mPool.getPoolSize();
+    }
+
+    public void dump(String prefix, PrintWriter writer) {
+        synchronized (mActiveExecutors) {
+            writer.println(prefix + "PackageExecutorPool:"
+                    + " activePackages=" + mActiveExecutors.keySet()
+                    + " queuesCreated=" + mCreatedCount);
+        }
+        writer.println(prefix + "\tactiveThreads=" + getActiveThreadCount()
+                + " idleThreads=" + getIdleThreadCount()
+                + " maxThreads=" + mPool.getMaximumPoolSize());
+        mPool.dump(prefix + "\t", writer);
+    }
+
+    /**
+     * Serial executor for a package. It is registered as active while it has tasks, and only
+     * schedules one task at a time on the shared pool.
+     */
+    private class PackageExecutor implements Executor {
+
+        private final String mPackageName;
+        private final ArrayDeque<Runnable> mTasks = new ArrayDeque<>();
+        private boolean mScheduled = false;
+
+        PackageExecutor(String packageName) {
+            mPackageName = packageName;
+            mCreatedCount++;
+        }
+
+        @Override
+        public void execute(@NonNull Runnable task) {
+            synchronized (mActiveExecutors) {
+                PackageExecutor active = mActiveExecutors.get(mPackageName);
+                if (active == null) {
+                    mActiveExecutors.put(mPackageName, this);
+                } else if (active != this) {
+                    // This executor was retired while the caller kept a reference to it, keep
+                    // the tasks of the package in a single queue.
+                    active.execute(task);
+                    return;
+                }
+                mTasks.add(task);
+                if (!mScheduled) {
+                    mScheduled = true;
+                    mPool.execute(this::runNext);
+                }
+            }
+        }
+
+        private void runNext() {
+            Runnable task;
+            synchronized (mActiveExecutors) {
+                task = mTasks.poll();
+            }
+            try {
+                task.run();
+            } finally {
+                synchronized (mActiveExecutors) {
+                    if (mTasks.isEmpty()) {
+                        mScheduled = false;
+                        mActiveExecutors.remove(mPackageName);
+                    } else {
+                        // Schedule the next task at the end of the pool queue, so that a busy
+                        // package does not starve the others
+                        mPool.execute(this::runNext);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -17,6 +17,7 @@
 package com.android.launcher3.util
 
 import android.content.Context
+import android.content.res.Configuration
 import android.content.res.TypedArray
 import android.content.res.XmlResourceParser
 import android.util.AttributeSet
@@ -34,4 +35,12 @@ open class ResourceHelper(private val context: Context, private val specsFileId:
     open fun obtainStyledAttributes(attrs: AttributeSet, styleId: IntArray): TypedArray {
         return context.obtainStyledAttributes(attrs, styleId)
     }
+
+    /**
+     * Key identifying the content parsed from the file, which depends on the configuration as the
+     * dimensions are read in pixels.
+     */
+    open val specsCacheKey: Any
+        get() =
+            listOf(context.packageName, specsFileId, Configuration(context.resources.configuration))
 }
@@ -26,6 +26,8 @@ import static com.android.launcher3.allapps.SectionDecorationInfo.ROUND_NOTHING;
 import static com.android.launcher3.allapps.UserProfileManager.STATE_DISABLED;
 import static com.android.launcher3.allapps.UserProfileManager.STATE_ENABLED;
 import static com.android.launcher3.allapps.UserProfileManager.STATE_TRANSITION;
+import static com.android.launcher3.util.Executors.MAIN_EXECUTOR;
+import static com.android.launcher3.util.Executors.UI_HELPER_EXECUTOR;
 
 import static org.junit.Assert.assertEquals;
 import static org.mockito.AdditionalAnswers.answer;
@@ -94,7 +96,7 @@ public class AlphabeticalAppsListTest {
     @Test
     public void privateProfileEnabled_allPrivateProfileViewsArePresent() {
         mSetFlagsRule.enableFlags(Flags.FLAG_ENABLE_PRIVATE_SPACE);
-        when(mAllAppsStore.getApps()).thenReturn(createAppInfoListForMainAndPrivateUser());
+        setApps(createAppInfoListForMainAndPrivateUser());
         when(mPrivateProfileManager.addPrivateSpaceHeader(any()))
                 .thenAnswer(answer(this::addPrivateSpaceHeader));
         when(mPrivateProfileManager.getCurrentState()).thenReturn(STATE_ENABLED);
@@ -121,7 +123,7 @@ public class AlphabeticalAppsListTest {
     public void privateProfileEnabled_privateProfileAppsShownWithSeparator() {
         mSetFlagsRule.enableFlags(Flags.FLAG_ENABLE_PRIVATE_SPACE);
         mSetFlagsRule.enableFlags(Flags.FLAG_PRIVATE_SPACE_SYS_APPS_SEPARATION);
-        when(mAllAppsStore.getApps()).thenReturn(createAppInfoListForMainAndPrivateUser());
+        setApps(createAppInfoListForMainAndPrivateUser());
         when(mPrivateProfileManager.addPrivateSpaceHeader(any()))
                 .thenAnswer(answer(this::addPrivateSpaceHeader));
         when(mPrivateProfileManager.addSystemAppsDivider(any()))
@@ -158,7 +160,7 @@ public class AlphabeticalAppsListTest {
     @Test
     public void privateProfileDisabled_onlyPrivateProfileHeaderViewIsPresent() {
         mSetFlagsRule.enableFlags(Flags.FLAG_ENABLE_PRIVATE_SPACE);
-        when(mAllAppsStore.getApps()).thenReturn(createAppInfoListForMainAndPrivateUser());
+        setApps(createAppInfoListForMainAndPrivateUser());
         when(mPrivateProfileManager.addPrivateSpaceHeader(any()))
                 .thenAnswer(answer(this::addPrivateSpaceHeader));
         when(mPrivateProfileManager.getCurrentState()).thenReturn(STATE_DISABLED);
@@ -179,7 +181,7 @@ public class AlphabeticalAppsListTest {
     @Test
     public void privateProfileTransitioning_onlyPrivateProfileHeaderViewIsPresent() {
         mSetFlagsRule.enableFlags(Flags.FLAG_ENABLE_PRIVATE_SPACE);
-        when(mAllAppsStore.getApps()).thenReturn(createAppInfoListForMainAndPrivateUser());
+        setApps(createAppInfoListForMainAndPrivateUser());
         when(mPrivateProfileManager.addPrivateSpaceHeader(any()))
                 .thenAnswer(answer(this::addPrivateSpaceHeader));
         when(mPrivateProfileManager.getCurrentState()).thenReturn(STATE_TRANSITION);
@@ -200,7 +202,7 @@ public class AlphabeticalAppsListTest {
     @Test
     public void privateProfileHidden_noPrivateProfileViewIsPresent() {
         mSetFlagsRule.enableFlags(Flags.FLAG_ENABLE_PRIVATE_SPACE);
-        when(mAllAppsStore.getApps()).thenReturn(createAppInfoListForMainAndPrivateUser());
+        setApps(createAppInfoListForMainAndPrivateUser());
         when(mPrivateProfileManager.isPrivateSpaceHidden()).thenReturn(true);
 
         mAlphabeticalAppsList.updateItemFilter(info -> info != null
@@ -217,7 +219,7 @@ public class AlphabeticalAppsListTest {
     @Test
     public void privateProfileNotPresent_onlyMainUserViewsArePresent() {
         mSetFlagsRule.enableFlags(Flags.FLAG_ENABLE_PRIVATE_SPACE);
-        when(mAllAppsStore.getApps()).thenReturn(createAppInfoListForMainUser());
+        setApps(createAppInfoListForMainUser());
 
         mAlphabeticalAppsList.updateItemFilter(info -> info != null
                 && info.user.equals(MAIN_HANDLE));
@@ -232,6 +234,47 @@ public class AlphabeticalAppsListTest {
                 .toList().size());
     }
 
+    @Test
+    public void appsUpdated_sortedInBackgroundThenApplied() throws Exception {
+        setApps(createAppInfoListForMainUser());
+        mAlphabeticalAppsList.updateItemFilter(info -> info != null
+                && info.user.equals(MAIN_HANDLE));
+        assertEquals(MAIN_USER_APP_COUNT, mAlphabeticalAppsList.getAdapterItems().size());
+
+        AppInfo gmailAppInfo = createAppInfoListForMainUser()[0];
+        setApps(new AppInfo[]{gmailAppInfo});
+        MAIN_EXECUTOR.submit(mAlphabeticalAppsList::onAppsUpdated).get();
+        UI_HELPER_EXECUTOR.submit(() -> { }).get();
+        MAIN_EXECUTOR.submit(() -> { }).get();
+
+        assertEquals(1, mAlphabeticalAppsList.getAdapterItems().size());
+        assertEquals(gmailAppInfo, mAlphabeticalAppsList.getAdapterItems().get(0).itemInfo);
+    }
+
+    @Test
+    public void appsUpdated_adapterItemsBuiltInBackgroundThenCommitted() throws Exception {
+        mSetFlagsRule.enableFlags(Flags.FLAG_ENABLE_PRIVATE_SPACE);
+        setApps(createAppInfoListForMainUser());
+        mAlphabeticalAppsList.updateItemFilter(info -> info != null
+                && info.user.equals(MAIN_HANDLE));
+        assertEquals(MAIN_USER_APP_COUNT, mAlphabeticalAppsList.getAdapterItems().size());
+        when(mPrivateProfileManager.addPrivateSpaceHeader(any()))
+                .thenAnswer(answer(this::addPrivateSpaceHeader));
+        when(mPrivateProfileManager.getCurrentState()).thenReturn(STATE_DISABLED);
+
+        setApps(createAppInfoListForMainAndPrivateUser());
+        MAIN_EXECUTOR.submit(mAlphabeticalAppsList::onAppsUpdated).get();
+        UI_HELPER_EXECUTOR.submit(() -> { }).get();
+        MAIN_EXECUTOR.submit(() -> { }).get();
+
+        assertEquals(MAIN_USER_APP_COUNT + PRIVATE_SPACE_HEADER_ITEM_COUNT,
+                mAlphabeticalAppsList.getAdapterItems().size());
+        assertEquals(VIEW_TYPE_PRIVATE_SPACE_HEADER, mAlphabeticalAppsList.getAdapterItems()
+                .get(MAIN_USER_APP_COUNT).viewType);
+        assertEquals(1, mAlphabeticalAppsList.getFastScrollerSections().size());
+        assertEquals(1, mAlphabeticalAppsList.getNumAppRows());
+    }
+
     @Test
     public void getRoundRegions_whenIndexIsMiddleOfLastRow_roundNothing() {
         int index = 3;
@@ -320,6 +363,13 @@ public class AlphabeticalAppsListTest {
         assertEquals(ROUND_BOTTOM_RIGHT | ROUND_BOTTOM_LEFT, roundRegions);
     }
 
+    private void setApps(AppInfo[] apps) {
+        when(mAllAppsStore.getApps()).thenReturn(apps);
+        List<AppInfo> sortedApps = Arrays.asList(apps.clone());
+        sortedApps.sort(new AppInfoComparator(mContext));
+        when(mAllAppsStore.getSortedApps()).thenReturn(sortedApps);
+    }
+
     private int addPrivateSpaceHeader(List<BaseAllAppsAdapter.AdapterItem> adapterItemList) {
         adapterItemList.add(new BaseAllAppsAdapter.AdapterItem(VIEW_TYPE_PRIVATE_SPACE_HEADER));
         return adapterItemList.size();
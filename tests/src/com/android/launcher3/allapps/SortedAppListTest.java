@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.allapps;
+
+import static androidx.test.core.app.ApplicationProvider.getApplicationContext;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Process;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+
+import com.android.launcher3.model.data.AppInfo;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Tests for {@link SortedAppList}
+ */
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+public class SortedAppListTest {
+
+    private Context mContext;
+    private SortedAppList mList;
+
+    @Before
+    public void setUp() {
+        mContext = getApplicationContext();
+        mList = new SortedAppList(mContext);
+    }
+
+    @Test
+    public void update_sortedLikeComparator() {
+        AppInfo[] apps = new AppInfo[] {
+                newApp("Gmail"), newApp("drive"), newApp("#Hash"), newApp("Calendar")};
+        mList.update(apps);
+
+        List<AppInfo> expected = Arrays.asList(apps.clone());
+        expected.sort(new AppInfoComparator(mContext));
+        assertThat(mList.getApps()).containsExactlyElementsIn(expected).inOrder();
+        assertThat(getTitles()).containsExactly("Calendar", "drive", "Gmail", "#Hash").inOrder();
+    }
+
+    @Test
+    public void update_addedAndRemovedApps() {
+        AppInfo calendar = newApp("Calendar");
+        AppInfo gmail = newApp("Gmail");
+        mList.update(new AppInfo[] {calendar, gmail});
+
+        mList.update(new AppInfo[] {gmail, newApp("Drive"), newApp("Maps")});
+        assertThat(getTitles()).containsExactly("Drive", "Gmail", "Maps").inOrder();
+
+        mList.update(new AppInfo[0]);
+        assertThat(mList.getApps()).isEmpty();
+    }
+
+    @Test
+    public void update_renamedAppMoved() {
+        AppInfo clock = newApp("Clock");
+        mList.update(new AppInfo[] {clock, newApp("Drive"), newApp("Gmail")});
+
+        AppInfo renamedClock = new AppInfo(clock.componentName, "Watch", clock.user,
+                new Intent());
+        mList.update(new AppInfo[] {renamedClock, newApp("Drive"), newApp("Gmail")});
+        assertThat(getTitles()).containsExactly("Drive", "Gmail", "Watch").inOrder();
+        assertThat(mList.getApps().get(2)).isSameInstanceAs(renamedClock);
+    }
+
+    @Test
+    public void update_newInstanceReturned() {
+        mList.update(new AppInfo[] {newApp("Drive"), newApp("Gmail")});
+
+        AppInfo gmail = newApp("Gmail");
+        mList.update(new AppInfo[] {newApp("Drive"), gmail});
+        assertThat(mList.getApps().get(1)).isSameInstanceAs(gmail);
+    }
+
+    private List<String> getTitles() {
+        return mList.getApps().stream()
+                .map(info -> info.title.toString())
+                .collect(Collectors.toList());
+    }
+
+    private AppInfo newApp(String title) {
+        return new AppInfo(new ComponentName(mContext, "com.android.launcher3.tests." + title),
+                title, Process.myUserHandle(), new Intent());
+    }
+}
@@ -18,7 +18,10 @@ package com.android.launcher3.folder
 
 import android.R
 import android.content.Context
+import android.graphics.RenderNode
 import android.os.Process
+import android.view.View
+import android.view.View.MeasureSpec
 import androidx.test.core.app.ApplicationProvider
 import androidx.test.ext.junit.runners.AndroidJUnit4
 import androidx.test.filters.SmallTest
@@ -34,6 +37,7 @@ import com.android.launcher3.util.FlagOp
 import com.android.launcher3.util.LauncherLayoutBuilder
 import com.android.launcher3.util.LauncherModelHelper
 import com.android.launcher3.util.UserIconInfo
+import com.google.common.truth.Truth.assertThat
 import org.junit.After
 import org.junit.Before
 import org.junit.Test
@@ -212,6 +216,53 @@ class PreviewItemManagerTest {
         )
     }
 
+    @Test
+    fun previewBitmap_reusedUntilInvalidated() {
+        lateinit var icon: FolderIcon
+        getInstrumentation().runOnMainSync {
+            val activityContext = ActivityContextWrapper(context)
+            icon =
+                FolderIcon.inflateIcon(
+                    com.android.launcher3.R.layout.folder_icon,
+                    activityContext,
+                    null,
+                    folderIcon.mInfo
+                )
+            val dp = activityContext.deviceProfile
+            icon.measure(
+                MeasureSpec.makeMeasureSpec(dp.cellWidthPx, MeasureSpec.EXACTLY),
+                MeasureSpec.makeMeasureSpec(dp.cellHeightPx, MeasureSpec.EXACTLY)
+            )
+            icon.layout(0, 0, dp.cellWidthPx, dp.cellHeightPx)
+            drawHardware(icon)
+            // The bitmap is rendered after the frame, not while drawing it
+            assertThat(icon.previewItemManager.previewBitmap).isNull()
+        }
+        getInstrumentation().waitForIdleSync()
+        val bitmap = icon.previewItemManager.previewBitmap
+        assertThat(bitmap).isNotNull()
+
+        getInstrumentation().runOnMainSync { drawHardware(icon) }
+        getInstrumentation().waitForIdleSync()
+        assertThat(icon.previewItemManager.previewBitmap).isSameInstanceAs(bitmap)
+
+        getInstrumentation().runOnMainSync {
+            icon.previewItemManager.invalidatePreviewBitmap()
+            drawHardware(icon)
+        }
+        getInstrumentation().waitForIdleSync()
+        assertThat(icon.previewItemManager.previewBitmap).isNotNull()
+        assertThat(icon.previewItemManager.previewBitmap).isNotSameInstanceAs(bitmap)
+    }
+
+    private fun drawHardware(view: View) {
+        val node = RenderNode("PreviewItemManagerTest")
+        node.setPosition(0, 0, view.width, view.height)
+        val canvas = node.beginRecording()
+        view.draw(canvas)
+        node.endRecording()
+    }
+
     private fun profileFlagOp(type: Int) =
         UserIconInfo(Process.myUserHandle(), type).applyBitmapInfoFlags(FlagOp.NO_OP)
 }
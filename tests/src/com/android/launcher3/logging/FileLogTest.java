@@ -17,6 +17,7 @@ import java.io.File;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.util.Calendar;
+import java.util.Date;
 
 /**
  * Tests for {@link FileLog}
@@ -40,7 +41,7 @@ public class FileLogTest {
     @After
     public void tearDown() {
         // Clear existing logs
-        for (int i = 0; i < FileLog.LOG_DAYS; i++) {
+        for (int i = 0; i < FileLog.LOG_FILE_COUNT; i++) {
             new File(mTempDir, "log-" + i).delete();
         }
         mTempDir.delete();
@@ -67,6 +68,49 @@ public class FileLogTest {
         assertTrue(writer.toString().contains("hoolalala"));
     }
 
+    @Test
+    public void testBurstOfLogsWrittenInOrder() throws Exception {
+        if (!FileLog.ENABLED) {
+            return;
+        }
+        for (int i = 0; i < 100; i++) {
+            FileLog.print("Testing", "burst-" + i + "-end");
+        }
+        StringWriter writer = new StringWriter();
+        assertTrue(FileLog.flushAll(new PrintWriter(writer)));
+        String logs = writer.toString();
+        int lastIndex = -1;
+        for (int i = 0; i < 100; i++) {
+            int index = logs.indexOf("burst-" + i + "-end");
+            assertTrue(index > lastIndex);
+            lastIndex = index;
+        }
+    }
+
+    @Test
+    public void testDroppedEntriesReported() {
+        FileLog.LogRing ring = new FileLog.LogRing(2);
+        ring.add(1000, "Testing", "dropped-1", null);
+        ring.add(2000, "Testing", "dropped-2", null);
+        ring.add(3000, "Testing", "kept-3", null);
+        ring.add(4000, "Testing", "kept-4", null);
+
+        StringBuilder out = new StringBuilder();
+        ring.drainTo(out, new Date());
+        String logs = out.toString();
+        assertTrue(logs.contains("2 log entries dropped"));
+        assertFalse(logs.contains("dropped-1"));
+        assertFalse(logs.contains("dropped-2"));
+        assertTrue(logs.indexOf("log entries dropped") < logs.indexOf("kept-3"));
+        assertTrue(logs.indexOf("kept-3") < logs.indexOf("kept-4"));
+
+        // The count is reset once reported
+        out.setLength(0);
+        ring.add(5000, "Testing", "kept-5", null);
+        ring.drainTo(out, new Date());
+        assertFalse(out.toString().contains("log entries dropped"));
+    }
+
     @Test
     public void testOldFileTruncated() throws Exception {
         if (!FileLog.ENABLED) {
@@ -79,7 +123,7 @@ public class FileLogTest {
 
         Calendar threeDaysAgo = Calendar.getInstance();
         threeDaysAgo.add(Calendar.HOUR, -72);
-        for (int i = 0; i < FileLog.LOG_DAYS; i++) {
+        for (int i = 0; i < FileLog.LOG_FILE_COUNT; i++) {
             new File(mTempDir, "log-" + i).setLastModified(threeDaysAgo.getTimeInMillis());
         }
 
@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.logging;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+
+import com.android.launcher3.logging.FrameStatsTracker.SectionStats;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for {@link FrameStatsTracker}
+ */
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+public class FrameStatsTrackerTest {
+
+    private static final long FRAME_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(16);
+
+    @Test
+    public void percentiles_computedFromHistogram() {
+        SectionStats stats = new SectionStats("test");
+        stats.begin(FRAME_INTERVAL_NANOS);
+        for (int i = 1; i <= 100; i++) {
+            stats.addFrame(TimeUnit.MILLISECONDS.toNanos(i));
+        }
+
+        assertThat(stats.getPercentileMs(50)).isEqualTo(50);
+        assertThat(stats.getPercentileMs(90)).isEqualTo(90);
+        assertThat(stats.getPercentileMs(99)).isEqualTo(99);
+        assertThat(stats.maxFrameMs).isEqualTo(100);
+    }
+
+    @Test
+    public void droppedFrames_countedAboveThreshold() {
+        SectionStats stats = new SectionStats("test");
+        stats.begin(FRAME_INTERVAL_NANOS);
+        stats.addFrame(TimeUnit.MILLISECONDS.toNanos(16));
+        stats.addFrame(TimeUnit.MILLISECONDS.toNanos(20));
+        stats.addFrame(TimeUnit.MILLISECONDS.toNanos(33));
+
+        assertThat(stats.frameCount).isEqualTo(3);
+        assertThat(stats.droppedCount).isEqualTo(1);
+
+        stats.begin(FRAME_INTERVAL_NANOS);
+        stats.addFrame(TimeUnit.MILLISECONDS.toNanos(16));
+
+        assertThat(stats.frameCount).isEqualTo(4);
+        assertThat(stats.droppedCount).isEqualTo(1);
+    }
+
+    @Test
+    public void longFrames_clampedToLastBucket() {
+        SectionStats stats = new SectionStats("test");
+        stats.begin(FRAME_INTERVAL_NANOS);
+        stats.addFrame(TimeUnit.SECONDS.toNanos(1));
+
+        assertThat(stats.buckets[FrameStatsTracker.MAX_BUCKET_MS]).isEqualTo(1);
+        assertThat(stats.getPercentileMs(50)).isEqualTo(FrameStatsTracker.MAX_BUCKET_MS);
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.logging;
+
+import static androidx.test.platform.app.InstrumentationRegistry.getInstrumentation;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+
+import com.android.launcher3.tracing.LauncherTraceFileProto;
+import com.android.launcher3.tracing.ModelStateProto;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+/**
+ * Tests for {@link PerfTraceRecorder}
+ */
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+public class PerfTraceRecorderTest {
+
+    private File mDir;
+    private PerfTraceRecorder mRecorder;
+
+    @Before
+    public void setUp() {
+        Context context = getInstrumentation().getTargetContext();
+        mDir = new File(context.getCacheDir(), "perf_trace_test");
+        mRecorder = new PerfTraceRecorder(context, mDir);
+    }
+
+    @After
+    public void tearDown() {
+        for (File file : mDir.listFiles()) {
+            file.delete();
+        }
+        mDir.delete();
+    }
+
+    @Test
+    public void snapshot_containsProvidersAndExecutors() throws IOException {
+        mRecorder.addSnapshotProvider(
+                s -> s.setModel(ModelStateProto.newBuilder().setLoadId(3)));
+        mRecorder.recordSnapshot();
+
+        LauncherTraceFileProto trace = readFile(mRecorder.getTraceFiles()[1]);
+        assertThat(trace.getMagicNumber()).isNotEqualTo(0);
+        assertThat(trace.getEntryCount()).isEqualTo(1);
+        assertThat(trace.getEntry(0).getLauncher().getPerfSnapshot().getModel().getLoadId())
+                .isEqualTo(3);
+        assertThat(trace.getEntry(0).getLauncher().getPerfSnapshot().getExecutorCount())
+                .isEqualTo(3);
+    }
+
+    @Test
+    public void fullFile_rotatesToOtherFile() throws IOException {
+        for (int i = 0; i <= PerfTraceRecorder.MAX_ENTRIES_PER_FILE; i++) {
+            mRecorder.recordSnapshot();
+        }
+
+        File[] files = mRecorder.getTraceFiles();
+        assertThat(readFile(files[0]).getEntryCount())
+                .isEqualTo(PerfTraceRecorder.MAX_ENTRIES_PER_FILE);
+        assertThat(readFile(files[1]).getEntryCount()).isEqualTo(1);
+    }
+
+    private static LauncherTraceFileProto readFile(File file) throws IOException {
+        try (FileInputStream in = new FileInputStream(file)) {
+            return LauncherTraceFileProto.parseFrom(in);
+        }
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.model;
+
+import static androidx.test.platform.app.InstrumentationRegistry.getInstrumentation;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Process;
+import android.os.UserHandle;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+
+import com.android.launcher3.LauncherSettings.Favorites;
+import com.android.launcher3.model.data.FolderInfo;
+import com.android.launcher3.model.data.LauncherAppWidgetInfo;
+import com.android.launcher3.model.data.WorkspaceItemInfo;
+import com.android.launcher3.util.ComponentKey;
+import com.android.launcher3.util.PackageUserKey;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests for {@link BgDataModel}
+ */
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+public class BgDataModelTest {
+
+    private static final String PACKAGE_1 = "com.android.test.package1";
+    private static final String PACKAGE_2 = "com.android.test.package2";
+
+    private final UserHandle mUser = Process.myUserHandle();
+
+    private Context mContext;
+    private BgDataModel mModel;
+
+    @Before
+    public void setup() {
+        mContext = getInstrumentation().getTargetContext();
+        mModel = new BgDataModel();
+    }
+
+    @Test
+    public void addItem_indexesByPackageAndComponent() {
+        WorkspaceItemInfo app1 = newApp(1, PACKAGE_1, "Activity1");
+        WorkspaceItemInfo app2 = newApp(2, PACKAGE_1, "Activity2");
+        WorkspaceItemInfo app3 = newApp(3, PACKAGE_2, "Activity1");
+        LauncherAppWidgetInfo widget = newWidget(4, PACKAGE_1, "Provider");
+        mModel.addItem(mContext, app1, false);
+        mModel.addItem(mContext, app2, false);
+        mModel.addItem(mContext, app3, false);
+        mModel.addItem(mContext, widget, false);
+
+        assertThat(mModel.getItemsForPackage(new PackageUserKey(PACKAGE_1, mUser)))
+                .containsExactly(app1, app2, widget);
+        assertThat(mModel.getItemsForPackage(new PackageUserKey(PACKAGE_2, mUser)))
+                .containsExactly(app3);
+        assertThat(mModel.getItemsForComponent(
+                new ComponentKey(new ComponentName(PACKAGE_1, "Activity2"), mUser)))
+                .containsExactly(app2);
+    }
+
+    @Test
+    public void removeItem_removesFromIndex() {
+        WorkspaceItemInfo app1 = newApp(1, PACKAGE_1, "Activity1");
+        WorkspaceItemInfo app2 = newApp(2, PACKAGE_1, "Activity2");
+        mModel.addItem(mContext, app1, false);
+        mModel.addItem(mContext, app2, false);
+
+        mModel.removeItem(mContext, app1);
+
+        assertThat(mModel.getItemsForPackage(new PackageUserKey(PACKAGE_1, mUser)))
+                .containsExactly(app2);
+        assertThat(mModel.getItemsForComponent(app1.getComponentKey())).isEmpty();
+    }
+
+    @Test
+    public void updateItemIndex_followsTargetChange() {
+        WorkspaceItemInfo app = newApp(1, PACKAGE_1, "Activity1");
+        mModel.addItem(mContext, app, false);
+
+        app.intent = new Intent(Intent.ACTION_MAIN)
+                .setComponent(new ComponentName(PACKAGE_1, "Activity2"));
+        mModel.updateItemIndex(app);
+
+        assertThat(mModel.getItemsForComponent(
+                new ComponentKey(new ComponentName(PACKAGE_1, "Activity1"), mUser))).isEmpty();
+        assertThat(mModel.getItemsForComponent(app.getComponentKey())).containsExactly(app);
+    }
+
+    @Test
+    public void forAllWorkspaceItemInfos_onlyVisitsRequestedPackages() {
+        WorkspaceItemInfo app1 = newApp(1, PACKAGE_1, "Activity1");
+        WorkspaceItemInfo app2 = newApp(2, PACKAGE_2, "Activity1");
+        mModel.addItem(mContext, app1, false);
+        mModel.addItem(mContext, app2, false);
+
+        List<WorkspaceItemInfo> visited = new ArrayList<>();
+        mModel.forAllWorkspaceItemInfos(mUser, Collections.singleton(PACKAGE_2), visited::add);
+
+        assertThat(visited).containsExactly(app2);
+    }
+
+    @Test
+    public void publishSnapshot_isNotAffectedByLaterChanges() {
+        WorkspaceItemInfo app1 = newApp(1, PACKAGE_1, "Activity1");
+        mModel.addItem(mContext, app1, false);
+        BgDataModel.Snapshot snapshot = mModel.publishSnapshot();
+
+        mModel.addItem(mContext, newApp(2, PACKAGE_2, "Activity1"), false);
+
+        assertThat(snapshot.workspaceItems).containsExactly(app1);
+        assertThat(snapshot.getItem(2)).isNull();
+        assertThat(mModel.getSnapshot()).isSameInstanceAs(snapshot);
+        assertThat(mModel.publishSnapshot().generation).isGreaterThan(snapshot.generation);
+    }
+
+    @Test
+    public void publishSnapshot_reusedWhenUnchanged() {
+        mModel.addItem(mContext, newApp(1, PACKAGE_1, "Activity1"), false);
+        BgDataModel.Snapshot snapshot = mModel.publishSnapshot();
+
+        assertThat(mModel.publishSnapshot()).isSameInstanceAs(snapshot);
+    }
+
+    @Test
+    public void publishSnapshot_folderContentsNotAffectedByLaterChanges() {
+        FolderInfo folder = new FolderInfo();
+        folder.id = 1;
+        folder.container = Favorites.CONTAINER_DESKTOP;
+        mModel.addItem(mContext, folder, false);
+        WorkspaceItemInfo app2 = newApp(2, PACKAGE_1, "Activity1");
+        app2.container = folder.id;
+        mModel.addItem(mContext, app2, false);
+        BgDataModel.Snapshot snapshot = mModel.publishSnapshot();
+
+        folder.add(newApp(3, PACKAGE_2, "Activity1"), false);
+
+        assertThat(snapshot.folders).hasSize(1);
+        FolderInfo snapshotFolder = snapshot.folders.get(0);
+        assertThat(snapshotFolder).isNotSameInstanceAs(folder);
+        assertThat(snapshotFolder.contents).containsExactly(app2);
+        assertThat(snapshot.getItem(folder.id)).isSameInstanceAs(snapshotFolder);
+        assertThat(snapshot.workspaceItems).containsExactly(snapshotFolder);
+    }
+
+    private WorkspaceItemInfo newApp(int id, String packageName, String className) {
+        WorkspaceItemInfo info = new WorkspaceItemInfo();
+        info.id = id;
+        info.itemType = Favorites.ITEM_TYPE_APPLICATION;
+        info.container = Favorites.CONTAINER_DESKTOP;
+        info.user = mUser;
+        info.intent = new Intent(Intent.ACTION_MAIN)
+                .setComponent(new ComponentName(packageName, className));
+        return info;
+    }
+
+    private LauncherAppWidgetInfo newWidget(int id, String packageName, String className) {
+        LauncherAppWidgetInfo info = new LauncherAppWidgetInfo(
+                id, new ComponentName(packageName, className));
+        info.id = id;
+        info.container = Favorites.CONTAINER_DESKTOP;
+        info.user = mUser;
+        return info;
+    }
+}
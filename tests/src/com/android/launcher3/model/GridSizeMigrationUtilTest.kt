@@ -791,6 +791,104 @@ class GridSizeMigrationUtilTest {
         assertThat(locMap[testPackage5]).isEqualTo(0)
     }
 
+    @Test
+    fun planMigration_placesItemsWithoutWritingDb() {
+        // Src hotseat icons
+        addItem(ITEM_TYPE_APPLICATION, 0, CONTAINER_HOTSEAT, 0, 0, testPackage1, 1, TMP_TABLE)
+        addItem(ITEM_TYPE_DEEP_SHORTCUT, 1, CONTAINER_HOTSEAT, 0, 0, testPackage2, 2, TMP_TABLE)
+        addItem(ITEM_TYPE_APPLICATION, 2, CONTAINER_HOTSEAT, 0, 0, "invalid.package", 3, TMP_TABLE)
+        // Src grid icons
+        // _ _ _ _ _
+        // _ _ _ _ 5
+        // _ _ 6 _ _
+        addItem(ITEM_TYPE_APPLICATION, 0, CONTAINER_DESKTOP, 4, 1, testPackage5, 5, TMP_TABLE)
+        addItem(ITEM_TYPE_APPLICATION, 0, CONTAINER_DESKTOP, 2, 2, testPackage6, 6, TMP_TABLE)
+
+        // Dest hotseat icons
+        addItem(ITEM_TYPE_DEEP_SHORTCUT, 0, CONTAINER_HOTSEAT, 0, 0, testPackage2)
+        // Dest grid icons
+        val removedId = addItem(ITEM_TYPE_APPLICATION, 0, CONTAINER_DESKTOP, 2, 2, testPackage10)
+
+        idp.numDatabaseHotseatIcons = 4
+        idp.numColumns = 4
+        idp.numRows = 4
+        val srcCount = countItems(TMP_TABLE)
+        val destCount = countItems(TABLE_NAME)
+        val plan =
+            GridSizeMigrationUtil.planMigration(
+                DbReader(db, TMP_TABLE, context, validPackages, true),
+                DbReader(db, TABLE_NAME, context, validPackages, true),
+                idp.numDatabaseHotseatIcons,
+                Point(idp.numColumns, idp.numRows),
+                DeviceGridState(context),
+                DeviceGridState(idp)
+            )
+
+        assertThat(plan.hotseatPlacements.map { it.screenId }).containsExactly(1)
+        // Expected dest grid icons
+        // _ _ _ _
+        // 5 6 _ _
+        assertThat(plan.workspacePlacements.map { Point(it.cellX, it.cellY) })
+            .containsExactly(Point(0, 1), Point(1, 1))
+            .inOrder()
+        assertThat(plan.removedIds.toArray()).asList().containsExactly(removedId)
+        assertThat(plan.droppedCount).isEqualTo(0)
+        assertThat(plan.estimatedRowWrites).isEqualTo(4)
+        assertThat(countItems(TMP_TABLE)).isEqualTo(srcCount)
+        assertThat(countItems(TABLE_NAME)).isEqualTo(destCount)
+    }
+
+    @Test
+    fun migrate_writesPlannedPlacements() {
+        addItem(ITEM_TYPE_APPLICATION, 0, CONTAINER_DESKTOP, 4, 1, testPackage5, 5, TMP_TABLE)
+        addItem(ITEM_TYPE_APPLICATION, 0, CONTAINER_DESKTOP, 2, 2, testPackage6, 6, TMP_TABLE)
+        val removedId = addItem(ITEM_TYPE_APPLICATION, 0, CONTAINER_DESKTOP, 2, 2, testPackage10)
+
+        idp.numDatabaseHotseatIcons = 4
+        idp.numColumns = 4
+        idp.numRows = 4
+        val plan =
+            GridSizeMigrationUtil.planMigration(
+                DbReader(db, TMP_TABLE, context, validPackages, true),
+                DbReader(db, TABLE_NAME, context, validPackages, true),
+                idp.numDatabaseHotseatIcons,
+                Point(idp.numColumns, idp.numRows),
+                DeviceGridState(context),
+                DeviceGridState(idp)
+            )
+        GridSizeMigrationUtil.migrate(
+            dbHelper,
+            DbReader(db, TMP_TABLE, context, validPackages),
+            DbReader(db, TABLE_NAME, context, validPackages),
+            idp.numDatabaseHotseatIcons,
+            Point(idp.numColumns, idp.numRows),
+            DeviceGridState(context),
+            DeviceGridState(idp)
+        )
+
+        val positions = mutableListOf<Point>()
+        db.query(
+                TABLE_NAME,
+                arrayOf(_ID, CELLX, CELLY),
+                "container=$CONTAINER_DESKTOP",
+                null,
+                null,
+                null,
+                _ID
+            )
+            .use { c ->
+                while (c.moveToNext()) {
+                    assertThat(c.getInt(0)).isNotEqualTo(removedId)
+                    positions.add(Point(c.getInt(1), c.getInt(2)))
+                }
+            }
+        assertThat(positions)
+            .containsExactlyElementsIn(plan.workspacePlacements.map { Point(it.cellX, it.cellY) })
+    }
+
+    private fun countItems(tableName: String): Int =
+        db.query(tableName, arrayOf(_ID), null, null, null, null, null).use { it.count }
+
     private fun enableNewMigrationLogic(srcGridSize: String) {
         LauncherPrefs.get(context).putSync(WORKSPACE_SIZE.to(srcGridSize))
     }
@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.model
+
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.SmallTest
+import com.android.launcher3.LauncherSettings.Favorites.ITEM_TYPE_APPLICATION
+import com.android.launcher3.LauncherSettings.Favorites.ITEM_TYPE_FOLDER
+import com.android.launcher3.model.LoaderMemoryLogger.TIME_BINDER
+import com.android.launcher3.model.LoaderMemoryLogger.TIME_DB_READ
+import com.google.common.truth.Truth.assertThat
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/** Tests for the structured trace recorded by [LoaderMemoryLogger] */
+@SmallTest
+@RunWith(AndroidJUnit4::class)
+class LoaderMemoryLoggerTest {
+
+    private val logger = LoaderMemoryLogger()
+
+    @Test
+    fun itemTimes_aggregatedByItemType() {
+        logger.addItemTime(ITEM_TYPE_APPLICATION, 10)
+        logger.addItemTime(ITEM_TYPE_APPLICATION, 20)
+        logger.addItemTime(ITEM_TYPE_FOLDER, 5)
+
+        val itemTypes = logger.toProto().itemTypeList.associateBy { it.itemType }
+        assertThat(itemTypes[ITEM_TYPE_APPLICATION]!!.count).isEqualTo(2)
+        assertThat(itemTypes[ITEM_TYPE_APPLICATION]!!.durationNanos).isEqualTo(30)
+        assertThat(itemTypes[ITEM_TYPE_FOLDER]!!.count).isEqualTo(1)
+    }
+
+    @Test
+    fun categoriesAndRemovedItems_recorded() {
+        logger.addTime(TIME_DB_READ, 7)
+        logger.addTime(TIME_BINDER, 3)
+        logger.addTime(TIME_BINDER, 4)
+        logger.addRemovedItems("ghost_widgets", 2)
+        logger.addRemovedItems("ghost_widgets", 0)
+        logger.addPhase("loadWorkspace")
+
+        val trace = logger.toProto()
+        assertThat(trace.dbReadNanos).isEqualTo(7)
+        assertThat(trace.binderNanos).isEqualTo(7)
+        assertThat(trace.iconResolutionNanos).isEqualTo(0)
+        assertThat(trace.removedItemsList.single().reason).isEqualTo("ghost_widgets")
+        assertThat(trace.removedItemsList.single().count).isEqualTo(2)
+        assertThat(trace.phaseList.single().name).isEqualTo("loadWorkspace")
+    }
+}
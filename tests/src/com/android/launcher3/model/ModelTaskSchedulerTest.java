@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.model;
+
+import static com.android.launcher3.model.ModelTaskScheduler.PRIORITY_BACKGROUND;
+import static com.android.launcher3.model.ModelTaskScheduler.PRIORITY_BINDING;
+import static com.android.launcher3.model.ModelTaskScheduler.PRIORITY_USER_INTERACTIVE;
+import static com.android.launcher3.util.Executors.createAndStartNewLooper;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+
+import com.android.launcher3.util.LooperExecutor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for {@link ModelTaskScheduler}
+ */
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+public class ModelTaskSchedulerTest {
+
+    private LooperExecutor mWriteExecutor;
+    private ModelTaskScheduler mScheduler;
+
+    @Before
+    public void setUp() {
+        mWriteExecutor = new LooperExecutor(createAndStartNewLooper("model-test"));
+        mScheduler = new ModelTaskScheduler(mWriteExecutor);
+    }
+
+    @After
+    public void tearDown() {
+        mWriteExecutor.getLooper().quitSafely();
+    }
+
+    @Test
+    public void pendingWrites_runByPriorityThenInOrder() throws Exception {
+        CountDownLatch blocker = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        mWriteExecutor.post(() -> {
+            try {
+                blocker.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        List<String> order = new ArrayList<>();
+        mScheduler.executeWrite(() -> order.add("background"), PRIORITY_BACKGROUND);
+        mScheduler.executeWrite(() -> order.add("binding1"), PRIORITY_BINDING);
+        mScheduler.executeWrite(() -> order.add("interactive"), PRIORITY_USER_INTERACTIVE);
+        mScheduler.executeWrite(() -> order.add("binding2"), PRIORITY_BINDING);
+        blocker.countDown();
+        mWriteExecutor.post(done::countDown);
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(order).isEqualTo(
+                Arrays.asList("interactive", "binding1", "binding2", "background"));
+    }
+
+    @Test
+    public void pendingWrite_runsBeforeWorkPostedAfterIt() throws Exception {
+        CountDownLatch blocker = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        mWriteExecutor.post(() -> {
+            try {
+                blocker.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        List<String> order = new ArrayList<>();
+        mScheduler.executeWrite(() -> order.add("background"), PRIORITY_BACKGROUND);
+        mWriteExecutor.post(() -> order.add("posted"));
+        mScheduler.executeWrite(() -> order.add("interactive"), PRIORITY_USER_INTERACTIVE);
+        blocker.countDown();
+        mWriteExecutor.post(done::countDown);
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(order).isEqualTo(Arrays.asList("interactive", "background", "posted"));
+    }
+
+    @Test
+    public void writeOnModelThread_runsInline() throws Exception {
+        List<String> order = new ArrayList<>();
+        mWriteExecutor.submit(() -> {
+            mScheduler.executeWrite(() -> order.add("task"), PRIORITY_BACKGROUND);
+            order.add("after");
+        }).get(5, TimeUnit.SECONDS);
+
+        assertThat(order).isEqualTo(Arrays.asList("task", "after"));
+    }
+}
@@ -23,6 +23,7 @@ import android.content.Intent
 import android.content.pm.LauncherApps
 import android.content.pm.PackageInstaller
 import android.content.pm.ShortcutInfo
+import android.os.SystemClock
 import android.os.UserHandle
 import android.util.LongSparseArray
 import com.android.launcher3.LauncherAppState
@@ -44,6 +45,7 @@ import com.android.launcher3.util.PackageUserKey
 import com.android.launcher3.widget.WidgetInflater
 import com.google.common.truth.Truth.assertThat
 import com.google.common.truth.Truth.assertWithMessage
+import java.util.concurrent.TimeUnit
 import org.junit.Before
 import org.junit.Test
 import org.mockito.Mock
@@ -259,6 +261,31 @@ class WorkspaceItemProcessorTest {
         verify(mockCursor).checkAndAddItem(mockWorkspaceInfo, mockBgDataModel, null)
     }
 
+    @Test
+    fun `When valid app then package lookups booked as binder time`() {
+
+        // Given
+        mockLauncherApps =
+            mock<LauncherApps>().apply {
+                whenever(isPackageEnabled("package", userHandle)).doAnswer {
+                    SystemClock.sleep(BINDER_CALL_MS)
+                    true
+                }
+                whenever(isActivityEnabled(componentName, userHandle)).thenReturn(true)
+            }
+        val memoryLogger = LoaderMemoryLogger()
+        itemProcessorUnderTest = createWorkspaceItemProcessorUnderTest(memoryLogger = memoryLogger)
+
+        // When
+        itemProcessorUnderTest.processItem()
+
+        // Then
+        val trace = memoryLogger.toProto()
+        assertThat(trace.binderNanos).isAtLeast(TimeUnit.MILLISECONDS.toNanos(BINDER_CALL_MS))
+        assertThat(trace.iconResolutionNanos).isEqualTo(0)
+        verify(mockCursor).checkAndAddItem(mockWorkspaceInfo, mockBgDataModel, memoryLogger)
+    }
+
     @Test
     fun `When fallback Activity found for app then mark restored`() {
 
@@ -427,4 +454,8 @@ class WorkspaceItemProcessorTest {
         assertThat(actualFolderInfo.options).isEqualTo(expectedFolderInfo.options)
         verify(mockCursor).checkAndAddItem(actualFolderInfo, mockBgDataModel, null)
     }
+
+    companion object {
+        private const val BINDER_CALL_MS = 2L
+    }
 }
@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.nonquickstep
+
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.SmallTest
+import com.android.launcher3.AbstractDeviceProfileTest
+import com.android.launcher3.DeviceProfile
+import com.android.launcher3.InvariantDeviceProfile
+import com.android.launcher3.InvariantDeviceProfile.getDefaultGridName
+import com.android.launcher3.LauncherPrefs
+import com.google.common.truth.Truth.assertThat
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.mockito.kotlin.mock
+import org.mockito.kotlin.whenever
+
+/** Tests for the reuse of the supported profiles of [InvariantDeviceProfile]. */
+@SmallTest
+@RunWith(AndroidJUnit4::class)
+class SupportedProfilesCacheTest : AbstractDeviceProfileTest() {
+
+    @Test
+    fun sameDisplayConfig_profilesRebuilt() {
+        initializeVarsForPhone(deviceSpecs["phone"]!!)
+        val idp = InvariantDeviceProfile(context, getDefaultGridName(context))
+        val profiles = idp.supportedProfiles
+
+        idp.onConfigChanged(context)
+
+        assertThat(idp.supportedProfiles).hasSize(profiles.size)
+        assertThat(idp.supportedProfiles[0]).isNotSameInstanceAs(profiles[0])
+    }
+
+    @Test
+    fun labelPrefToggled_listenersGetNewProfiles() {
+        initializeVarsForPhone(deviceSpecs["phone"]!!)
+        val idp = InvariantDeviceProfile(context, getDefaultGridName(context))
+        val profiles = idp.supportedProfiles
+        var notifiedProfile: DeviceProfile? = null
+        idp.addOnChangeListener { notifiedProfile = idp.supportedProfiles[0] }
+
+        // Label and themed icon preference changes re-initialize the grid like this, and
+        // Launcher only rebinds if it gets a different DeviceProfile
+        idp.onConfigChanged(context)
+
+        assertThat(notifiedProfile).isNotNull()
+        assertThat(notifiedProfile).isNotSameInstanceAs(profiles[0])
+    }
+
+    @Test
+    fun navigationModeChanged_profilesRebuiltThenReused() {
+        initializeVarsForPhone(deviceSpecs["phone"]!!)
+        val idp = InvariantDeviceProfile(context, getDefaultGridName(context))
+        val gestureProfiles = idp.supportedProfiles
+
+        initializeVarsForPhone(deviceSpecs["phone"]!!, isGestureMode = false)
+        idp.onConfigChanged(context)
+        val buttonProfiles = idp.supportedProfiles
+        assertThat(buttonProfiles[0]).isNotSameInstanceAs(gestureProfiles[0])
+        assertThat(buttonProfiles[0].isGestureMode).isFalse()
+
+        initializeVarsForPhone(deviceSpecs["phone"]!!)
+        idp.onConfigChanged(context)
+        assertThat(idp.supportedProfiles[0]).isSameInstanceAs(gestureProfiles[0])
+    }
+
+    @Test
+    fun twoLinePrefToggled_switchingBackRebuildsProfiles() {
+        initializeVarsForPhone(deviceSpecs["phone"]!!)
+        setTwoLineAllApps(false)
+        val idp = InvariantDeviceProfile(context, getDefaultGridName(context))
+        val gestureProfiles = idp.supportedProfiles
+
+        initializeVarsForPhone(deviceSpecs["phone"]!!, isGestureMode = false)
+        setTwoLineAllApps(true)
+        idp.onConfigChanged(context)
+
+        initializeVarsForPhone(deviceSpecs["phone"]!!)
+        setTwoLineAllApps(true)
+        idp.onConfigChanged(context)
+        assertThat(idp.supportedProfiles[0]).isNotSameInstanceAs(gestureProfiles[0])
+        assertThat(idp.supportedProfiles[0].allAppsCellHeightPx)
+            .isGreaterThan(gestureProfiles[0].allAppsCellHeightPx)
+    }
+
+    private fun setTwoLineAllApps(enabled: Boolean) {
+        val prefs: LauncherPrefs = mock()
+        whenever(prefs.get(LauncherPrefs.TASKBAR_PINNING)).thenReturn(false)
+        whenever(prefs.get(LauncherPrefs.ENABLE_TWOLINE_ALLAPPS_TOGGLE)).thenReturn(enabled)
+        context.putObject(LauncherPrefs.INSTANCE, prefs)
+    }
+}
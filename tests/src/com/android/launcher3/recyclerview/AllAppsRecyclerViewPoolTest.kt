@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.launcher3.recyclerview
+
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.SmallTest
+import androidx.test.platform.app.InstrumentationRegistry.getInstrumentation
+import com.android.launcher3.DeviceProfile
+import com.android.launcher3.InvariantDeviceProfile
+import com.android.launcher3.allapps.BaseAllAppsAdapter.VIEW_TYPE_ALL_APPS_DIVIDER
+import com.android.launcher3.allapps.BaseAllAppsAdapter.VIEW_TYPE_ICON
+import com.google.common.truth.Truth.assertThat
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/** Unit tests for [AllAppsRecyclerViewPool] */
+@SmallTest
+@RunWith(AndroidJUnit4::class)
+class AllAppsRecyclerViewPoolTest {
+
+    private val pool = AllAppsRecyclerViewPool<Any>()
+    private lateinit var dp: DeviceProfile
+
+    @Before
+    fun setUp() {
+        val context = getInstrumentation().targetContext
+        dp = InvariantDeviceProfile.INSTANCE[context].getDeviceProfile(context).copy(context)
+    }
+
+    @Test
+    fun maxLiveCount_coversVisibleRowsOfIcons() {
+        val rowCount = dp.maxAllAppsRowCount + PREINFLATE_ICONS_ROW_COUNT
+
+        assertThat(pool.getMaxLiveCount(VIEW_TYPE_ICON, dp))
+            .isEqualTo(rowCount * dp.numShownAllAppsColumns + EXTRA_ICONS_COUNT)
+        assertThat(pool.getMaxLiveCount(VIEW_TYPE_ALL_APPS_DIVIDER, dp)).isEqualTo(rowCount)
+    }
+
+    @Test
+    fun maxLiveCount_doubledWithWorkProfile() {
+        val count = pool.getMaxLiveCount(VIEW_TYPE_ICON, dp)
+
+        pool.hasWorkProfile = true
+
+        assertThat(pool.getMaxLiveCount(VIEW_TYPE_ICON, dp)).isEqualTo(count * 2)
+    }
+
+    @Test
+    fun observedDemand_tracksCreatedViewHolders() {
+        repeat(3) { pool.onViewHolderCreated(VIEW_TYPE_ALL_APPS_DIVIDER, dp) }
+
+        assertThat(pool.getObservedDemand(VIEW_TYPE_ALL_APPS_DIVIDER, dp)).isEqualTo(3)
+        assertThat(pool.getObservedDemand(VIEW_TYPE_ICON, dp)).isEqualTo(0)
+    }
+
+    @Test
+    fun observedDemand_cappedAtMaxLiveCount() {
+        val maxLiveCount = pool.getMaxLiveCount(VIEW_TYPE_ICON, dp)
+
+        repeat(maxLiveCount * 3) { pool.onViewHolderCreated(VIEW_TYPE_ICON, dp) }
+
+        assertThat(pool.getObservedDemand(VIEW_TYPE_ICON, dp)).isEqualTo(maxLiveCount)
+    }
+
+    @Test
+    fun observedDemand_notRecordedWithoutDeviceProfile() {
+        pool.onViewHolderCreated(VIEW_TYPE_ICON, null)
+
+        assertThat(pool.getObservedDemand(VIEW_TYPE_ICON, dp)).isEqualTo(0)
+    }
+}
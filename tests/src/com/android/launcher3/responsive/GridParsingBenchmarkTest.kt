@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.launcher3.responsive
+
+import android.content.Context
+import android.os.Bundle
+import android.os.SystemClock
+import android.util.Log
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.MediumTest
+import androidx.test.platform.app.InstrumentationRegistry.getInstrumentation
+import com.android.launcher3.AbstractDeviceProfileTest
+import com.android.launcher3.InvariantDeviceProfile
+import com.android.launcher3.responsive.ResponsiveSpec.Companion.ResponsiveSpecType
+import com.android.launcher3.tests.R as TestR
+import com.android.launcher3.util.TestResourceHelper
+import com.google.common.truth.Truth.assertThat
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Microbenchmark of the caches of device_profiles.xml and of the responsive spec files. The mean
+ * time of a parse with and without the cache is reported as instrumentation status, so it can be
+ * compared across builds.
+ */
+@MediumTest
+@RunWith(AndroidJUnit4::class)
+class GridParsingBenchmarkTest : AbstractDeviceProfileTest() {
+    override val runningContext: Context = getInstrumentation().context
+
+    @Before
+    fun setup() {
+        initializeVarsForPhone(deviceSpecs["phone"]!!)
+    }
+
+    @After
+    fun tearDown() {
+        InvariantDeviceProfile.clearDeviceProfilesXmlCache()
+        ResponsiveSpecsParser.clearCache()
+    }
+
+    @Test
+    fun deviceProfiles_cachedParseFasterThanUncached() {
+        val targetContext = getInstrumentation().targetContext
+
+        val uncachedNanos = measureMeanNanos {
+            InvariantDeviceProfile.clearDeviceProfilesXmlCache()
+            InvariantDeviceProfile.parseAllDefinedGridOptions(targetContext)
+        }
+        val cachedNanos = measureMeanNanos {
+            InvariantDeviceProfile.parseAllDefinedGridOptions(targetContext)
+        }
+
+        report("deviceProfiles", uncachedNanos, cachedNanos)
+        assertThat(cachedNanos).isLessThan(uncachedNanos)
+    }
+
+    @Test
+    fun responsiveSpecs_cachedParseFasterThanUncached() {
+        val uncachedNanos = measureMeanNanos {
+            ResponsiveSpecsParser.clearCache()
+            parseHotseatSpecs()
+        }
+        val cachedNanos = measureMeanNanos { parseHotseatSpecs() }
+
+        report("responsiveSpecs", uncachedNanos, cachedNanos)
+        assertThat(cachedNanos).isLessThan(uncachedNanos)
+    }
+
+    private fun parseHotseatSpecs() =
+        ResponsiveSpecsParser(TestResourceHelper(context, TestR.xml.valid_hotseat_file))
+            .parseXML(ResponsiveSpecType.Hotseat, ::HotseatSpec)
+
+    private inline fun measureMeanNanos(block: () -> Unit): Long {
+        repeat(WARMUP_ITERATIONS) { block() }
+        val startNanos = SystemClock.elapsedRealtimeNanos()
+        repeat(ITERATIONS) { block() }
+        return (SystemClock.elapsedRealtimeNanos() - startNanos) / ITERATIONS
+    }
+
+    private fun report(name: String, uncachedNanos: Long, cachedNanos: Long) {
+        Log.d(TAG, "$name: uncachedNanos=$uncachedNanos cachedNanos=$cachedNanos")
+        getInstrumentation()
+            .sendStatus(
+                0,
+                Bundle().apply {
+                    putLong("${name}_uncached_nanos", uncachedNanos)
+                    putLong("${name}_cached_nanos", cachedNanos)
+                }
+            )
+    }
+
+    private companion object {
+        const val TAG = "GridParsingBenchmark"
+        const val WARMUP_ITERATIONS = 3
+        const val ITERATIONS = 20
+    }
+}
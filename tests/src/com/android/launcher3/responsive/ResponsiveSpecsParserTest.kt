@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.launcher3.responsive
+
+import android.content.Context
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.SmallTest
+import androidx.test.platform.app.InstrumentationRegistry
+import com.android.launcher3.AbstractDeviceProfileTest
+import com.android.launcher3.responsive.ResponsiveSpec.Companion.ResponsiveSpecType
+import com.android.launcher3.tests.R as TestR
+import com.android.launcher3.util.TestResourceHelper
+import com.google.common.truth.Truth.assertThat
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+
+@SmallTest
+@RunWith(AndroidJUnit4::class)
+class ResponsiveSpecsParserTest : AbstractDeviceProfileTest() {
+    override val runningContext: Context = InstrumentationRegistry.getInstrumentation().context
+
+    @Before
+    fun setup() {
+        initializeVarsForPhone(deviceSpecs["phone"]!!)
+        ResponsiveSpecsParser.clearCache()
+    }
+
+    @Test
+    fun sameFileAndConfiguration_parsedOnce() {
+        val specs = parseHotseatSpecs()
+
+        assertThat(parseHotseatSpecs()).isSameInstanceAs(specs)
+    }
+
+    @Test
+    fun otherDensity_parsedAgain() {
+        val phoneSpecs = parseHotseatSpecs()
+
+        initializeVarsForTablet(deviceSpecs["tablet"]!!)
+        val tabletSpecs = parseHotseatSpecs()
+
+        assertThat(tabletSpecs).isNotSameInstanceAs(phoneSpecs)
+        assertThat(tabletSpecs[0].heightSpecs[0]).isNotEqualTo(phoneSpecs[0].heightSpecs[0])
+    }
+
+    @Test
+    fun cacheCleared_parsedAgain() {
+        val specs = parseHotseatSpecs()
+
+        ResponsiveSpecsParser.clearCache()
+
+        assertThat(parseHotseatSpecs()).isNotSameInstanceAs(specs)
+    }
+
+    private fun parseHotseatSpecs() =
+        ResponsiveSpecsParser(TestResourceHelper(context, TestR.xml.valid_hotseat_file))
+            .parseXML(ResponsiveSpecType.Hotseat, ::HotseatSpec)
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.shortcuts;
+
+import static androidx.test.core.app.ApplicationProvider.getApplicationContext;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.spy;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.pm.ShortcutInfo;
+import android.os.Process;
+import android.os.UserHandle;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+
+import com.android.launcher3.model.BgDataModel;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Collections;
+
+/**
+ * Tests for {@link ShortcutCache}
+ */
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+public class ShortcutCacheTest {
+
+    private Context mContext;
+    private UserHandle mUser;
+    private ComponentName mActivity;
+    private BgDataModel mDataModel;
+
+    @Before
+    public void setUp() {
+        mContext = getApplicationContext();
+        mUser = Process.myUserHandle();
+        mActivity = new ComponentName(mContext, "com.android.launcher3.tests.Activity");
+        mDataModel = new BgDataModel();
+    }
+
+    @Test
+    public void fullQueryResult_returned() {
+        ShortcutInfo shortcut = createShortcut("full", "Full label");
+        mDataModel.shortcutCache.update(null, mUser, Collections.singletonList(shortcut));
+
+        assertThat(mDataModel.shortcutCache.getPublishedShortcuts(mActivity, mUser))
+                .containsExactly(shortcut);
+    }
+
+    @Test
+    public void keyFieldsOnlyUpdate_notReturned() {
+        ShortcutInfo full = createShortcut("full", "Full label");
+        mDataModel.shortcutCache.update(null, mUser, Collections.singletonList(full));
+
+        // Shortcut change events only carry key fields, like the id and activity
+        ShortcutInfo changed = createShortcut("changed", null);
+        mDataModel.updateDeepShortcutCounts(
+                mContext.getPackageName(), mUser, Collections.singletonList(changed));
+        assertThat(mDataModel.shortcutCache.getPublishedShortcuts(mActivity, mUser))
+                .containsExactly(full);
+
+        // ShortcutsChangedTask invalidates the package so that the next popup queries again
+        mDataModel.shortcutCache.invalidate(mContext.getPackageName(), mUser);
+        assertThat(mDataModel.shortcutCache.getPublishedShortcuts(mActivity, mUser)).isNull();
+    }
+
+    @Test
+    public void queryStartedBeforeInvalidation_notCached() {
+        int invalidationCount = mDataModel.shortcutCache.getInvalidationCount();
+        mDataModel.shortcutCache.invalidate(mContext.getPackageName(), mUser);
+
+        mDataModel.shortcutCache.update(mContext.getPackageName(), mUser,
+                Collections.singletonList(createShortcut("stale", "Stale label")),
+                invalidationCount);
+
+        assertThat(mDataModel.shortcutCache.getPublishedShortcuts(mActivity, mUser)).isNull();
+    }
+
+    private ShortcutInfo createShortcut(String id, String label) {
+        ShortcutInfo.Builder builder = new ShortcutInfo.Builder(mContext, id)
+                .setActivity(mActivity);
+        if (label != null) {
+            builder.setShortLabel(label);
+        }
+        ShortcutInfo info = spy(builder.build());
+        doReturn(true).when(info).isDynamic();
+        doReturn(true).when(info).isEnabled();
+        return info;
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.util;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.junit.Assume.assumeFalse;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+
+import com.android.launcher3.Utilities;
+import com.android.launcher3.util.ExecutorStats.TaskStats;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for {@link ExecutorStats}
+ */
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+public class ExecutorStatsTest {
+
+    @After
+    public void tearDown() {
+        ExecutorStats.setSampleRate(ExecutorStats.SAMPLE_RATE_FROM_PROPERTY);
+    }
+
+    @Test
+    public void shouldSample_disabledByDefault() {
+        assumeFalse(Utilities.isPropertyEnabled(LogConfig.EXECUTOR_STATS));
+        ExecutorStats stats = new ExecutorStats("test");
+        for (int i = 0; i < 10; i++) {
+            assertThat(stats.shouldSample()).isFalse();
+        }
+    }
+
+    @Test
+    public void shouldSample_oneTaskPerRate() {
+        ExecutorStats.setSampleRate(4);
+        ExecutorStats stats = new ExecutorStats("test");
+        int sampled = 0;
+        for (int i = 0; i < 20; i++) {
+            if (stats.shouldSample()) {
+                sampled++;
+            }
+        }
+        assertThat(sampled).isEqualTo(5);
+    }
+
+    @Test
+    public void record_aggregatedByTaskClass() {
+        ExecutorStats stats = new ExecutorStats("test");
+        stats.record("task", 10, 100);
+        stats.record("task", 30, 50);
+        stats.record("other", 1, 1);
+
+        TaskStats task = stats.getTaskStats("task");
+        assertThat(task.count).isEqualTo(2);
+        assertThat(task.totalDelayNanos).isEqualTo(40);
+        assertThat(task.maxDelayNanos).isEqualTo(30);
+        assertThat(task.totalRunNanos).isEqualTo(150);
+        assertThat(task.maxRunNanos).isEqualTo(100);
+        assertThat(stats.getTaskStats("other").count).isEqualTo(1);
+    }
+
+    @Test
+    public void submittedTask_recordedWithOriginalClass() throws InterruptedException {
+        ExecutorStats.setSampleRate(1);
+        InstrumentedThreadPoolExecutor executor = new InstrumentedThreadPoolExecutor("test",
+                1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+        try {
+            executor.submit(new TestTask());
+            executor.submit(() -> 1);
+            // Stats are recorded after the future completes, wait for the worker to finish
+            executor.shutdown();
+            assertThat(executor.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+
+            assertThat(executor.getStats().getTaskStats(TestTask.class.getName()).count)
+                    .isEqualTo(1);
+            assertThat(executor.getStats().getTaskStats(FutureTask.class.getName())).isNull();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void setSampleRate_overridesProperty() {
+        boolean propertyEnabled = Utilities.isPropertyEnabled(LogConfig.EXECUTOR_STATS);
+        int propertyRate = ExecutorStats.getSampleRate();
+        assertThat(propertyRate > 0).isEqualTo(propertyEnabled);
+
+        ExecutorStats.setSampleRate(8);
+        assertThat(ExecutorStats.getSampleRate()).isEqualTo(8);
+
+        ExecutorStats.setSampleRate(ExecutorStats.SAMPLE_RATE_FROM_PROPERTY);
+        assertThat(ExecutorStats.getSampleRate()).isEqualTo(propertyRate);
+    }
+
+    private static class TestTask implements Runnable {
+        @Override
+        public void run() { }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.util;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.text.PrecomputedText;
+import android.text.TextPaint;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests for {@link LabelLayoutCache}
+ */
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+public class LabelLayoutCacheTest {
+
+    private static final float MIN_SPACING = -0.05f;
+    private static final String LABEL = "Launcher label";
+
+    private LabelLayoutCache mCache;
+    private TextPaint mPaint;
+    private float mLabelWidth;
+
+    @Before
+    public void setUp() {
+        mCache = new LabelLayoutCache(10, Runnable::run);
+        mPaint = new TextPaint();
+        mPaint.setTextSize(40);
+        mLabelWidth = mPaint.measureText(LABEL);
+    }
+
+    @Test
+    public void textFits_noSpacing() {
+        assertThat(mCache.getLetterSpacing(mPaint, LABEL, mLabelWidth * 2, MIN_SPACING))
+                .isEqualTo(0f);
+    }
+
+    @Test
+    public void textTooLong_negativeSpacingWhichFits() {
+        float spacing = mCache.getLetterSpacing(mPaint, LABEL, mLabelWidth * 0.98f, MIN_SPACING);
+
+        assertThat(spacing).isLessThan(0f);
+        assertThat(spacing).isAtLeast(MIN_SPACING);
+        assertThat(mPaint.getLetterSpacing()).isEqualTo(0f);
+        mPaint.setLetterSpacing(spacing);
+        assertThat(mPaint.measureText(LABEL)).isLessThan(mLabelWidth * 0.98f);
+    }
+
+    @Test
+    public void sameLabel_cached() {
+        float spacing = mCache.getLetterSpacing(mPaint, LABEL, mLabelWidth * 0.98f, MIN_SPACING);
+        assertThat(mCache.getLetterSpacing(mPaint, LABEL, mLabelWidth * 0.98f, MIN_SPACING))
+                .isEqualTo(spacing);
+        assertThat(mCache.getHitCount()).isEqualTo(1);
+        assertThat(mCache.getMissCount()).isEqualTo(1);
+
+        // Different size or width is measured again
+        mCache.getLetterSpacing(mPaint, LABEL, mLabelWidth * 0.9f, MIN_SPACING);
+        mPaint.setTextSize(30);
+        mCache.getLetterSpacing(mPaint, LABEL, mLabelWidth * 0.98f, MIN_SPACING);
+        assertThat(mCache.getMissCount()).isEqualTo(3);
+
+        mCache.clear();
+        mCache.getLetterSpacing(mPaint, LABEL, mLabelWidth * 0.98f, MIN_SPACING);
+        assertThat(mCache.getMissCount()).isEqualTo(4);
+    }
+
+    @Test
+    public void precompute_onlyForSameParams() {
+        PrecomputedText.Params params = new PrecomputedText.Params.Builder(mPaint).build();
+        mCache.precompute(Arrays.asList(LABEL, "Other label"), params);
+
+        PrecomputedText text = mCache.getPrecomputedText(LABEL, params);
+        assertThat(text).isNotNull();
+        assertThat(text.toString()).isEqualTo(LABEL);
+        assertThat(mCache.getPrecomputedText("Missing label", params)).isNull();
+
+        TextPaint otherPaint = new TextPaint(mPaint);
+        otherPaint.setTextSize(30);
+        assertThat(mCache.getPrecomputedText(LABEL,
+                new PrecomputedText.Params.Builder(otherPaint).build())).isNull();
+
+        mCache.clear();
+        assertThat(mCache.getPrecomputedText(LABEL, params)).isNull();
+    }
+
+    @Test
+    public void precompute_listLargerThanCache_allTextsKept() {
+        PrecomputedText.Params params = new PrecomputedText.Params.Builder(mPaint).build();
+        List<String> labels = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            labels.add(LABEL + i);
+        }
+        mCache.precompute(labels, params);
+
+        for (String label : labels) {
+            assertThat(mCache.getPrecomputedText(label, params)).isNotNull();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.util;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.os.HandlerThread;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for {@link LooperExecutor}
+ */
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+public class LooperExecutorTest {
+
+    private HandlerThread mThread;
+    private LooperExecutor mExecutor;
+
+    @Before
+    public void setUp() {
+        mThread = new HandlerThread("looper-executor-test");
+        mThread.start();
+        mExecutor = new LooperExecutor(mThread.getLooper());
+    }
+
+    @After
+    public void tearDown() {
+        mThread.quitSafely();
+    }
+
+    @Test
+    public void queueDepth_countsPendingTasks() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        mExecutor.post(() -> {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(mExecutor.getQueueDepth()).isEqualTo(0);
+
+        for (int i = 0; i < 3; i++) {
+            mExecutor.post(() -> { });
+        }
+        assertThat(mExecutor.getQueueDepth()).isEqualTo(3);
+
+        release.countDown();
+        CountDownLatch done = new CountDownLatch(1);
+        mExecutor.post(done::countDown);
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(mExecutor.getQueueDepth()).isEqualTo(0);
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.util;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.os.Process;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for {@link PackageExecutorPool}
+ */
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+public class PackageExecutorPoolTest {
+
+    private static final int THREAD_COUNT = 2;
+
+    private final PackageExecutorPool mPool =
+            new PackageExecutorPool("test", THREAD_COUNT, Process.THREAD_PRIORITY_DEFAULT);
+
+    @Test
+    public void tasksOfPackage_runInOrder() throws Exception {
+        List<Integer> results = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(1);
+        Executor executor = mPool.getExecutor("a");
+        for (int i = 0; i < 50; i++) {
+            int value = i;
+            executor.execute(() -> results.add(value));
+            // Other packages sharing the threads don't change the order
+            mPool.getExecutor("b" + i).execute(() -> { });
+        }
+        executor.execute(done::countDown);
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        for (int i = 0; i < 50; i++) {
+            assertThat(results.get(i)).isEqualTo(i);
+        }
+    }
+
+    @Test
+    public void manyPackages_useBoundedThreads() throws Exception {
+        CountDownLatch done = new CountDownLatch(20);
+        for (int i = 0; i < 20; i++) {
+            mPool.getExecutor("package" + i).execute(done::countDown);
+        }
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(mPool.getThreadCount()).isAtMost(THREAD_COUNT);
+    }
+
+    @Test
+    public void idlePackage_isRetired() throws Exception {
+        CountDownLatch blocker = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        Executor executor = mPool.getExecutor("a");
+        executor.execute(() -> {
+            try {
+                blocker.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        assertThat(mPool.getActivePackageCount()).isEqualTo(1);
+        assertThat(mPool.getExecutor("a")).isSameInstanceAs(executor);
+
+        blocker.countDown();
+        executor.execute(done::countDown);
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        // The package is removed right after its last task completes
+        for (int i = 0; i < 50 && mPool.getActivePackageCount() > 0; i++) {
+            Thread.sleep(10);
+        }
+        assertThat(mPool.getActivePackageCount()).isEqualTo(0);
+    }
+}
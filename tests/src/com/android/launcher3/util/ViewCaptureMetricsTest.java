@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.util;
+
+import static android.view.View.VISIBLE;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+
+import com.android.app.viewcapture.data.ExportedData;
+import com.android.app.viewcapture.data.FrameData;
+import com.android.app.viewcapture.data.ViewNode;
+import com.android.app.viewcapture.data.WindowData;
+import com.android.launcher3.util.viewcapture_analysis.ViewCaptureMetrics;
+import com.android.launcher3.util.viewcapture_analysis.ViewCaptureMetrics.FrameMetrics;
+import com.android.launcher3.util.viewcapture_analysis.ViewCaptureMetrics.WindowMetrics;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Map;
+
+/**
+ * Tests for {@link ViewCaptureMetrics}
+ */
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+public class ViewCaptureMetricsTest {
+
+    private static final String WINDOW = "window";
+
+    @Test
+    public void frames_countViewsAndChanges() {
+        ExportedData data = newCapture(
+                newRoot(newChild(1, 0, 0), newChild(2, 50, 0)),
+                // Child 1 moves, child 2 is resized
+                newRoot(newChild(1, 10, 0), newChild(2, 50, 0).toBuilder().setWidth(60).build()),
+                newRoot(newChild(1, 10, 0), newChild(2, 50, 0).toBuilder().setWidth(60).build()));
+
+        WindowMetrics window = ViewCaptureMetrics.compute(data).get(WINDOW);
+        assertThat(window.frames).hasSize(3);
+
+        FrameMetrics first = window.frames.get(0);
+        assertThat(first.viewCount).isEqualTo(3);
+        assertThat(first.invalidatedViewCount).isEqualTo(0);
+
+        FrameMetrics second = window.frames.get(1);
+        assertThat(second.invalidatedViewCount).isEqualTo(2);
+        assertThat(second.laidOutViewCount).isEqualTo(2);
+
+        FrameMetrics third = window.frames.get(2);
+        assertThat(third.invalidatedViewCount).isEqualTo(0);
+        assertThat(window.getLayoutPassCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void drawnArea_relativeToWindow() {
+        // Two 50x100 children drawn over a 100x100 root
+        ExportedData data = newCapture(newRoot(newChild(1, 0, 0), newChild(2, 50, 0)));
+
+        FrameMetrics frame = ViewCaptureMetrics.compute(data).get(WINDOW).frames.get(0);
+        assertThat(frame.drawnViewCount).isEqualTo(3);
+        assertThat(frame.drawnAreaRatio).isWithin(0.01f).of(2f);
+    }
+
+    @Test
+    public void report_summaryReadBackAndCompared() throws Exception {
+        ExportedData baseline = newCapture(newRoot(newChild(1, 0, 0)));
+        ExportedData current = newCapture(newRoot(newChild(1, 0, 0), newChild(2, 50, 0)));
+
+        StringWriter report = new StringWriter();
+        try (PrintWriter writer = new PrintWriter(report)) {
+            ViewCaptureMetrics.writeReport(ViewCaptureMetrics.compute(baseline), writer);
+        }
+        Map<String, Float> baselineSummary =
+                ViewCaptureMetrics.readSummary(new StringReader(report.toString()));
+        assertThat(baselineSummary.get(WINDOW + "/viewCount.max")).isEqualTo(2f);
+
+        Map<String, Float> currentSummary =
+                ViewCaptureMetrics.getSummary(ViewCaptureMetrics.compute(current));
+        assertThat(ViewCaptureMetrics.findRegressions(baselineSummary, currentSummary, 0.1f))
+                .contains(WINDOW + "/viewCount.max: 2.00 -> 3.00");
+        assertThat(ViewCaptureMetrics.findRegressions(baselineSummary, baselineSummary, 0.1f))
+                .isEmpty();
+    }
+
+    private static ExportedData newCapture(ViewNode... frames) {
+        WindowData.Builder window = WindowData.newBuilder().setTitle(WINDOW);
+        for (int i = 0; i < frames.length; i++) {
+            window.addFrameData(FrameData.newBuilder().setTimestamp(i).setNode(frames[i]));
+        }
+        return ExportedData.newBuilder().addClassname("View").addWindowData(window).build();
+    }
+
+    private static ViewNode newRoot(ViewNode... children) {
+        ViewNode.Builder root = newNode(0).setWidth(100).setHeight(100);
+        for (ViewNode child : children) {
+            root.addChildren(child);
+        }
+        return root.build();
+    }
+
+    private static ViewNode newChild(int hashcode, int left, int top) {
+        return newNode(hashcode).setLeft(left).setTop(top).setWidth(50).setHeight(100).build();
+    }
+
+    private static ViewNode.Builder newNode(int hashcode) {
+        return ViewNode.newBuilder()
+                .setHashcode(hashcode)
+                .setId("NO_ID")
+                .setAlpha(1)
+                .setScaleX(1)
+                .setScaleY(1)
+                .setVisibility(VISIBLE);
+    }
+}
@@ -28,10 +28,12 @@ import com.android.launcher3.tapl.TestHelpers
 import com.android.launcher3.util.ActivityLifecycleCallbacksAdapter
 import com.android.launcher3.util.rule.TestStabilityRule.PLATFORM_POSTSUBMIT
 import com.android.launcher3.util.viewcapture_analysis.ViewCaptureAnalyzer
+import com.android.launcher3.util.viewcapture_analysis.ViewCaptureMetrics
 import java.io.BufferedOutputStream
 import java.io.FileOutputStream
 import java.io.IOException
 import java.io.OutputStreamWriter
+import java.io.PrintWriter
 import java.util.function.Supplier
 import org.junit.Assert.assertTrue
 import org.junit.Assert.fail
@@ -136,6 +138,8 @@ class ViewCaptureRule(var alreadyOpenActivitySupplier: Supplier<Activity?>) : Te
         val mayProduceNoFrames = description.getAnnotation(MayProduceNoFrames::class.java) != null
         assertTrue("Empty ViewCapture data", mayProduceNoFrames || frameCount > 0)
 
+        writeMetricsReport(description)
+
         val anomalies: Map<String, String> = ViewCaptureAnalyzer.getAnomalies(viewCaptureData)
         if (!anomalies.isEmpty()) {
             val diagFile = FailureWatcher.diagFile(description, "ViewAnomalies", "txt")
@@ -162,6 +166,18 @@ class ViewCaptureRule(var alreadyOpenActivitySupplier: Supplier<Activity?>) : Te
         }
     }
 
+    /** Writes the rendering cost metrics of the capture, to be diffed across builds */
+    private fun writeMetricsReport(description: Description) {
+        val diagFile = FailureWatcher.diagFile(description, "ViewCaptureMetrics", "txt")
+        try {
+            PrintWriter(BufferedOutputStream(FileOutputStream(diagFile))).use { writer ->
+                ViewCaptureMetrics.writeReport(ViewCaptureMetrics.compute(viewCaptureData), writer)
+            }
+        } catch (ex: IOException) {
+            throw RuntimeException(ex)
+        }
+    }
+
     @Retention(AnnotationRetention.RUNTIME)
     @Target(AnnotationTarget.FUNCTION)
     annotation class MayProduceNoFrames
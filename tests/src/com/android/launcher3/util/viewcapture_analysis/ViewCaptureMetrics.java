@@ -0,0 +1,328 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.util.viewcapture_analysis;
+
+import static android.view.View.VISIBLE;
+
+import com.android.app.viewcapture.data.ExportedData;
+import com.android.app.viewcapture.data.FrameData;
+import com.android.app.viewcapture.data.ViewNode;
+import com.android.app.viewcapture.data.WindowData;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Utility that computes rendering cost metrics from ViewCapture data: the size of the view tree,
+ * the number of views invalidated and laid out in each frame, and the area drawn relative to the
+ * window size as a proxy for overdraw.
+ *
+ * ViewCapture doesn't record invalidations or layout passes, so they are inferred by comparing
+ * each view with its state in the previous frame: a view is considered invalidated if any of its
+ * drawing properties changed, and laid out if its bounds changed.
+ *
+ * Metrics only depend on the captured data, so they can be computed from recorded captures on
+ * any machine. Reports are written as sorted "key=value" lines, so that reports of different
+ * builds can be diffed, or compared using {@link #findRegressions}.
+ */
+public class ViewCaptureMetrics {
+
+    private static final String FRAMES_HEADER = "# frames";
+
+    /**
+     * Metrics of a single frame
+     */
+    public static class FrameMetrics {
+        public long timestampNs;
+        public int viewCount;
+        public int drawnViewCount;
+        public int invalidatedViewCount;
+        public int laidOutViewCount;
+        // Sum of the visible area of all the drawn views, divided by the window area
+        public float drawnAreaRatio;
+    }
+
+    /**
+     * Metrics of all the frames of a window
+     */
+    public static class WindowMetrics {
+        public final String title;
+        public final List<FrameMetrics> frames = new ArrayList<>();
+
+        WindowMetrics(String title) {
+            this.title = title;
+        }
+
+        /**
+         * Returns the number of frames where at least one view was laid out, excluding the first
+         * frame after the window size changed.
+         */
+        public int getLayoutPassCount() {
+            int count = 0;
+            for (FrameMetrics frame : frames) {
+                if (frame.laidOutViewCount > 0) count++;
+            }
+            return count;
+        }
+    }
+
+    // State of a view in the previous frame, used to detect changes
+    private static class ViewState {
+        float left;
+        float top;
+        float width;
+        float height;
+        float alpha;
+        float translationX;
+        float translationY;
+        float scaleX;
+        float scaleY;
+        int scrollX;
+        int scrollY;
+        int visibility;
+    }
+
+    /**
+     * Computes the metrics of all the windows in the capture, sorted by window title
+     */
+    public static SortedMap<String, WindowMetrics> compute(ExportedData viewCaptureData) {
+        SortedMap<String, WindowMetrics> result = new TreeMap<>();
+        for (int i = 0; i < viewCaptureData.getWindowDataCount(); ++i) {
+            WindowData windowData = viewCaptureData.getWindowData(i);
+            String title = windowData.getTitle();
+            if (result.containsKey(title)) title = title + "#" + i;
+            result.put(title, computeWindow(title, windowData));
+        }
+        return result;
+    }
+
+    private static WindowMetrics computeWindow(String title, WindowData windowData) {
+        WindowMetrics metrics = new WindowMetrics(title);
+        Map<Integer, ViewState> lastStates = new HashMap<>();
+        int windowWidthPx = -1;
+        int windowHeightPx = -1;
+
+        for (int frameN = 0; frameN < windowData.getFrameDataCount(); ++frameN) {
+            FrameData frame = windowData.getFrameData(frameN);
+            ViewNode rootNode = frame.getNode();
+
+            // Like ViewCaptureAnalyzer, reset the state if the window size has changed.
+            if (windowWidthPx != rootNode.getWidth() || windowHeightPx != rootNode.getHeight()) {
+                windowWidthPx = rootNode.getWidth();
+                windowHeightPx = rootNode.getHeight();
+                lastStates.clear();
+            }
+
+            FrameMetrics frameMetrics = new FrameMetrics();
+            frameMetrics.timestampNs = frame.getTimestamp();
+            Map<Integer, ViewState> states = new HashMap<>();
+            float drawnArea = visitView(rootNode, 0, 0, 1, 1, true, lastStates, states,
+                    frameMetrics, windowWidthPx, windowHeightPx);
+            float windowArea = (float) windowWidthPx * windowHeightPx;
+            frameMetrics.drawnAreaRatio = windowArea > 0 ? drawnArea / windowArea : 0;
+            metrics.frames.add(frameMetrics);
+            lastStates = states;
+        }
+        return metrics;
+    }
+
+    /**
+     * Visits the view and its children, and returns the drawn area in pixels
+     */
+    private static float visitView(ViewNode node, float leftShift, float topShift,
+            float parentScaleX, float parentScaleY, boolean parentVisible,
+            Map<Integer, ViewState> lastStates, Map<Integer, ViewState> states,
+            FrameMetrics frameMetrics, int windowWidthPx, int windowHeightPx) {
+        frameMetrics.viewCount++;
+
+        ViewState state = new ViewState();
+        state.left = node.getLeft();
+        state.top = node.getTop();
+        state.width = node.getWidth();
+        state.height = node.getHeight();
+        state.alpha = node.getAlpha();
+        state.translationX = node.getTranslationX();
+        state.translationY = node.getTranslationY();
+        state.scaleX = node.getScaleX();
+        state.scaleY = node.getScaleY();
+        state.scrollX = node.getScrollX();
+        state.scrollY = node.getScrollY();
+        state.visibility = node.getVisibility();
+        states.put(node.getHashcode(), state);
+
+        // Views seen for the first time after the first frame are invalidated as well
+        ViewState lastState = lastStates.get(node.getHashcode());
+        if (!lastStates.isEmpty()) {
+            if (lastState == null || hasDrawingChanges(lastState, state)) {
+                frameMetrics.invalidatedViewCount++;
+            }
+            if (lastState != null && hasBoundsChanges(lastState, state)) {
+                frameMetrics.laidOutViewCount++;
+            }
+        }
+
+        boolean visible = parentVisible && node.getVisibility() == VISIBLE && node.getAlpha() > 0;
+        float scaleX = parentScaleX * node.getScaleX();
+        float scaleY = parentScaleY * node.getScaleY();
+        float left = leftShift
+                + (node.getLeft() + node.getTranslationX()) * parentScaleX
+                + node.getWidth() * (parentScaleX - scaleX) / 2;
+        float top = topShift
+                + (node.getTop() + node.getTranslationY()) * parentScaleY
+                + node.getHeight() * (parentScaleY - scaleY) / 2;
+
+        float drawnArea = 0;
+        if (visible && !node.getWillNotDraw()) {
+            frameMetrics.drawnViewCount++;
+            float right = Math.min(left + node.getWidth() * scaleX, windowWidthPx);
+            float bottom = Math.min(top + node.getHeight() * scaleY, windowHeightPx);
+            drawnArea += Math.max(right - Math.max(left, 0), 0)
+                    * Math.max(bottom - Math.max(top, 0), 0);
+        }
+
+        for (int i = 0; i < node.getChildrenCount(); ++i) {
+            drawnArea += visitView(node.getChildren(i),
+                    left - node.getScrollX(), top - node.getScrollY(), scaleX, scaleY, visible,
+                    lastStates, states, frameMetrics, windowWidthPx, windowHeightPx);
+        }
+        return drawnArea;
+    }
+
+    private static boolean hasBoundsChanges(ViewState a, ViewState b) {
+        return a.left != b.left || a.top != b.top || a.width != b.width || a.height != b.height;
+    }
+
+    private static boolean hasDrawingChanges(ViewState a, ViewState b) {
+        return hasBoundsChanges(a, b)
+                || a.alpha != b.alpha
+                || a.translationX != b.translationX || a.translationY != b.translationY
+                || a.scaleX != b.scaleX || a.scaleY != b.scaleY
+                || a.scrollX != b.scrollX || a.scrollY != b.scrollY
+                || a.visibility != b.visibility;
+    }
+
+    /**
+     * Returns the summary metrics of all the windows, keyed by "window title/metric name"
+     */
+    public static SortedMap<String, Float> getSummary(Map<String, WindowMetrics> windows) {
+        SortedMap<String, Float> summary = new TreeMap<>();
+        for (WindowMetrics window : windows.values()) {
+            int frameCount = window.frames.size();
+            if (frameCount == 0) continue;
+            float[] viewCounts = new float[frameCount];
+            float[] invalidated = new float[frameCount];
+            float[] laidOut = new float[frameCount];
+            float[] drawnArea = new float[frameCount];
+            for (int i = 0; i < frameCount; i++) {
+                FrameMetrics frame = window.frames.get(i);
+                viewCounts[i] = frame.viewCount;
+                invalidated[i] = frame.invalidatedViewCount;
+                laidOut[i] = frame.laidOutViewCount;
+                drawnArea[i] = frame.drawnAreaRatio;
+            }
+            String prefix = window.title + "/";
+            summary.put(prefix + "frames", (float) frameCount);
+            summary.put(prefix + "layoutPasses", (float) window.getLayoutPassCount());
+            putStats(summary, prefix + "viewCount", viewCounts);
+            putStats(summary, prefix + "invalidatedViews", invalidated);
+            putStats(summary, prefix + "laidOutViews", laidOut);
+            putStats(summary, prefix + "drawnAreaRatio", drawnArea);
+        }
+        return summary;
+    }
+
+    private static void putStats(Map<String, Float> summary, String key, float[] values) {
+        float[] sorted = values.clone();
+        Arrays.sort(sorted);
+        float total = 0;
+        for (float value : sorted) total += value;
+        summary.put(key + ".avg", total / sorted.length);
+        summary.put(key + ".p90", sorted[(int) Math.ceil(sorted.length * 0.9f) - 1]);
+        summary.put(key + ".max", sorted[sorted.length - 1]);
+    }
+
+    /**
+     * Writes a report containing the summary of all the windows, followed by the metrics of each
+     * frame.
+     */
+    public static void writeReport(Map<String, WindowMetrics> windows, PrintWriter writer) {
+        for (Map.Entry<String, Float> entry : getSummary(windows).entrySet()) {
+            writer.println(entry.getKey() + "=" + formatValue(entry.getValue()));
+        }
+        writer.println();
+        writer.println(FRAMES_HEADER);
+        for (WindowMetrics window : windows.values()) {
+            for (int i = 0; i < window.frames.size(); i++) {
+                FrameMetrics frame = window.frames.get(i);
+                writer.println(String.format(Locale.US,
+                        "%s/%d: views=%d drawn=%d invalidated=%d laidOut=%d drawnArea=%.2f",
+                        window.title, i, frame.viewCount, frame.drawnViewCount,
+                        frame.invalidatedViewCount, frame.laidOutViewCount,
+                        frame.drawnAreaRatio));
+            }
+        }
+    }
+
+    /**
+     * Reads the summary of a report written by {@link #writeReport}
+     */
+    public static SortedMap<String, Float> readSummary(Reader reader) throws IOException {
+        SortedMap<String, Float> summary = new TreeMap<>();
+        BufferedReader lines = new BufferedReader(reader);
+        String line;
+        while ((line = lines.readLine()) != null && !line.isEmpty()) {
+            int separator = line.lastIndexOf('=');
+            if (separator < 0) continue;
+            summary.put(line.substring(0, separator),
+                    Float.parseFloat(line.substring(separator + 1)));
+        }
+        return summary;
+    }
+
+    /**
+     * Compares summaries of two captures of the same scenario, and returns a message for each
+     * metric which increased by more than {@param tolerance} (as a fraction of the baseline
+     * value). Metrics missing from either summary are ignored.
+     */
+    public static List<String> findRegressions(Map<String, Float> baseline,
+            Map<String, Float> current, float tolerance) {
+        List<String> regressions = new ArrayList<>();
+        for (Map.Entry<String, Float> entry : new TreeMap<>(current).entrySet()) {
+            Float baselineValue = baseline.get(entry.getKey());
+            if (baselineValue == null) continue;
+            float value = entry.getValue();
+            if (value > baselineValue * (1 + tolerance) && value - baselineValue >= 1e-3f) {
+                regressions.add(entry.getKey() + ": " + formatValue(baselineValue)
+                        + " -> " + formatValue(value));
+            }
+        }
+        return regressions;
+    }
+
+    private static String formatValue(float value) {
+        return String.format(Locale.US, "%.2f", value);
+    }
+}